@@ -0,0 +1,75 @@
+package tree.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tree.ArrayTree;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * As mesmas operações e chaves de TreeBenchmark aplicadas à ArrayTree.
+ * Com -prof perfnorm é possível comparar as falhas de cache por busca entre as duas implementações.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ArrayTreeBenchmark {
+
+    /**
+     * Árvore construída uma vez por execução com as chaves do Workload.
+     */
+    @State(Scope.Thread)
+    public static class Filled {
+        ArrayTree<Integer> tree;
+        int cursor;
+
+        @Setup(Level.Trial)
+        public void setup(Workload workload) {
+            tree = new ArrayTree<>();
+            for (Integer key : workload.inserts) {
+                tree.insert(key);
+            }
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public ArrayTree<Integer> insert(Workload workload) {
+        ArrayTree<Integer> tree = new ArrayTree<>();
+        for (Integer key : workload.inserts) {
+            tree.insert(key);
+        }
+        return tree;
+    }
+
+    @Benchmark
+    public boolean contains(Workload workload, Filled filled) {
+        Integer key = workload.lookups[filled.cursor];
+        filled.cursor = (filled.cursor + 1) & (Workload.LOOKUPS - 1);
+        return filled.tree.contains(key);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public ArrayTree<Integer> insertRemove(Workload workload) {
+        ArrayTree<Integer> tree = new ArrayTree<>();
+        for (Integer key : workload.inserts) {
+            tree.insert(key);
+        }
+        for (Integer key : workload.inserts) {
+            tree.remove(key);
+        }
+        return tree;
+    }
+}
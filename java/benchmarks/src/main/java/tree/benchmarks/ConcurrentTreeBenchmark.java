@@ -0,0 +1,130 @@
+package tree.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+import tree.ConcurrentAVLTree;
+import tree.ConcurrentTree;
+import tree.SearchTree;
+import tree.Tree;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Uma árvore compartilhada por todas as threads do benchmark, com uma fração das operações modificando a árvore.
+ * O número de threads é escolhido com -t, ou varia de 1 a 64 com ThreadScaling.
+ * Compara ConcurrentAVLTree, ConcurrentTree (leituras otimistas com StampedLock)
+ * e a referência, uma Tree com todas as operações protegidas por um único lock, como Collections.synchronizedSet.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ConcurrentTreeBenchmark {
+
+    public enum Implementation {
+        CONCURRENT,
+        STAMPED,
+        SYNCHRONIZED;
+
+        SearchTree<Integer> create() {
+            switch (this) {
+                case CONCURRENT:
+                    return new ConcurrentAVLTree<>();
+                case STAMPED:
+                    return new ConcurrentTree<>();
+                default:
+                    return new SynchronizedTree<>();
+            }
+        }
+    }
+
+    /**
+     * Tree com um único lock para todas as operações.
+     */
+    static final class SynchronizedTree<T extends Comparable<T>> implements SearchTree<T> {
+        private final Tree<T> tree = new Tree<>();
+
+        @Override
+        public synchronized int getSize() { return tree.getSize(); }
+
+        @Override
+        public synchronized boolean contains(T element) { return tree.contains(element); }
+
+        @Override
+        public synchronized boolean insert(T element) { return tree.insert(element); }
+
+        @Override
+        public synchronized boolean remove(T element) { return tree.remove(element); }
+    }
+
+    /**
+     * Árvore compartilhada, construída uma vez por execução com as chaves do Workload.
+     */
+    @State(Scope.Benchmark)
+    public static class Shared {
+
+        @Param({"CONCURRENT", "STAMPED", "SYNCHRONIZED"})
+        public Implementation implementation;
+
+        /**
+         * Porcentagem das operações que inserem ou removem uma chave.
+         */
+        @Param({"0", "5", "50"})
+        public int writePercent;
+
+        SearchTree<Integer> tree;
+
+        @Setup(Level.Trial)
+        public void setup(Workload workload) {
+            tree = implementation.create();
+            for (Integer key : workload.inserts) {
+                tree.insert(key);
+            }
+        }
+    }
+
+    /**
+     * Posição de cada thread nas consultas. As threads começam em posições diferentes para não seguirem as mesmas chaves.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        int position;
+        int writeThreshold;
+
+        @Setup(Level.Trial)
+        public void setup(Shared shared, ThreadParams threads) {
+            position = (int) ((long) Workload.LOOKUPS * threads.getThreadIndex() / threads.getThreadCount());
+            writeThreshold = shared.writePercent * 128 / 100;
+        }
+    }
+
+    /**
+     * Cada chave consultada é uma busca ou, em writePercent% das vezes, uma remoção seguida de inserção se ela não estava na árvore.
+     */
+    @Benchmark
+    public boolean operation(Workload workload, Shared shared, Cursor cursor) {
+        int position = cursor.position;
+        cursor.position = (position + 1) & (Workload.LOOKUPS - 1);
+
+        Integer key = workload.lookups[position];
+        SearchTree<Integer> tree = shared.tree;
+
+        // A escolha da operação depende apenas da posição, sem gerar números aleatórios durante a medição.
+        if ((Distribution.scramble(position) >>> 25) < cursor.writeThreshold) {
+            return tree.remove(key) || tree.insert(key);
+        }
+        return tree.contains(key);
+    }
+}
@@ -0,0 +1,84 @@
+package tree.benchmarks;
+
+import org.apache.commons.rng.UniformRandomProvider;
+import org.apache.commons.rng.sampling.distribution.DiscreteSampler;
+import org.apache.commons.rng.sampling.distribution.RejectionInversionZipfSampler;
+import org.apache.commons.rng.simple.RandomSource;
+
+/**
+ * Distribuições das chaves usadas nos benchmarks.
+ * Todas geram inteiros de forma determinística a partir de uma semente,
+ * para que árvore e TreeMap recebam exatamente as mesmas chaves.
+ */
+public enum Distribution {
+
+    /**
+     * 0, 1, 2, ... n - 1, em ordem. Pior caso para rotações na inserção.
+     */
+    SEQUENTIAL {
+        @Override
+        int[] keys(int universe, int count, long seed) {
+            int[] keys = new int[count];
+            for (int i = 0; i < count; i++) {
+                keys[i] = i % universe;
+            }
+            return keys;
+        }
+    },
+
+    /**
+     * Chaves distribuídas uniformemente entre os n valores possíveis.
+     */
+    RANDOM {
+        @Override
+        int[] keys(int universe, int count, long seed) {
+            int[] keys = new int[count];
+            if (count == universe) {
+                // Inserção: cada valor aparece uma vez, em ordem embaralhada.
+                for (int i = 0; i < count; i++) {
+                    keys[i] = scramble(i);
+                }
+                return keys;
+            }
+            UniformRandomProvider random = RandomSource.XO_RO_SHI_RO_128_PP.create(seed);
+            for (int i = 0; i < count; i++) {
+                keys[i] = scramble(random.nextInt(universe));
+            }
+            return keys;
+        }
+    },
+
+    /**
+     * Chaves com frequência de Zipf (expoente 1): poucas chaves quentes concentram a maior parte dos acessos.
+     * Na inserção as chaves repetidas são rejeitadas pela árvore, como aconteceria em produção.
+     */
+    ZIPF {
+        @Override
+        int[] keys(int universe, int count, long seed) {
+            UniformRandomProvider random = RandomSource.XO_RO_SHI_RO_128_PP.create(seed);
+            DiscreteSampler sampler = RejectionInversionZipfSampler.of(random, universe, 1.0);
+            int[] keys = new int[count];
+            for (int i = 0; i < count; i++) {
+                // O sorteio retorna o posto entre 1 e n.
+                keys[i] = scramble(sampler.sample() - 1);
+            }
+            return keys;
+        }
+    };
+
+    /**
+     * Gera chaves entre os valores de um universo de tamanho fixo.
+     * @param universe Número de valores distintos possíveis.
+     * @param count Número de chaves geradas.
+     * @param seed Semente do gerador.
+     */
+    abstract int[] keys(int universe, int count, long seed);
+
+    /**
+     * Bijeção entre inteiros que espalha valores próximos pelo espaço de chaves,
+     * para que as chaves quentes e a ordem de inserção não fiquem concentradas num canto da árvore.
+     */
+    static int scramble(int value) {
+        return value * 0x9E3779B9;
+    }
+}
@@ -0,0 +1,105 @@
+package tree.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tree.AVLMap;
+import tree.FrozenTree;
+import tree.Tree;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Buscas numa FrozenTree comparadas com as mesmas buscas na árvore de onde ela foi criada.
+ * floor e ceiling da árvore são medidos num AVLMap, que usa os mesmos nós e algoritmos de Tree.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class FrozenTreeBenchmark {
+
+    /**
+     * Árvore, mapa e cópia congelada construídos uma vez por execução com as chaves do Workload.
+     */
+    @State(Scope.Thread)
+    public static class Filled {
+        Tree<Integer> tree;
+        AVLMap<Integer, Boolean> map;
+        FrozenTree<Integer> frozen;
+        int cursor;
+
+        @Setup(Level.Trial)
+        public void setup(Workload workload) {
+            tree = Tree.fromSorted(workload.sortedInserts);
+            map = new AVLMap<>();
+            for (Integer key : workload.sortedInserts) {
+                map.put(key, Boolean.TRUE);
+            }
+            frozen = tree.freeze();
+        }
+
+        int next() {
+            int current = cursor;
+            cursor = (cursor + 1) & (Workload.LOOKUPS - 1);
+            return current;
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public FrozenTree<Integer> freeze(Filled filled) {
+        return filled.tree.freeze();
+    }
+
+    // Busca
+
+    @Benchmark
+    public boolean treeContains(Workload workload, Filled filled) {
+        return filled.tree.contains(workload.lookups[filled.next()]);
+    }
+
+    @Benchmark
+    public boolean frozenContains(Workload workload, Filled filled) {
+        return filled.frozen.contains(workload.lookups[filled.next()]);
+    }
+
+    /**
+     * Sem o Integer da consulta: só o long[] das chaves é lido.
+     */
+    @Benchmark
+    public boolean frozenContainsKey(Workload workload, Filled filled) {
+        return filled.frozen.containsKey(workload.rawLookups[filled.next()]);
+    }
+
+    // floor e ceiling
+
+    @Benchmark
+    public Integer mapFloor(Workload workload, Filled filled) {
+        return filled.map.floorKey(workload.lookups[filled.next()]);
+    }
+
+    @Benchmark
+    public Integer frozenFloor(Workload workload, Filled filled) {
+        return filled.frozen.floor(workload.lookups[filled.next()]);
+    }
+
+    @Benchmark
+    public Integer mapCeiling(Workload workload, Filled filled) {
+        return filled.map.ceilingKey(workload.lookups[filled.next()]);
+    }
+
+    @Benchmark
+    public Integer frozenCeiling(Workload workload, Filled filled) {
+        return filled.frozen.ceiling(workload.lookups[filled.next()]);
+    }
+}
@@ -0,0 +1,37 @@
+package tree.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Executa os benchmarks com os mesmos argumentos de linha de comando do JMH,
+ * sempre incluindo o GCProfiler para reportar a taxa de alocação de cada operação.
+ */
+public class Main {
+
+    public static void main(String[] args) throws Exception {
+
+        CommandLineOptions options = new CommandLineOptions(args);
+
+        // Ajuda e listagens são tratadas pelo próprio JMH.
+        if (options.shouldHelp() || options.shouldList() || options.shouldListWithParams()
+                || options.shouldListProfilers() || options.shouldListResultFormats()) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+
+        OptionsBuilder builder = new OptionsBuilder();
+        builder.parent(options);
+
+        boolean hasGcProfiler = options.getProfilers().stream()
+                .anyMatch(profiler -> profiler.getKlass().equals("gc")
+                        || profiler.getKlass().equals(GCProfiler.class.getName()));
+        if (!hasGcProfiler) {
+            builder.addProfiler(GCProfiler.class);
+        }
+
+        new Runner(builder.build()).run();
+    }
+}
@@ -0,0 +1,141 @@
+package tree.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tree.IntAVLTree;
+import tree.LongAVLTree;
+import tree.Tree;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * IntAVLTree e LongAVLTree comparadas com Tree&lt;Integer&gt; recebendo as mesmas chaves int.
+ * Aqui Tree&lt;Integer&gt; faz o boxing de cada chave, como acontece quando a aplicação guarda ints,
+ * então gc.alloc.rate.norm mostra a diferença total de memória alocada por construção.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class PrimitiveTreeBenchmark {
+
+    /**
+     * As três árvores construídas uma vez por execução com as chaves do Workload.
+     */
+    @State(Scope.Thread)
+    public static class Filled {
+        Tree<Integer> boxedTree;
+        IntAVLTree intTree;
+        LongAVLTree longTree;
+        int cursor;
+
+        @Setup(Level.Trial)
+        public void setup(Workload workload) {
+            boxedTree = new Tree<>();
+            intTree = new IntAVLTree();
+            longTree = new LongAVLTree();
+            for (int key : workload.rawInserts) {
+                boxedTree.insert(key);
+                intTree.insert(key);
+                longTree.insert(key);
+            }
+        }
+
+        int next() {
+            int current = cursor;
+            cursor = (cursor + 1) & (Workload.LOOKUPS - 1);
+            return current;
+        }
+    }
+
+    // Inserção
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Tree<Integer> boxedInsert(Workload workload) {
+        Tree<Integer> tree = new Tree<>();
+        for (int key : workload.rawInserts) {
+            tree.insert(key);
+        }
+        return tree;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public IntAVLTree intInsert(Workload workload) {
+        IntAVLTree tree = new IntAVLTree();
+        for (int key : workload.rawInserts) {
+            tree.insert(key);
+        }
+        return tree;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public LongAVLTree longInsert(Workload workload) {
+        LongAVLTree tree = new LongAVLTree();
+        for (int key : workload.rawInserts) {
+            tree.insert(key);
+        }
+        return tree;
+    }
+
+    // Busca
+
+    @Benchmark
+    public boolean boxedContains(Workload workload, Filled filled) {
+        return filled.boxedTree.contains(workload.rawLookups[filled.next()]);
+    }
+
+    @Benchmark
+    public boolean intContains(Workload workload, Filled filled) {
+        return filled.intTree.contains(workload.rawLookups[filled.next()]);
+    }
+
+    @Benchmark
+    public boolean longContains(Workload workload, Filled filled) {
+        return filled.longTree.contains(workload.rawLookups[filled.next()]);
+    }
+
+    // Inserção seguida de remoção
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Tree<Integer> boxedInsertRemove(Workload workload) {
+        Tree<Integer> tree = boxedInsert(workload);
+        for (int key : workload.rawInserts) {
+            tree.remove(key);
+        }
+        return tree;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public IntAVLTree intInsertRemove(Workload workload) {
+        IntAVLTree tree = intInsert(workload);
+        for (int key : workload.rawInserts) {
+            tree.remove(key);
+        }
+        return tree;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public LongAVLTree longInsertRemove(Workload workload) {
+        LongAVLTree tree = longInsert(workload);
+        for (int key : workload.rawInserts) {
+            tree.remove(key);
+        }
+        return tree;
+    }
+}
@@ -0,0 +1,76 @@
+package tree.benchmarks;
+
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Executa ConcurrentTreeBenchmark com 1, 2, 4, ..., 64 threads e no final mostra uma tabela com a vazão de cada configuração.
+ * Aceita os mesmos argumentos do JMH, exceto -t. Sem -p, usa 1 milhão de chaves aleatórias.
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar tree.benchmarks.ThreadScaling -p writePercent=10
+ * </pre>
+ */
+public class ThreadScaling {
+
+    private static final int[] THREADS = {1, 2, 4, 8, 16, 32, 64};
+
+    public static void main(String[] args) throws Exception {
+
+        CommandLineOptions options = new CommandLineOptions(args);
+
+        // Configuração -> vazão para cada número de threads.
+        Map<String, List<Double>> table = new TreeMap<>();
+
+        for (int threads : THREADS) {
+            OptionsBuilder builder = new OptionsBuilder();
+            builder.parent(options);
+            builder.threads(threads);
+
+            if (options.getIncludes().isEmpty()) {
+                builder.include(ConcurrentTreeBenchmark.class.getSimpleName());
+            }
+            if (!options.getParameter("size").hasValue()) {
+                builder.param("size", "1000000");
+            }
+            if (!options.getParameter("distribution").hasValue()) {
+                builder.param("distribution", "RANDOM");
+            }
+
+            for (RunResult result : new Runner(builder.build()).run()) {
+                String configuration = result.getParams().getBenchmark() + " " + describe(result);
+                table.computeIfAbsent(configuration, key -> new ArrayList<>())
+                        .add(result.getPrimaryResult().getScore());
+            }
+        }
+
+        System.out.println();
+        StringBuilder header = new StringBuilder("Vazão (operações/us) por número de threads:\n");
+        for (int threads : THREADS) {
+            header.append(String.format("%10d", threads));
+        }
+        System.out.println(header);
+
+        table.forEach((configuration, scores) -> {
+            StringBuilder line = new StringBuilder();
+            for (double score : scores) {
+                line.append(String.format("%10.2f", score));
+            }
+            System.out.println(line.append("  ").append(configuration));
+        });
+    }
+
+    private static String describe(RunResult result) {
+        StringBuilder description = new StringBuilder();
+        for (String key : result.getParams().getParamsKeys()) {
+            description.append(key).append('=').append(result.getParams().getParam(key)).append(' ');
+        }
+        return description.toString().trim();
+    }
+}
@@ -0,0 +1,86 @@
+package tree.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tree.Tree;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inserção, busca e remoção na Tree.
+ * insert e insertRemove medem a construção da árvore inteira por chamada;
+ * o custo das remoções é a diferença entre os dois.
+ * contains mede uma única busca por chamada numa árvore já construída.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class TreeBenchmark {
+
+    /**
+     * Árvore construída uma vez por execução com as chaves do Workload.
+     */
+    @State(Scope.Thread)
+    public static class Filled {
+        Tree<Integer> tree;
+        int cursor;
+
+        @Setup(Level.Trial)
+        public void setup(Workload workload) {
+            tree = new Tree<>();
+            for (Integer key : workload.inserts) {
+                tree.insert(key);
+            }
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Tree<Integer> insert(Workload workload) {
+        Tree<Integer> tree = new Tree<>();
+        for (Integer key : workload.inserts) {
+            tree.insert(key);
+        }
+        return tree;
+    }
+
+    /**
+     * Construção a partir das chaves já ordenadas, sem rotações. Comparar com insert.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Tree<Integer> fromSorted(Workload workload) {
+        return Tree.fromSorted(workload.sortedInserts);
+    }
+
+    @Benchmark
+    public boolean contains(Workload workload, Filled filled) {
+        Integer key = workload.lookups[filled.cursor];
+        filled.cursor = (filled.cursor + 1) & (Workload.LOOKUPS - 1);
+        return filled.tree.contains(key);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Tree<Integer> insertRemove(Workload workload) {
+        Tree<Integer> tree = new Tree<>();
+        for (Integer key : workload.inserts) {
+            tree.insert(key);
+        }
+        for (Integer key : workload.inserts) {
+            tree.remove(key);
+        }
+        return tree;
+    }
+}
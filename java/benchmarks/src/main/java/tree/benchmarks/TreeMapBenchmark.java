@@ -0,0 +1,74 @@
+package tree.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Referência: as mesmas operações e chaves de TreeBenchmark aplicadas a um java.util.TreeMap.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class TreeMapBenchmark {
+
+    /**
+     * TreeMap construído uma vez por execução com as chaves do Workload.
+     */
+    @State(Scope.Thread)
+    public static class Filled {
+        TreeMap<Integer, Boolean> tree;
+        int cursor;
+
+        @Setup(Level.Trial)
+        public void setup(Workload workload) {
+            tree = new TreeMap<>();
+            for (Integer key : workload.inserts) {
+                tree.put(key, Boolean.TRUE);
+            }
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public TreeMap<Integer, Boolean> insert(Workload workload) {
+        TreeMap<Integer, Boolean> tree = new TreeMap<>();
+        for (Integer key : workload.inserts) {
+            tree.put(key, Boolean.TRUE);
+        }
+        return tree;
+    }
+
+    @Benchmark
+    public boolean contains(Workload workload, Filled filled) {
+        Integer key = workload.lookups[filled.cursor];
+        filled.cursor = (filled.cursor + 1) & (Workload.LOOKUPS - 1);
+        return filled.tree.containsKey(key);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public TreeMap<Integer, Boolean> insertRemove(Workload workload) {
+        TreeMap<Integer, Boolean> tree = new TreeMap<>();
+        for (Integer key : workload.inserts) {
+            tree.put(key, Boolean.TRUE);
+        }
+        for (Integer key : workload.inserts) {
+            tree.remove(key);
+        }
+        return tree;
+    }
+}
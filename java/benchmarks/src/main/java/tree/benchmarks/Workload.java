@@ -0,0 +1,71 @@
+package tree.benchmarks;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.stream.IntStream;
+
+/**
+ * Chaves compartilhadas pelos benchmarks da árvore e do TreeMap.
+ * As chaves já são criadas como Integer para que o custo de boxing não entre nas medições
+ * nem na taxa de alocação reportada pelo GCProfiler.
+ * As mesmas chaves também ficam disponíveis como int, para as árvores primitivas.
+ */
+@State(Scope.Benchmark)
+public class Workload {
+
+    /**
+     * Número de chaves inseridas na estrutura.
+     */
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int size;
+
+    @Param({"SEQUENTIAL", "RANDOM", "ZIPF"})
+    public Distribution distribution;
+
+    /**
+     * Número de consultas pré-geradas. Potência de 2 para percorrer com máscara.
+     */
+    static final int LOOKUPS = 1 << 20;
+
+    /**
+     * Chaves na ordem em que são inseridas.
+     */
+    Integer[] inserts;
+
+    /**
+     * Chaves consultadas em contains, seguindo a mesma distribuição.
+     */
+    Integer[] lookups;
+
+    /**
+     * As mesmas chaves de inserts e lookups, sem boxing.
+     */
+    int[] rawInserts;
+    int[] rawLookups;
+
+    /**
+     * As chaves de inserts ordenadas e sem repetições, como num snapshot da árvore.
+     */
+    Integer[] sortedInserts;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        rawInserts = distribution.keys(size, size, 1);
+        rawLookups = distribution.keys(size, LOOKUPS, 2);
+        inserts = box(rawInserts);
+        lookups = box(rawLookups);
+        sortedInserts = box(IntStream.of(rawInserts).sorted().distinct().toArray());
+    }
+
+    private static Integer[] box(int[] keys) {
+        Integer[] boxed = new Integer[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            boxed[i] = keys[i];
+        }
+        return boxed;
+    }
+}
@@ -0,0 +1,836 @@
+package tree;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.function.Function;
+
+/**
+ * Mapa ordenado de chaves para valores, balanceado pelo algoritmo AVL.
+ * As chaves ficam numa Tree cujos nós também guardam o valor, então uma única descida encontra a chave
+ * e retorna o valor, sem um HashMap separado. Inserção, remoção, balanceamento e rotações são os de Tree.
+ * <p>
+ * Implementa NavigableMap, como TreeMap: além de get, put e remove, tem floor, ceiling, lower e higher
+ * e as visões subMap, headMap, tailMap, descendingMap e navigableKeySet. As visões não copiam nada:
+ * modificações feitas por elas aparecem no mapa e vice-versa.
+ * <p>
+ * Chaves null não são aceitas; valores null são. O mapa não deve ser modificado durante uma iteração,
+ * exceto pelo remove do próprio iterador.
+ * @param <K> Tipo das chaves, em ordem natural.
+ * @param <V> Tipo dos valores.
+ */
+public class AVLMap<K extends Comparable<K>, V> extends AbstractMap<K, V> implements NavigableMap<K, V> {
+
+    /**
+     * Nó de Tree que também guarda o valor associado ao elemento, que é a chave.
+     * É a própria entrada devolvida pela iteração de entrySet, então setValue modifica o mapa.
+     */
+    private static final class MapNode<K extends Comparable<K>, V> extends Node<K> implements Map.Entry<K, V> {
+
+        private V value;
+
+        MapNode(K key, Node<K> parent) {
+            super(key, parent);
+        }
+
+        @Override
+        public K getKey() { return getElement(); }
+
+        @Override
+        public V getValue() { return value; }
+
+        @Override
+        public V setValue(V value) {
+            V oldValue = this.value;
+            this.value = value;
+            return oldValue;
+        }
+
+        /**
+         * Na remoção de um nó com dois filhos o valor acompanha a chave do predecessor.
+         */
+        @Override
+        @SuppressWarnings("unchecked")
+        void copyContents(Node<K> source) {
+            super.copyContents(source);
+            value = ((MapNode<K, V>) source).value;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Map.Entry<?, ?> e && getKey().equals(e.getKey()) && Objects.equals(value, e.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return getKey().hashCode() ^ Objects.hashCode(value);
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + value;
+        }
+    }
+
+    /**
+     * Tree cujas folhas são MapNode.
+     */
+    private static final class KeyTree<K extends Comparable<K>, V> extends Tree<K> {
+        @Override
+        Node<K> newNode(K key, Node<K> parent) {
+            return new MapNode<K, V>(key, parent);
+        }
+    }
+
+    private final KeyTree<K, V> tree = new KeyTree<>();
+
+    private EntrySet entrySet;
+    private KeySet<K> keySet;
+    private NavigableMap<K, V> descendingMap;
+
+    /**
+     * Cria um mapa vazio.
+     */
+    public AVLMap() { }
+
+    /**
+     * Cria um mapa com as mesmas associações de map.
+     */
+    public AVLMap(Map<? extends K, ? extends V> map) {
+        putAll(map);
+    }
+
+    /**
+     * Altura da árvore de chaves. 0 se o mapa estiver vazio.
+     */
+    public int getHeight() { return tree.getRoot().getHeight(); }
+
+    // Acesso aos nós
+
+    /**
+     * MapNode correspondente a node, ou null se node é o nó vazio.
+     */
+    @SuppressWarnings("unchecked")
+    private static <K extends Comparable<K>, V> MapNode<K, V> mapNode(Node<K> node) {
+        return node.isEmpty() ? null : (MapNode<K, V>) node;
+    }
+
+    @SuppressWarnings("unchecked")
+    private MapNode<K, V> getNode(Object key) {
+        Objects.requireNonNull(key);
+        return mapNode(tree.find((K) key, tree.getRoot()));
+    }
+
+    private MapNode<K, V> first() { return mapNode(tree.firstNode(tree.getRoot())); }
+
+    private MapNode<K, V> last() { return mapNode(tree.lastNode(tree.getRoot())); }
+
+    private MapNode<K, V> ceiling(K key) { return mapNode(tree.ceilingNode(Objects.requireNonNull(key))); }
+
+    private MapNode<K, V> higher(K key) { return mapNode(tree.higherNode(Objects.requireNonNull(key))); }
+
+    private MapNode<K, V> floor(K key) { return mapNode(tree.floorNode(Objects.requireNonNull(key))); }
+
+    private MapNode<K, V> lower(K key) { return mapNode(tree.lowerNode(Objects.requireNonNull(key))); }
+
+    private MapNode<K, V> successor(MapNode<K, V> node) { return mapNode(tree.successor(node)); }
+
+    private MapNode<K, V> predecessor(MapNode<K, V> node) { return mapNode(tree.predecessor(node)); }
+
+    /**
+     * Cópia imutável da entrada, para que os métodos de navegação não exponham os nós,
+     * cujo conteúdo pode mudar numa remoção.
+     */
+    private static <K extends Comparable<K>, V> Map.Entry<K, V> export(MapNode<K, V> node) {
+        return node == null ? null : new SimpleImmutableEntry<>(node.getKey(), node.value);
+    }
+
+    private static <K extends Comparable<K>> K keyOrNull(MapNode<K, ?> node) {
+        return node == null ? null : node.getKey();
+    }
+
+    private static <K extends Comparable<K>> K key(MapNode<K, ?> node) {
+        if (node == null) { throw new NoSuchElementException(); }
+        return node.getKey();
+    }
+
+    private Map.Entry<K, V> poll(MapNode<K, V> node) {
+        Map.Entry<K, V> entry = export(node);
+        if (node != null) { tree.remove(node); }
+        return entry;
+    }
+
+    // Consultas e modificações
+
+    @Override
+    public int size() { return tree.getSize(); }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return getNode(key) != null;
+    }
+
+    /**
+     * Valor associado à chave, encontrado na mesma descida que encontra a chave.
+     * @return O valor, ou null se a chave não está presente.
+     */
+    @Override
+    public V get(Object key) {
+        MapNode<K, V> node = getNode(key);
+        return node == null ? null : node.value;
+    }
+
+    /**
+     * Associa o valor à chave com uma única descida, que encontra o nó existente ou cria a folha.
+     * @return O valor anterior, ou null se a chave não estava presente.
+     */
+    @Override
+    public V put(K key, V value) {
+        Objects.requireNonNull(key);
+        @SuppressWarnings("unchecked")
+        MapNode<K, V> node = (MapNode<K, V>) tree.insertNode(key);
+        return node.setValue(value);
+    }
+
+    @Override
+    public V remove(Object key) {
+        MapNode<K, V> node = getNode(key);
+        if (node == null) { return null; }
+        V value = node.value;
+        tree.remove(node);
+        return value;
+    }
+
+    /**
+     * Retorna o valor da chave se existir. Senão calcula o valor e, se não for null, o associa à chave.
+     * Quando a chave existe, o custo é o de um get.
+     */
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        Objects.requireNonNull(mappingFunction);
+
+        MapNode<K, V> node = getNode(key);
+        if (node != null && node.value != null) { return node.value; }
+
+        V value = mappingFunction.apply(key);
+        if (value == null) { return null; }
+
+        if (node != null) {
+            node.value = value;
+        } else {
+            put(key, value);
+        }
+        return value;
+    }
+
+    @Override
+    public void clear() {
+        tree.clear();
+    }
+
+    // Navegação
+
+    @Override
+    public Comparator<? super K> comparator() { return null; }
+
+    @Override
+    public Map.Entry<K, V> firstEntry() { return export(first()); }
+
+    @Override
+    public Map.Entry<K, V> lastEntry() { return export(last()); }
+
+    @Override
+    public Map.Entry<K, V> pollFirstEntry() { return poll(first()); }
+
+    @Override
+    public Map.Entry<K, V> pollLastEntry() { return poll(last()); }
+
+    @Override
+    public K firstKey() { return key(first()); }
+
+    @Override
+    public K lastKey() { return key(last()); }
+
+    @Override
+    public Map.Entry<K, V> lowerEntry(K key) { return export(lower(key)); }
+
+    @Override
+    public K lowerKey(K key) { return keyOrNull(lower(key)); }
+
+    @Override
+    public Map.Entry<K, V> floorEntry(K key) { return export(floor(key)); }
+
+    @Override
+    public K floorKey(K key) { return keyOrNull(floor(key)); }
+
+    @Override
+    public Map.Entry<K, V> ceilingEntry(K key) { return export(ceiling(key)); }
+
+    @Override
+    public K ceilingKey(K key) { return keyOrNull(ceiling(key)); }
+
+    @Override
+    public Map.Entry<K, V> higherEntry(K key) { return export(higher(key)); }
+
+    @Override
+    public K higherKey(K key) { return keyOrNull(higher(key)); }
+
+    // Visões
+
+    /**
+     * Entradas em ordem crescente. As entradas são os próprios nós, então setValue modifica o mapa.
+     */
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        if (entrySet == null) { entrySet = new EntrySet(null); }
+        return entrySet;
+    }
+
+    @Override
+    public Set<K> keySet() { return navigableKeySet(); }
+
+    @Override
+    public NavigableSet<K> navigableKeySet() {
+        if (keySet == null) { keySet = new KeySet<>(this); }
+        return keySet;
+    }
+
+    @Override
+    public NavigableSet<K> descendingKeySet() { return descendingMap().navigableKeySet(); }
+
+    @Override
+    public NavigableMap<K, V> descendingMap() {
+        if (descendingMap == null) { descendingMap = new SubMap(true, null, true, true, null, true, true); }
+        return descendingMap;
+    }
+
+    @Override
+    public NavigableMap<K, V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+        return new SubMap(false, fromKey, fromInclusive, false, toKey, toInclusive, false);
+    }
+
+    @Override
+    public NavigableMap<K, V> headMap(K toKey, boolean inclusive) {
+        return new SubMap(true, null, true, false, toKey, inclusive, false);
+    }
+
+    @Override
+    public NavigableMap<K, V> tailMap(K fromKey, boolean inclusive) {
+        return new SubMap(false, fromKey, inclusive, true, null, true, false);
+    }
+
+    @Override
+    public SortedMap<K, V> subMap(K fromKey, K toKey) { return subMap(fromKey, true, toKey, false); }
+
+    @Override
+    public SortedMap<K, V> headMap(K toKey) { return headMap(toKey, false); }
+
+    @Override
+    public SortedMap<K, V> tailMap(K fromKey) { return tailMap(fromKey, true); }
+
+    /**
+     * Visão de um intervalo de chaves do mapa, em ordem crescente ou decrescente.
+     * Os limites são sempre guardados em ordem crescente: lo é o menor e hi o maior, qualquer que seja a direção.
+     * Os métodos abs* navegam em ordem crescente dentro do intervalo e retornam null fora dele;
+     * os métodos da interface trocam os papéis quando a visão é decrescente.
+     */
+    private final class SubMap extends AbstractMap<K, V> implements NavigableMap<K, V> {
+
+        private final boolean fromStart;
+        private final K lo;
+        private final boolean loInclusive;
+        private final boolean toEnd;
+        private final K hi;
+        private final boolean hiInclusive;
+        private final boolean descending;
+
+        private EntrySet entrySet;
+        private KeySet<K> keySet;
+
+        SubMap(boolean fromStart, K lo, boolean loInclusive, boolean toEnd, K hi, boolean hiInclusive, boolean descending) {
+            if (!fromStart && !toEnd) {
+                if (lo.compareTo(hi) > 0) {
+                    throw new IllegalArgumentException("Início maior que o fim: %s, %s".formatted(lo, hi));
+                }
+            } else {
+                if (!fromStart) { Objects.requireNonNull(lo); }
+                if (!toEnd) { Objects.requireNonNull(hi); }
+            }
+            this.fromStart = fromStart;
+            this.lo = lo;
+            this.loInclusive = loInclusive;
+            this.toEnd = toEnd;
+            this.hi = hi;
+            this.hiInclusive = hiInclusive;
+            this.descending = descending;
+        }
+
+        // Limites
+
+        boolean tooLow(K key) {
+            if (fromStart) { return false; }
+            int diff = key.compareTo(lo);
+            return diff < 0 || (diff == 0 && !loInclusive);
+        }
+
+        boolean tooHigh(K key) {
+            if (toEnd) { return false; }
+            int diff = key.compareTo(hi);
+            return diff > 0 || (diff == 0 && !hiInclusive);
+        }
+
+        boolean inRange(K key) {
+            return !tooLow(key) && !tooHigh(key);
+        }
+
+        /**
+         * Se key pode ser limite de uma subvisão desta. Um limite não incluido pode coincidir com o limite desta visão.
+         */
+        private boolean inRange(K key, boolean inclusive) {
+            if (inclusive) { return inRange(key); }
+            return (fromStart || key.compareTo(lo) >= 0) && (toEnd || key.compareTo(hi) <= 0);
+        }
+
+        @SuppressWarnings("unchecked")
+        private boolean inRange(Object key) {
+            return inRange((K) Objects.requireNonNull(key));
+        }
+
+        // Navegação em ordem crescente dentro do intervalo
+
+        MapNode<K, V> absLowest() {
+            MapNode<K, V> node = fromStart ? first() : loInclusive ? ceiling(lo) : higher(lo);
+            return node == null || tooHigh(node.getKey()) ? null : node;
+        }
+
+        MapNode<K, V> absHighest() {
+            MapNode<K, V> node = toEnd ? last() : hiInclusive ? floor(hi) : lower(hi);
+            return node == null || tooLow(node.getKey()) ? null : node;
+        }
+
+        private MapNode<K, V> absCeiling(K key) {
+            if (tooLow(key)) { return absLowest(); }
+            MapNode<K, V> node = ceiling(key);
+            return node == null || tooHigh(node.getKey()) ? null : node;
+        }
+
+        private MapNode<K, V> absHigher(K key) {
+            if (tooLow(key)) { return absLowest(); }
+            MapNode<K, V> node = higher(key);
+            return node == null || tooHigh(node.getKey()) ? null : node;
+        }
+
+        private MapNode<K, V> absFloor(K key) {
+            if (tooHigh(key)) { return absHighest(); }
+            MapNode<K, V> node = floor(key);
+            return node == null || tooLow(node.getKey()) ? null : node;
+        }
+
+        private MapNode<K, V> absLower(K key) {
+            if (tooHigh(key)) { return absHighest(); }
+            MapNode<K, V> node = lower(key);
+            return node == null || tooLow(node.getKey()) ? null : node;
+        }
+
+        // Navegação na direção da visão
+
+        MapNode<K, V> lowest() { return descending ? absHighest() : absLowest(); }
+
+        private MapNode<K, V> highest() { return descending ? absLowest() : absHighest(); }
+
+        private MapNode<K, V> ceilingNode(K key) { return descending ? absFloor(key) : absCeiling(key); }
+
+        private MapNode<K, V> higherNode(K key) { return descending ? absLower(key) : absHigher(key); }
+
+        private MapNode<K, V> floorNode(K key) { return descending ? absCeiling(key) : absFloor(key); }
+
+        private MapNode<K, V> lowerNode(K key) { return descending ? absHigher(key) : absLower(key); }
+
+        // Consultas e modificações
+
+        /**
+         * Conta as chaves do intervalo percorrendo-as: O(log n + m).
+         */
+        @Override
+        public int size() {
+            return entrySet().size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return absLowest() == null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return inRange(key) && AVLMap.this.containsKey(key);
+        }
+
+        @Override
+        public V get(Object key) {
+            return inRange(key) ? AVLMap.this.get(key) : null;
+        }
+
+        /**
+         * @throws IllegalArgumentException Se a chave está fora do intervalo desta visão.
+         */
+        @Override
+        public V put(K key, V value) {
+            if (!inRange(key)) { throw new IllegalArgumentException("Chave fora do intervalo: " + key); }
+            return AVLMap.this.put(key, value);
+        }
+
+        @Override
+        public V remove(Object key) {
+            return inRange(key) ? AVLMap.this.remove(key) : null;
+        }
+
+        // Navegação
+
+        @Override
+        public Comparator<? super K> comparator() {
+            return descending ? Collections.reverseOrder() : null;
+        }
+
+        @Override
+        public Map.Entry<K, V> firstEntry() { return export(lowest()); }
+
+        @Override
+        public Map.Entry<K, V> lastEntry() { return export(highest()); }
+
+        @Override
+        public Map.Entry<K, V> pollFirstEntry() { return poll(lowest()); }
+
+        @Override
+        public Map.Entry<K, V> pollLastEntry() { return poll(highest()); }
+
+        @Override
+        public K firstKey() { return key(lowest()); }
+
+        @Override
+        public K lastKey() { return key(highest()); }
+
+        @Override
+        public Map.Entry<K, V> lowerEntry(K key) { return export(lowerNode(key)); }
+
+        @Override
+        public K lowerKey(K key) { return keyOrNull(lowerNode(key)); }
+
+        @Override
+        public Map.Entry<K, V> floorEntry(K key) { return export(floorNode(key)); }
+
+        @Override
+        public K floorKey(K key) { return keyOrNull(floorNode(key)); }
+
+        @Override
+        public Map.Entry<K, V> ceilingEntry(K key) { return export(ceilingNode(key)); }
+
+        @Override
+        public K ceilingKey(K key) { return keyOrNull(ceilingNode(key)); }
+
+        @Override
+        public Map.Entry<K, V> higherEntry(K key) { return export(higherNode(key)); }
+
+        @Override
+        public K higherKey(K key) { return keyOrNull(higherNode(key)); }
+
+        // Visões
+
+        @Override
+        public Set<Map.Entry<K, V>> entrySet() {
+            if (entrySet == null) { entrySet = new EntrySet(this); }
+            return entrySet;
+        }
+
+        @Override
+        public Set<K> keySet() { return navigableKeySet(); }
+
+        @Override
+        public NavigableSet<K> navigableKeySet() {
+            if (keySet == null) { keySet = new KeySet<>(this); }
+            return keySet;
+        }
+
+        @Override
+        public NavigableSet<K> descendingKeySet() { return descendingMap().navigableKeySet(); }
+
+        @Override
+        public NavigableMap<K, V> descendingMap() {
+            return new SubMap(fromStart, lo, loInclusive, toEnd, hi, hiInclusive, !descending);
+        }
+
+        @Override
+        public NavigableMap<K, V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+            if (!inRange(fromKey, fromInclusive)) { throw new IllegalArgumentException("Chave fora do intervalo: " + fromKey); }
+            if (!inRange(toKey, toInclusive)) { throw new IllegalArgumentException("Chave fora do intervalo: " + toKey); }
+            if (descending) {
+                return new SubMap(false, toKey, toInclusive, false, fromKey, fromInclusive, true);
+            }
+            return new SubMap(false, fromKey, fromInclusive, false, toKey, toInclusive, false);
+        }
+
+        @Override
+        public NavigableMap<K, V> headMap(K toKey, boolean inclusive) {
+            if (!inRange(toKey, inclusive)) { throw new IllegalArgumentException("Chave fora do intervalo: " + toKey); }
+            if (descending) {
+                return new SubMap(false, toKey, inclusive, toEnd, hi, hiInclusive, true);
+            }
+            return new SubMap(fromStart, lo, loInclusive, false, toKey, inclusive, false);
+        }
+
+        @Override
+        public NavigableMap<K, V> tailMap(K fromKey, boolean inclusive) {
+            if (!inRange(fromKey, inclusive)) { throw new IllegalArgumentException("Chave fora do intervalo: " + fromKey); }
+            if (descending) {
+                return new SubMap(fromStart, lo, loInclusive, false, fromKey, inclusive, true);
+            }
+            return new SubMap(false, fromKey, inclusive, toEnd, hi, hiInclusive, false);
+        }
+
+        @Override
+        public SortedMap<K, V> subMap(K fromKey, K toKey) { return subMap(fromKey, true, toKey, false); }
+
+        @Override
+        public SortedMap<K, V> headMap(K toKey) { return headMap(toKey, false); }
+
+        @Override
+        public SortedMap<K, V> tailMap(K fromKey) { return tailMap(fromKey, true); }
+    }
+
+    // Iteração
+
+    /**
+     * Entradas do mapa inteiro, se range é null, ou de uma visão.
+     */
+    private final class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+
+        private final SubMap range;
+
+        EntrySet(SubMap range) {
+            this.range = range;
+        }
+
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator() {
+            if (range == null) { return new EntryIterator(first(), false, null); }
+            return new EntryIterator(range.lowest(), range.descending, range);
+        }
+
+        @Override
+        public int size() {
+            if (range == null) { return AVLMap.this.size(); }
+            int count = 0;
+            for (Iterator<Map.Entry<K, V>> iterator = iterator(); iterator.hasNext(); iterator.next()) {
+                count++;
+            }
+            return count;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return range == null ? AVLMap.this.isEmpty() : range.isEmpty();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return find(o) != null;
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            MapNode<K, V> node = find(o);
+            if (node == null) { return false; }
+            tree.remove(node);
+            return true;
+        }
+
+        @Override
+        public void clear() {
+            if (range == null) {
+                AVLMap.this.clear();
+            } else {
+                super.clear();
+            }
+        }
+
+        /**
+         * Nó com a mesma chave e o mesmo valor da entrada o, dentro do intervalo.
+         */
+        private MapNode<K, V> find(Object o) {
+            if (!(o instanceof Map.Entry<?, ?> entry) || entry.getKey() == null) { return null; }
+            if (range != null && !range.inRange(entry.getKey())) { return null; }
+            MapNode<K, V> node = getNode(entry.getKey());
+            return node != null && Objects.equals(node.value, entry.getValue()) ? node : null;
+        }
+    }
+
+    /**
+     * Percorre os nós pelos ponteiros para o pai, como o iterador de Tree, até sair do intervalo da visão.
+     * O fim do intervalo é verificado pela chave, e não por um nó limite, porque uma remoção pode mover
+     * a chave de um nó para outro.
+     */
+    private final class EntryIterator implements Iterator<Map.Entry<K, V>> {
+
+        private MapNode<K, V> next;
+        private MapNode<K, V> lastReturned;
+        private final boolean descending;
+        private final SubMap range;
+
+        EntryIterator(MapNode<K, V> first, boolean descending, SubMap range) {
+            this.next = first;
+            this.descending = descending;
+            this.range = range;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Map.Entry<K, V> next() {
+            if (next == null) { throw new NoSuchElementException(); }
+
+            lastReturned = next;
+            next = descending ? predecessor(next) : successor(next);
+
+            if (next != null && range != null && (descending ? range.tooLow(next.getKey()) : range.tooHigh(next.getKey()))) {
+                next = null;
+            }
+            return lastReturned;
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned == null) { throw new IllegalStateException(); }
+
+            // Um nó com dois filhos recebe o conteúdo do predecessor, e é o nó do predecessor que sai da árvore.
+            // Em ordem decrescente o predecessor é o próximo, que passa a estar em lastReturned.
+            if (descending && !lastReturned.getLeft().isEmpty() && !lastReturned.getRight().isEmpty()) {
+                next = lastReturned;
+            }
+            tree.remove(lastReturned);
+            lastReturned = null;
+        }
+    }
+
+    /**
+     * Chaves de um NavigableMap, que pode ser o próprio AVLMap ou uma das suas visões.
+     */
+    private static final class KeySet<K> extends AbstractSet<K> implements NavigableSet<K> {
+
+        private final NavigableMap<K, ?> map;
+
+        KeySet(NavigableMap<K, ?> map) {
+            this.map = map;
+        }
+
+        @Override
+        public Iterator<K> iterator() {
+            Iterator<? extends Map.Entry<K, ?>> entries = map.entrySet().iterator();
+            return new Iterator<>() {
+                @Override
+                public boolean hasNext() { return entries.hasNext(); }
+
+                @Override
+                public K next() { return entries.next().getKey(); }
+
+                @Override
+                public void remove() { entries.remove(); }
+            };
+        }
+
+        @Override
+        public Iterator<K> descendingIterator() { return descendingSet().iterator(); }
+
+        @Override
+        public int size() { return map.size(); }
+
+        @Override
+        public boolean isEmpty() { return map.isEmpty(); }
+
+        @Override
+        public boolean contains(Object o) { return map.containsKey(o); }
+
+        @Override
+        public boolean remove(Object o) {
+            if (!map.containsKey(o)) { return false; }
+            map.remove(o);
+            return true;
+        }
+
+        @Override
+        public void clear() { map.clear(); }
+
+        @Override
+        public Comparator<? super K> comparator() { return map.comparator(); }
+
+        @Override
+        public K first() { return map.firstKey(); }
+
+        @Override
+        public K last() { return map.lastKey(); }
+
+        @Override
+        public K lower(K key) { return map.lowerKey(key); }
+
+        @Override
+        public K floor(K key) { return map.floorKey(key); }
+
+        @Override
+        public K ceiling(K key) { return map.ceilingKey(key); }
+
+        @Override
+        public K higher(K key) { return map.higherKey(key); }
+
+        @Override
+        public K pollFirst() {
+            Map.Entry<K, ?> entry = map.pollFirstEntry();
+            return entry == null ? null : entry.getKey();
+        }
+
+        @Override
+        public K pollLast() {
+            Map.Entry<K, ?> entry = map.pollLastEntry();
+            return entry == null ? null : entry.getKey();
+        }
+
+        @Override
+        public NavigableSet<K> descendingSet() { return new KeySet<>(map.descendingMap()); }
+
+        @Override
+        public NavigableSet<K> subSet(K fromElement, boolean fromInclusive, K toElement, boolean toInclusive) {
+            return new KeySet<>(map.subMap(fromElement, fromInclusive, toElement, toInclusive));
+        }
+
+        @Override
+        public NavigableSet<K> headSet(K toElement, boolean inclusive) {
+            return new KeySet<>(map.headMap(toElement, inclusive));
+        }
+
+        @Override
+        public NavigableSet<K> tailSet(K fromElement, boolean inclusive) {
+            return new KeySet<>(map.tailMap(fromElement, inclusive));
+        }
+
+        @Override
+        public SortedSet<K> subSet(K fromElement, K toElement) { return subSet(fromElement, true, toElement, false); }
+
+        @Override
+        public SortedSet<K> headSet(K toElement) { return headSet(toElement, false); }
+
+        @Override
+        public SortedSet<K> tailSet(K fromElement) { return tailSet(fromElement, true); }
+    }
+
+}
@@ -0,0 +1,343 @@
+package tree;
+
+import java.util.Arrays;
+
+/**
+ * Árvore binária de busca balanceada pelo algoritmo AVL, com os nós guardados em arrays paralelos.
+ * Em vez de um objeto Node por elemento, o nó i é formado por elements[i], left[i], right[i] e height[i].
+ * Os filhos são índices, então uma busca percorre poucos arrays contíguos em vez de objetos espalhados pela memória.
+ * <p>
+ * O índice 0 é o nó vazio, com altura 0, e ocupa o lugar de todos os filhos ausentes, como o nó vazio compartilhado de Node.
+ * Índices liberados por remoções formam uma lista encadeada (usando left) e são reutilizados pelas próximas inserções.
+ * @param <T> Tipo dos elementos armazenados na árvore.
+ */
+public class ArrayTree<T extends Comparable<T>> implements SearchTree<T> {
+
+    /**
+     * Índice do nó vazio.
+     */
+    private static final int EMPTY = 0;
+
+    /**
+     * Profundidade máxima de uma árvore AVL com até 2^31 elementos é menor que 1,44 * 31 + 2.
+     */
+    private static final int MAX_DEPTH = 48;
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private Object[] elements;
+    private int[] left;
+    private int[] right;
+    private int[] height;
+
+    private int root = EMPTY;
+    private int size = 0;
+
+    /**
+     * Próximo índice nunca usado.
+     */
+    private int nextIndex = 1;
+
+    /**
+     * Primeiro índice da lista de índices liberados. EMPTY se a lista está vazia.
+     */
+    private int freeList = EMPTY;
+
+    /**
+     * Índices dos nós visitados na descida da operação atual, da raiz até o nó modificado.
+     * Substitui o ponteiro para o pai na subida do balanceamento.
+     */
+    private final int[] path = new int[MAX_DEPTH];
+
+    // Construtores
+
+    public ArrayTree() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Cria a árvore com espaço para capacity elementos antes de precisar crescer os arrays.
+     */
+    public ArrayTree(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacidade negativa: " + capacity);
+        }
+        // Uma posição a mais para o nó vazio.
+        int length = capacity + 1;
+        elements = new Object[length];
+        left = new int[length];
+        right = new int[length];
+        height = new int[length];
+    }
+
+    // Getters
+
+    @Override
+    public int getSize() { return size; }
+
+    /**
+     * Altura da árvore. 0 se estiver vazia.
+     */
+    public int getHeight() { return height[root]; }
+
+    /**
+     * Número de nós que cabem nos arrays atuais.
+     */
+    int getCapacity() { return elements.length - 1; }
+
+    @SuppressWarnings("unchecked")
+    private T element(int node) { return (T) elements[node]; }
+
+    // Busca
+
+    @Override
+    public boolean contains(T element) {
+
+        int node = root;
+
+        while (node != EMPTY) {
+            int diff = element(node).compareTo(element);
+
+            if (diff > 0) {
+                node = left[node];
+            } else if (diff < 0) {
+                node = right[node];
+            } else {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    // Inserção
+
+    @Override
+    public boolean insert(T element) {
+
+        int depth = 0;
+        int node = root;
+        int diff = 0;
+
+        while (node != EMPTY) {
+            diff = element(node).compareTo(element);
+
+            // A árvore não aceita duplicados.
+            if (diff == 0) { return false; }
+
+            path[depth++] = node;
+            node = diff > 0 ? left[node] : right[node];
+        }
+
+        int leaf = allocate(element);
+
+        if (depth == 0) {
+            root = leaf;
+        } else if (diff > 0) {
+            left[path[depth - 1]] = leaf;
+        } else {
+            right[path[depth - 1]] = leaf;
+        }
+
+        size += 1;
+
+        balance(depth - 1);
+
+        return true;
+    }
+
+    // Remoção
+
+    @Override
+    public boolean remove(T element) {
+
+        int depth = 0;
+        int node = root;
+
+        while (node != EMPTY) {
+            int diff = element(node).compareTo(element);
+
+            if (diff == 0) { break; }
+
+            path[depth++] = node;
+            node = diff > 0 ? left[node] : right[node];
+        }
+
+        if (node == EMPTY) { return false; }
+
+        if (left[node] != EMPTY && right[node] != EMPTY) {
+            // Tem dois filhos: o elemento do predecessor toma o lugar do removido e o predecessor é removido.
+            int target = node;
+            path[depth++] = node;
+            node = left[node];
+            while (right[node] != EMPTY) {
+                path[depth++] = node;
+                node = right[node];
+            }
+            elements[target] = elements[node];
+        }
+
+        // Agora node tem no máximo um filho, que toma o seu lugar.
+        int child = left[node] != EMPTY ? left[node] : right[node];
+        replaceChild(depth - 1, node, child);
+
+        release(node);
+        size -= 1;
+
+        balance(depth - 1);
+
+        return true;
+    }
+
+    // Balanceamento
+
+    /**
+     * Sobe pelo caminho da descida balanceando cada nó, enquanto a altura das subárvores muda.
+     * Mesmo algoritmo de Tree.balance.
+     * @param depth Posição em path do nó mais profundo que foi modificado. -1 se foi a raiz.
+     */
+    private void balance(int depth) {
+
+        for (int i = depth; i >= 0; i--) {
+
+            int node = path[i];
+            int oldHeight = height[node];
+
+            updateHeight(node);
+
+            int balanceFactor = height[right[node]] - height[left[node]];
+            int subtreeRoot = node;
+
+            if (balanceFactor < -1) {
+                subtreeRoot = rightRotation(node);
+            } else if (balanceFactor > 1) {
+                subtreeRoot = leftRotation(node);
+            }
+
+            if (subtreeRoot != node) {
+                replaceChild(i - 1, node, subtreeRoot);
+            }
+
+            if (height[subtreeRoot] == oldHeight) { return; }
+        }
+    }
+
+    // Rotações
+
+    /**
+     * O filho à direita se torna a nova raiz da subárvore.
+     * @return Índice da nova raiz da subárvore.
+     */
+    private int leftRotation(int a) {
+
+        // Rotação dupla se o balanço do filho à direita é menor do que 0.
+        int c = right[a];
+        if (height[right[c]] - height[left[c]] < 0) {
+            right[a] = rightRotation(c);
+        }
+
+        int b = right[a];
+        right[a] = left[b];
+        left[b] = a;
+
+        updateHeight(a);
+        updateHeight(b);
+
+        return b;
+    }
+
+    /**
+     * O filho à esquerda se torna a nova raiz da subárvore.
+     * @return Índice da nova raiz da subárvore.
+     */
+    private int rightRotation(int c) {
+
+        // Rotação dupla se o balanço do filho à esquerda é maior do que 0.
+        int a = left[c];
+        if (height[right[a]] - height[left[a]] > 0) {
+            left[c] = leftRotation(a);
+        }
+
+        int b = left[c];
+        left[c] = right[b];
+        right[b] = c;
+
+        updateHeight(c);
+        updateHeight(b);
+
+        return b;
+    }
+
+    private void updateHeight(int node) {
+        height[node] = Math.max(height[left[node]], height[right[node]]) + 1;
+    }
+
+    /**
+     * Coloca newChild no lugar de oldChild no pai, que está na posição parentDepth de path.
+     * Se parentDepth for -1, oldChild era a raiz.
+     */
+    private void replaceChild(int parentDepth, int oldChild, int newChild) {
+
+        if (parentDepth < 0) {
+            root = newChild;
+            return;
+        }
+
+        int parent = path[parentDepth];
+        if (left[parent] == oldChild) {
+            left[parent] = newChild;
+        } else {
+            right[parent] = newChild;
+        }
+    }
+
+    // Gerenciamento dos índices
+
+    /**
+     * Reserva um índice para uma nova folha, reutilizando um índice liberado se houver.
+     */
+    private int allocate(T element) {
+
+        int node;
+
+        if (freeList != EMPTY) {
+            node = freeList;
+            freeList = left[node];
+        } else {
+            if (nextIndex == elements.length) {
+                grow();
+            }
+            node = nextIndex++;
+        }
+
+        elements[node] = element;
+        left[node] = EMPTY;
+        right[node] = EMPTY;
+        height[node] = 1;
+
+        return node;
+    }
+
+    /**
+     * Devolve o índice à lista de índices livres e solta a referência ao elemento.
+     */
+    private void release(int node) {
+        elements[node] = null;
+        height[node] = 0;
+        right[node] = EMPTY;
+        left[node] = freeList;
+        freeList = node;
+    }
+
+    /**
+     * Aumenta a capacidade dos arrays em 50%.
+     */
+    private void grow() {
+        int length = elements.length + Math.max(elements.length >> 1, DEFAULT_CAPACITY);
+        elements = Arrays.copyOf(elements, length);
+        left = Arrays.copyOf(left, length);
+        right = Arrays.copyOf(right, length);
+        height = Arrays.copyOf(height, length);
+    }
+
+}
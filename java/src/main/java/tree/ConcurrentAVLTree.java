@@ -0,0 +1,769 @@
+package tree;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Árvore binária de busca balanceada pelo algoritmo AVL que pode ser usada por várias threads ao mesmo tempo.
+ * Segue o algoritmo de Bronson, Casper, Chafi e Olukotun, "A Practical Concurrent Binary Search Tree" (PPoPP 2010).
+ * <p>
+ * Buscas não usam locks. Cada nó tem uma versão que muda sempre que a sua subárvore perde elementos,
+ * numa rotação ou quando o nó é desligado da árvore. A busca desce lendo a versão de cada nó antes de seguir
+ * para o filho e, se a versão mudou enquanto ela passava, volta e tenta de novo a partir do nó anterior.
+ * <p>
+ * Inserções e remoções usam locks apenas nos nós que modificam, sempre do pai para o filho, para evitar deadlocks.
+ * Remover um nó com dois filhos só o marca como nó de roteamento (sem elemento); ele é desligado depois,
+ * quando passar a ter no máximo um filho. O balanceamento é feito após a modificação, subindo pela árvore
+ * com os mesmos casos de rotação simples e dupla de Tree.leftRotation e Tree.rightRotation.
+ * @param <T> Tipo dos elementos armazenados na árvore.
+ */
+public class ConcurrentAVLTree<T extends Comparable<T>> implements SearchTree<T> {
+
+    /**
+     * Valor dos nós que contêm um elemento. Nós de roteamento têm valor null.
+     */
+    private static final Object PRESENT = new Object();
+
+    /**
+     * Resultado interno que indica que a operação precisa ser repetida a partir do nó anterior.
+     */
+    private static final Object RETRY = new Object();
+
+    // Bits da versão.
+    private static final long UNLINKED = 1L;
+    private static final long SHRINKING = 2L;
+    private static final long VERSION_INCREMENT = 4L;
+
+    /**
+     * Número de voltas esperando uma rotação terminar antes de bloquear no lock do nó.
+     */
+    private static final int SPIN_COUNT = 100;
+
+    // Resultados de nodeCondition além da nova altura.
+    private static final int UNLINK_REQUIRED = -1;
+    private static final int REBALANCE_REQUIRED = -2;
+    private static final int NOTHING_REQUIRED = -3;
+
+    private static final int LEFT = -1;
+    private static final int RIGHT = 1;
+
+    /**
+     * Nó de um elemento, ou de roteamento se value é null. Todos os campos mutáveis são volatile
+     * porque são lidos sem lock pelas buscas. Só são escritos com o lock do próprio nó.
+     */
+    private static final class ConcurrentNode<T> {
+        final T element;
+        volatile int height;
+        volatile long version;
+        volatile Object value;
+        volatile ConcurrentNode<T> parent;
+        volatile ConcurrentNode<T> left;
+        volatile ConcurrentNode<T> right;
+
+        ConcurrentNode(T element, int height, Object value, ConcurrentNode<T> parent) {
+            this.element = element;
+            this.height = height;
+            this.value = value;
+            this.parent = parent;
+        }
+
+        ConcurrentNode<T> child(int direction) {
+            return direction < 0 ? left : right;
+        }
+
+        void setChild(int direction, ConcurrentNode<T> child) {
+            if (direction < 0) {
+                left = child;
+            } else {
+                right = child;
+            }
+        }
+
+        /**
+         * Espera uma rotação que está encolhendo este nó terminar.
+         */
+        void waitUntilNotChanging() {
+            long version = this.version;
+            if ((version & SHRINKING) == 0) { return; }
+
+            for (int i = 0; i < SPIN_COUNT; i++) {
+                if (this.version != version) { return; }
+                Thread.onSpinWait();
+            }
+            // A rotação acontece com o lock deste nó; esperar pelo lock é esperar o fim da rotação.
+            synchronized (this) {
+                assert this.version != version;
+            }
+        }
+    }
+
+    /**
+     * Nó falso acima da raiz. A raiz é sempre o seu filho à direita, então nunca é preciso trocar o campo da raiz.
+     */
+    private final ConcurrentNode<T> rootHolder = new ConcurrentNode<>(null, 0, null, null);
+
+    private final LongAdder size = new LongAdder();
+
+    // Getters
+
+    /**
+     * Número de elementos. Com modificações concorrentes é apenas uma aproximação.
+     */
+    @Override
+    public int getSize() { return size.intValue(); }
+
+    private static int height(ConcurrentNode<?> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static boolean isShrinkingOrUnlinked(long version) {
+        return (version & (SHRINKING | UNLINKED)) != 0;
+    }
+
+    private static boolean isUnlinked(long version) {
+        return (version & UNLINKED) != 0;
+    }
+
+    // Busca
+
+    /**
+     * Verifica se elemento está presente na árvore, sem usar locks.
+     */
+    @Override
+    public boolean contains(T element) {
+
+        while (true) {
+            ConcurrentNode<T> right = rootHolder.right;
+            if (right == null) { return false; }
+
+            int diff = element.compareTo(right.element);
+            if (diff == 0) { return right.value != null; }
+
+            long version = right.version;
+            if (isShrinkingOrUnlinked(version)) {
+                right.waitUntilNotChanging();
+            } else if (right == rootHolder.right) {
+                Object result = attemptGet(element, right, diff, version);
+                if (result != RETRY) { return result != null; }
+            }
+        }
+    }
+
+    /**
+     * Procura o elemento abaixo de node, que tinha a versão nodeVersion quando a busca passou por ele.
+     * @return O valor do nó encontrado, null se não encontrado, ou RETRY se node mudou durante a busca.
+     */
+    private Object attemptGet(T element, ConcurrentNode<T> node, int direction, long nodeVersion) {
+
+        while (true) {
+            ConcurrentNode<T> child = node.child(direction);
+
+            if (child == null) {
+                // O elemento não está abaixo de node, se node não perdeu elementos enquanto isso.
+                if (node.version != nodeVersion) { return RETRY; }
+                return null;
+            }
+
+            int diff = element.compareTo(child.element);
+            if (diff == 0) { return child.value; }
+
+            long childVersion = child.version;
+            if (isShrinkingOrUnlinked(childVersion)) {
+                child.waitUntilNotChanging();
+                if (node.version != nodeVersion) { return RETRY; }
+            } else if (child != node.child(direction)) {
+                if (node.version != nodeVersion) { return RETRY; }
+            } else {
+                // child ainda é filho de node, e node não mudou: a busca pode continuar a partir de child.
+                if (node.version != nodeVersion) { return RETRY; }
+                Object result = attemptGet(element, child, diff, childVersion);
+                if (result != RETRY) { return result; }
+            }
+        }
+    }
+
+    // Inserção e remoção
+
+    @Override
+    public boolean insert(T element) {
+        if (update(element, PRESENT) == null) {
+            size.increment();
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean remove(T element) {
+        if (update(element, null) != null) {
+            size.decrement();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Coloca value no nó do elemento, criando o nó se necessário: PRESENT insere, null remove.
+     * @return O valor anterior: null se o elemento não estava na árvore.
+     */
+    private Object update(T element, Object value) {
+
+        while (true) {
+            ConcurrentNode<T> right = rootHolder.right;
+
+            if (right == null) {
+                // Árvore vazia.
+                if (value == null) { return null; }
+                synchronized (rootHolder) {
+                    if (rootHolder.right == null) {
+                        rootHolder.right = new ConcurrentNode<>(element, 1, value, rootHolder);
+                        return null;
+                    }
+                }
+            } else {
+                long version = right.version;
+                if (isShrinkingOrUnlinked(version)) {
+                    right.waitUntilNotChanging();
+                } else if (right == rootHolder.right) {
+                    Object result = attemptUpdate(element, value, rootHolder, right, version);
+                    if (result != RETRY) { return result; }
+                }
+            }
+        }
+    }
+
+    /**
+     * Desce a partir de node até o nó do elemento ou até a posição vazia onde ele deveria estar.
+     */
+    private Object attemptUpdate(T element, Object value, ConcurrentNode<T> parent, ConcurrentNode<T> node, long nodeVersion) {
+
+        int diff = element.compareTo(node.element);
+        if (diff == 0) { return attemptNodeUpdate(value, parent, node); }
+
+        int direction = diff < 0 ? LEFT : RIGHT;
+
+        while (true) {
+            ConcurrentNode<T> child = node.child(direction);
+
+            if (node.version != nodeVersion) { return RETRY; }
+
+            if (child == null) {
+                // O elemento não está na árvore.
+                if (value == null) { return null; }
+
+                ConcurrentNode<T> damaged;
+                synchronized (node) {
+                    if (node.version != nodeVersion) { return RETRY; }
+                    if (node.child(direction) != null) {
+                        // Outra thread inseriu aqui primeiro; desce de novo.
+                        continue;
+                    }
+                    node.setChild(direction, new ConcurrentNode<>(element, 1, value, node));
+                    damaged = fixHeight(node);
+                }
+                fixHeightAndRebalance(damaged);
+                return null;
+            }
+
+            long childVersion = child.version;
+            if (isShrinkingOrUnlinked(childVersion)) {
+                child.waitUntilNotChanging();
+            } else if (child == node.child(direction)) {
+                if (node.version != nodeVersion) { return RETRY; }
+                Object result = attemptUpdate(element, value, node, child, childVersion);
+                if (result != RETRY) { return result; }
+            }
+        }
+    }
+
+    /**
+     * Modifica o valor do nó que contém o elemento. Se o elemento é removido e o nó tem no máximo um filho,
+     * o nó é desligado da árvore; senão continua como nó de roteamento.
+     */
+    private Object attemptNodeUpdate(Object value, ConcurrentNode<T> parent, ConcurrentNode<T> node) {
+
+        if (value == null && node.value == null) {
+            // Remoção de um elemento que já não está na árvore.
+            return null;
+        }
+
+        if (value == null && (node.left == null || node.right == null)) {
+
+            Object previous;
+            ConcurrentNode<T> damaged;
+
+            synchronized (parent) {
+                if (isUnlinked(parent.version) || node.parent != parent) { return RETRY; }
+
+                synchronized (node) {
+                    previous = node.value;
+                    if (previous == null) { return null; }
+                    if (!attemptUnlink(parent, node)) { return RETRY; }
+                }
+
+                damaged = fixHeight(parent);
+            }
+
+            fixHeightAndRebalance(damaged);
+            return previous;
+        }
+
+        synchronized (node) {
+            if (isUnlinked(node.version)) { return RETRY; }
+
+            // Um filho foi removido enquanto isso: agora é possível desligar o nó.
+            if (value == null && (node.left == null || node.right == null)) { return RETRY; }
+
+            Object previous = node.value;
+            node.value = value;
+            return previous;
+        }
+    }
+
+    /**
+     * Desliga node da árvore, colocando o seu único filho no seu lugar. Exige os locks de parent e node.
+     * @return False se node não é mais filho de parent ou tem dois filhos.
+     */
+    private boolean attemptUnlink(ConcurrentNode<T> parent, ConcurrentNode<T> node) {
+
+        ConcurrentNode<T> parentLeft = parent.left;
+        ConcurrentNode<T> parentRight = parent.right;
+        if (parentLeft != node && parentRight != node) { return false; }
+
+        ConcurrentNode<T> left = node.left;
+        ConcurrentNode<T> right = node.right;
+        if (left != null && right != null) { return false; }
+
+        ConcurrentNode<T> splice = left != null ? left : right;
+
+        if (parentLeft == node) {
+            parent.left = splice;
+        } else {
+            parent.right = splice;
+        }
+        if (splice != null) { splice.parent = parent; }
+
+        node.version = UNLINKED;
+        node.value = null;
+
+        return true;
+    }
+
+    // Balanceamento
+
+    /**
+     * O que precisa ser feito em node: UNLINK_REQUIRED, REBALANCE_REQUIRED, NOTHING_REQUIRED ou a nova altura.
+     */
+    private int nodeCondition(ConcurrentNode<T> node) {
+
+        ConcurrentNode<T> left = node.left;
+        ConcurrentNode<T> right = node.right;
+
+        if ((left == null || right == null) && node.value == null) { return UNLINK_REQUIRED; }
+
+        int height = node.height;
+        int leftHeight = height(left);
+        int rightHeight = height(right);
+
+        int newHeight = 1 + Math.max(leftHeight, rightHeight);
+        int balanceFactor = rightHeight - leftHeight;
+
+        if (balanceFactor < -1 || balanceFactor > 1) { return REBALANCE_REQUIRED; }
+
+        return height != newHeight ? newHeight : NOTHING_REQUIRED;
+    }
+
+    /**
+     * Atualiza a altura de node. Exige o lock de node.
+     * @return O próximo nó que precisa ser verificado, ou null se nada mais precisa ser feito.
+     */
+    private ConcurrentNode<T> fixHeight(ConcurrentNode<T> node) {
+
+        int condition = nodeCondition(node);
+
+        switch (condition) {
+            case REBALANCE_REQUIRED:
+            case UNLINK_REQUIRED:
+                return node;
+            case NOTHING_REQUIRED:
+                return null;
+            default:
+                node.height = condition;
+                return node.parent;
+        }
+    }
+
+    /**
+     * Sobe a partir de node corrigindo alturas, desligando nós de roteamento e rotacionando, até nada mais mudar.
+     */
+    private void fixHeightAndRebalance(ConcurrentNode<T> node) {
+
+        while (node != null && node != rootHolder) {
+
+            if (isUnlinked(node.version)) { return; }
+
+            int condition = nodeCondition(node);
+
+            if (condition != UNLINK_REQUIRED && condition != REBALANCE_REQUIRED) {
+                // Mesmo que a altura pareça correta, a verificação é refeita com o lock: outra thread pode estar
+                // gravando em node uma altura calculada antes da mudança num filho, e a subida não pode parar aqui.
+                synchronized (node) {
+                    node = fixHeight(node);
+                }
+            } else {
+                ConcurrentNode<T> parent = node.parent;
+                synchronized (parent) {
+                    if (!isUnlinked(parent.version) && node.parent == parent) {
+                        synchronized (node) {
+                            node = rebalance(parent, node);
+                        }
+                    }
+                    // Senão o pai mudou; tenta de novo com o mesmo nó.
+                }
+            }
+        }
+    }
+
+    /**
+     * Desliga, rotaciona ou corrige a altura de node. Exige os locks de parent e node.
+     * @return O próximo nó que precisa ser verificado, ou null.
+     */
+    private ConcurrentNode<T> rebalance(ConcurrentNode<T> parent, ConcurrentNode<T> node) {
+
+        ConcurrentNode<T> left = node.left;
+        ConcurrentNode<T> right = node.right;
+
+        if ((left == null || right == null) && node.value == null) {
+            if (attemptUnlink(parent, node)) {
+                return fixHeight(parent);
+            }
+            return node;
+        }
+
+        int height = node.height;
+        int leftHeight = height(left);
+        int rightHeight = height(right);
+        int newHeight = 1 + Math.max(leftHeight, rightHeight);
+        int balanceFactor = rightHeight - leftHeight;
+
+        if (balanceFactor < -1) {
+            return rebalanceToRight(parent, node, left, rightHeight);
+        } else if (balanceFactor > 1) {
+            return rebalanceToLeft(parent, node, right, leftHeight);
+        } else if (newHeight != height) {
+            node.height = newHeight;
+            return fixHeight(parent);
+        }
+        return null;
+    }
+
+    /**
+     * Subárvore esquerda mais alta: rotação à direita simples ou dupla, como em Tree.rightRotation.
+     */
+    private ConcurrentNode<T> rebalanceToRight(ConcurrentNode<T> parent, ConcurrentNode<T> node,
+                                               ConcurrentNode<T> left, int rightHeight) {
+        synchronized (left) {
+            int leftHeight = left.height;
+            if (leftHeight - rightHeight <= 1) {
+                // Outra thread já mudou as alturas; verifica node de novo.
+                return node;
+            }
+
+            ConcurrentNode<T> leftRight = left.right;
+            int leftLeftHeight = height(left.left);
+            int leftRightHeight = height(leftRight);
+
+            if (leftLeftHeight >= leftRightHeight) {
+                return rotateRight(parent, node, left, rightHeight, leftLeftHeight, leftRight, leftRightHeight);
+            }
+
+            synchronized (leftRight) {
+                leftRightHeight = leftRight.height;
+                if (leftLeftHeight >= leftRightHeight) {
+                    return rotateRight(parent, node, left, rightHeight, leftLeftHeight, leftRight, leftRightHeight);
+                }
+
+                int leftRightLeftHeight = height(leftRight.left);
+                int balanceFactor = leftLeftHeight - leftRightLeftHeight;
+                if (balanceFactor >= -1 && balanceFactor <= 1
+                        && !((leftLeftHeight == 0 || leftRightLeftHeight == 0) && left.value == null)) {
+                    return rotateRightOverLeft(parent, node, left, rightHeight, leftLeftHeight, leftRight, leftRightLeftHeight);
+                }
+            }
+
+            // A rotação dupla deixaria left desbalanceado: primeiro balanceia left.
+            return rebalanceToLeft(node, left, leftRight, leftLeftHeight);
+        }
+    }
+
+    /**
+     * Subárvore direita mais alta: rotação à esquerda simples ou dupla, como em Tree.leftRotation.
+     */
+    private ConcurrentNode<T> rebalanceToLeft(ConcurrentNode<T> parent, ConcurrentNode<T> node,
+                                              ConcurrentNode<T> right, int leftHeight) {
+        synchronized (right) {
+            int rightHeight = right.height;
+            if (leftHeight - rightHeight >= -1) {
+                return node;
+            }
+
+            ConcurrentNode<T> rightLeft = right.left;
+            int rightLeftHeight = height(rightLeft);
+            int rightRightHeight = height(right.right);
+
+            if (rightRightHeight >= rightLeftHeight) {
+                return rotateLeft(parent, node, leftHeight, right, rightLeft, rightLeftHeight, rightRightHeight);
+            }
+
+            synchronized (rightLeft) {
+                rightLeftHeight = rightLeft.height;
+                if (rightRightHeight >= rightLeftHeight) {
+                    return rotateLeft(parent, node, leftHeight, right, rightLeft, rightLeftHeight, rightRightHeight);
+                }
+
+                int rightLeftRightHeight = height(rightLeft.right);
+                int balanceFactor = rightRightHeight - rightLeftRightHeight;
+                if (balanceFactor >= -1 && balanceFactor <= 1
+                        && !((rightRightHeight == 0 || rightLeftRightHeight == 0) && right.value == null)) {
+                    return rotateLeftOverRight(parent, node, leftHeight, right, rightLeft, rightRightHeight, rightLeftRightHeight);
+                }
+            }
+
+            return rebalanceToRight(node, right, rightLeft, rightRightHeight);
+        }
+    }
+
+    /**
+     * Rotação à direita simples. node perde elementos, então sua versão muda durante a rotação.
+     * Exige os locks de parent, node e left.
+     */
+    private ConcurrentNode<T> rotateRight(ConcurrentNode<T> parent, ConcurrentNode<T> node, ConcurrentNode<T> left,
+                                         int rightHeight, int leftLeftHeight,
+                                         ConcurrentNode<T> leftRight, int leftRightHeight) {
+
+        long nodeVersion = node.version;
+        ConcurrentNode<T> parentLeft = parent.left;
+
+        node.version = nodeVersion | SHRINKING;
+
+        node.left = leftRight;
+        if (leftRight != null) { leftRight.parent = node; }
+
+        left.right = node;
+        node.parent = left;
+
+        if (parentLeft == node) {
+            parent.left = left;
+        } else {
+            parent.right = left;
+        }
+        left.parent = parent;
+
+        int nodeHeight = 1 + Math.max(leftRightHeight, rightHeight);
+        node.height = nodeHeight;
+        left.height = 1 + Math.max(leftLeftHeight, nodeHeight);
+
+        node.version = nodeVersion + VERSION_INCREMENT;
+
+        // Verifica se algum dos nós envolvidos ainda precisa de atenção.
+        int nodeBalance = rightHeight - leftRightHeight;
+        if (nodeBalance < -1 || nodeBalance > 1) { return node; }
+        if ((leftRight == null || rightHeight == 0) && node.value == null) { return node; }
+
+        int leftBalance = nodeHeight - leftLeftHeight;
+        if (leftBalance < -1 || leftBalance > 1) { return left; }
+        if (leftLeftHeight == 0 && left.value == null) { return left; }
+
+        return fixHeight(parent);
+    }
+
+    /**
+     * Rotação à esquerda simples. Exige os locks de parent, node e right.
+     */
+    private ConcurrentNode<T> rotateLeft(ConcurrentNode<T> parent, ConcurrentNode<T> node, int leftHeight,
+                                        ConcurrentNode<T> right, ConcurrentNode<T> rightLeft,
+                                        int rightLeftHeight, int rightRightHeight) {
+
+        long nodeVersion = node.version;
+        ConcurrentNode<T> parentLeft = parent.left;
+
+        node.version = nodeVersion | SHRINKING;
+
+        node.right = rightLeft;
+        if (rightLeft != null) { rightLeft.parent = node; }
+
+        right.left = node;
+        node.parent = right;
+
+        if (parentLeft == node) {
+            parent.left = right;
+        } else {
+            parent.right = right;
+        }
+        right.parent = parent;
+
+        int nodeHeight = 1 + Math.max(leftHeight, rightLeftHeight);
+        node.height = nodeHeight;
+        right.height = 1 + Math.max(nodeHeight, rightRightHeight);
+
+        node.version = nodeVersion + VERSION_INCREMENT;
+
+        int nodeBalance = rightLeftHeight - leftHeight;
+        if (nodeBalance < -1 || nodeBalance > 1) { return node; }
+        if ((rightLeft == null || leftHeight == 0) && node.value == null) { return node; }
+
+        int rightBalance = rightRightHeight - nodeHeight;
+        if (rightBalance < -1 || rightBalance > 1) { return right; }
+        if (rightRightHeight == 0 && right.value == null) { return right; }
+
+        return fixHeight(parent);
+    }
+
+    /**
+     * Rotação dupla: left à esquerda e depois node à direita. node e left perdem elementos.
+     * Exige os locks de parent, node, left e leftRight.
+     */
+    private ConcurrentNode<T> rotateRightOverLeft(ConcurrentNode<T> parent, ConcurrentNode<T> node, ConcurrentNode<T> left,
+                                                 int rightHeight, int leftLeftHeight,
+                                                 ConcurrentNode<T> leftRight, int leftRightLeftHeight) {
+
+        long nodeVersion = node.version;
+        long leftVersion = left.version;
+        ConcurrentNode<T> parentLeft = parent.left;
+        ConcurrentNode<T> leftRightLeft = leftRight.left;
+        ConcurrentNode<T> leftRightRight = leftRight.right;
+        int leftRightRightHeight = height(leftRightRight);
+
+        node.version = nodeVersion | SHRINKING;
+        left.version = leftVersion | SHRINKING;
+
+        node.left = leftRightRight;
+        if (leftRightRight != null) { leftRightRight.parent = node; }
+
+        left.right = leftRightLeft;
+        if (leftRightLeft != null) { leftRightLeft.parent = left; }
+
+        leftRight.left = left;
+        left.parent = leftRight;
+        leftRight.right = node;
+        node.parent = leftRight;
+
+        if (parentLeft == node) {
+            parent.left = leftRight;
+        } else {
+            parent.right = leftRight;
+        }
+        leftRight.parent = parent;
+
+        int nodeHeight = 1 + Math.max(leftRightRightHeight, rightHeight);
+        node.height = nodeHeight;
+        int leftNewHeight = 1 + Math.max(leftLeftHeight, leftRightLeftHeight);
+        left.height = leftNewHeight;
+        leftRight.height = 1 + Math.max(leftNewHeight, nodeHeight);
+
+        node.version = nodeVersion + VERSION_INCREMENT;
+        left.version = leftVersion + VERSION_INCREMENT;
+
+        int nodeBalance = rightHeight - leftRightRightHeight;
+        if (nodeBalance < -1 || nodeBalance > 1) { return node; }
+        if ((leftRightRight == null || rightHeight == 0) && node.value == null) { return node; }
+
+        int leftRightBalance = nodeHeight - leftNewHeight;
+        if (leftRightBalance < -1 || leftRightBalance > 1) { return leftRight; }
+
+        return fixHeight(parent);
+    }
+
+    /**
+     * Rotação dupla: right à direita e depois node à esquerda. node e right perdem elementos.
+     * Exige os locks de parent, node, right e rightLeft.
+     */
+    private ConcurrentNode<T> rotateLeftOverRight(ConcurrentNode<T> parent, ConcurrentNode<T> node, int leftHeight,
+                                                 ConcurrentNode<T> right, ConcurrentNode<T> rightLeft,
+                                                 int rightRightHeight, int rightLeftRightHeight) {
+
+        long nodeVersion = node.version;
+        long rightVersion = right.version;
+        ConcurrentNode<T> parentLeft = parent.left;
+        ConcurrentNode<T> rightLeftLeft = rightLeft.left;
+        ConcurrentNode<T> rightLeftRight = rightLeft.right;
+        int rightLeftLeftHeight = height(rightLeftLeft);
+
+        node.version = nodeVersion | SHRINKING;
+        right.version = rightVersion | SHRINKING;
+
+        node.right = rightLeftLeft;
+        if (rightLeftLeft != null) { rightLeftLeft.parent = node; }
+
+        right.left = rightLeftRight;
+        if (rightLeftRight != null) { rightLeftRight.parent = right; }
+
+        rightLeft.right = right;
+        right.parent = rightLeft;
+        rightLeft.left = node;
+        node.parent = rightLeft;
+
+        if (parentLeft == node) {
+            parent.left = rightLeft;
+        } else {
+            parent.right = rightLeft;
+        }
+        rightLeft.parent = parent;
+
+        int nodeHeight = 1 + Math.max(leftHeight, rightLeftLeftHeight);
+        node.height = nodeHeight;
+        int rightNewHeight = 1 + Math.max(rightLeftRightHeight, rightRightHeight);
+        right.height = rightNewHeight;
+        rightLeft.height = 1 + Math.max(nodeHeight, rightNewHeight);
+
+        node.version = nodeVersion + VERSION_INCREMENT;
+        right.version = rightVersion + VERSION_INCREMENT;
+
+        int nodeBalance = rightLeftLeftHeight - leftHeight;
+        if (nodeBalance < -1 || nodeBalance > 1) { return node; }
+        if ((rightLeftLeft == null || leftHeight == 0) && node.value == null) { return node; }
+
+        int rightLeftBalance = rightNewHeight - nodeHeight;
+        if (rightLeftBalance < -1 || rightLeftBalance > 1) { return rightLeft; }
+
+        return fixHeight(parent);
+    }
+
+    // Verificação
+
+    /**
+     * Verifica a estrutura da árvore: ordem dos elementos, ponteiros para o pai, alturas e balanço.
+     * Só pode ser usado quando nenhuma outra thread está modificando a árvore.
+     * @return Número de elementos encontrados, sem contar nós de roteamento.
+     * @throws IllegalStateException Se alguma regra não é respeitada.
+     */
+    int checkStructure() {
+        int[] count = new int[1];
+        checkStructure(rootHolder.right, rootHolder, null, null, count);
+        return count[0];
+    }
+
+    private int checkStructure(ConcurrentNode<T> node, ConcurrentNode<T> parent, T min, T max, int[] count) {
+
+        if (node == null) { return 0; }
+
+        if (node.parent != parent) { throw new IllegalStateException("Pai incorreto em " + node.element); }
+        if (isShrinkingOrUnlinked(node.version)) { throw new IllegalStateException("Versão inválida em " + node.element); }
+        if ((min != null && node.element.compareTo(min) <= 0) || (max != null && node.element.compareTo(max) >= 0)) {
+            throw new IllegalStateException("Fora de ordem: " + node.element);
+        }
+
+        int leftHeight = checkStructure(node.left, node, min, node.element, count);
+        int rightHeight = checkStructure(node.right, node, node.element, max, count);
+
+        if (node.height != 1 + Math.max(leftHeight, rightHeight)) {
+            throw new IllegalStateException("Altura incorreta em " + node.element);
+        }
+        if (Math.abs(rightHeight - leftHeight) > 1) {
+            throw new IllegalStateException("Desbalanceado em " + node.element);
+        }
+        if (node.value != null) { count[0]++; }
+
+        return node.height;
+    }
+
+}
@@ -0,0 +1,159 @@
+package tree;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+/**
+ * Tree que pode ser usada por várias threads ao mesmo tempo, protegida por um StampedLock.
+ * Indicada para uso com muito mais buscas do que modificações.
+ * <p>
+ * contains, getSize e iterator primeiro fazem uma leitura otimista: leem a árvore sem travar nada
+ * e depois verificam se alguma modificação aconteceu enquanto isso. Só se houve modificação a leitura
+ * é repetida com o lock de leitura. Assim as buscas não escrevem em nenhuma memória compartilhada
+ * e não disputam entre si, ao contrário de um lock de leitura, que atualiza um contador a cada aquisição.
+ * insert e remove usam o lock de escrita.
+ * <p>
+ * Para uma árvore em que as modificações também acontecem em paralelo, ver ConcurrentAVLTree.
+ * @param <T> Tipo dos elementos armazenados na árvore.
+ */
+public class ConcurrentTree<T extends Comparable<T>> implements SearchTree<T>, Iterable<T> {
+
+    private final Tree<T> tree;
+    private final StampedLock lock = new StampedLock();
+
+    /**
+     * Cria uma árvore vazia.
+     */
+    public ConcurrentTree() {
+        this(new Tree<>());
+    }
+
+    /**
+     * Protege uma árvore existente. A árvore não pode mais ser usada diretamente depois disso.
+     */
+    public ConcurrentTree(Tree<T> tree) {
+        this.tree = tree;
+        // Um tamanho ainda não contado depois de um split seria calculado e gravado por getSize, numa leitura otimista.
+        tree.getSize();
+    }
+
+    // Leituras
+
+    @Override
+    public int getSize() {
+
+        long stamp = lock.tryOptimisticRead();
+        int size = tree.getSize();
+        if (lock.validate(stamp)) { return size; }
+
+        stamp = lock.readLock();
+        try {
+            return tree.getSize();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public boolean contains(T element) {
+
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                boolean found = tree.containsOptimistic(element);
+                if (lock.validate(stamp)) { return found; }
+            } catch (RuntimeException e) {
+                // A árvore foi vista no meio de uma modificação; a busca é repetida com o lock.
+            }
+        }
+
+        stamp = lock.readLock();
+        try {
+            return tree.contains(element);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Iterador sobre uma cópia dos elementos, feita com uma leitura otimista ou com o lock de leitura.
+     * Modificações feitas depois da cópia não aparecem na iteração.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return Collections.unmodifiableList(copy()).iterator();
+    }
+
+    /**
+     * Executa a ação em ordem crescente com o lock de leitura, sem copiar os elementos.
+     * As modificações esperam até o fim da iteração, então a ação não pode modificar esta árvore.
+     */
+    @Override
+    public void forEach(Consumer<? super T> action) {
+        long stamp = lock.readLock();
+        try {
+            tree.forEach(action);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private List<T> copy() {
+
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                List<T> copy = copyElements();
+                if (lock.validate(stamp)) { return copy; }
+            } catch (RuntimeException e) {
+                // Num estado inconsistente a cópia pode passar do tamanho lido ou encontrar um nó incompleto.
+            }
+        }
+
+        stamp = lock.readLock();
+        try {
+            return copyElements();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private List<T> copyElements() {
+        int size = tree.getSize();
+        List<T> copy = new ArrayList<>(size);
+        tree.forEach(element -> {
+            // Numa leitura otimista a árvore pode mudar durante a cópia; sem este limite um ciclo momentâneo não terminaria.
+            if (copy.size() == size) { throw new ConcurrentModificationException(); }
+            copy.add(element);
+        });
+        return copy;
+    }
+
+    // Modificações
+
+    @Override
+    public boolean insert(T element) {
+        long stamp = lock.writeLock();
+        try {
+            return tree.insert(element);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public boolean remove(T element) {
+        long stamp = lock.writeLock();
+        try {
+            return tree.remove(element);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+}
@@ -0,0 +1,43 @@
+package tree;
+
+/**
+ * Nó que também guarda o número de elementos da subárvore que tem este nó como raiz.
+ * Usado pelas árvores criadas com Tree.withOrderStatistics(), que respondem select, rank e countInRange em O(log n).
+ * @param <T> Tipo do elemento armazenado nos nós.
+ */
+class CountedNode<T> extends Node<T> {
+
+    /**
+     * Número de elementos nesta subárvore, incluindo este nó. Nos multiconjuntos, a soma das ocorrências.
+     */
+    private int count = 1;
+
+    CountedNode(T element, Node<T> parent) {
+        super(element, parent);
+    }
+
+    /**
+     * Número de elementos na subárvore de node. 0 para o nó vazio.
+     */
+    static <T> int count(Node<T> node) {
+        return node.isEmpty() ? 0 : ((CountedNode<T>) node).count;
+    }
+
+    /**
+     * Quantas vezes o elemento deste nó é contado. 1, exceto nos multiconjuntos.
+     */
+    int occurrences() { return 1; }
+
+    /**
+     * Calcula a altura e a contagem desta subárvore a partir dos filhos.
+     * Chamado pela árvore sempre que os filhos mudam: na inserção, na remoção e nas rotações.
+     * @throws ArithmeticException Se a contagem passar de Integer.MAX_VALUE, o que só acontece nos multiconjuntos.
+     * A árvore verifica o total antes de modificar os nós, então isto só protege contra um erro nessa verificação.
+     */
+    @Override
+    void updadeHeight() {
+        super.updadeHeight();
+        count = Math.addExact(Math.addExact(count(getLeft()), count(getRight())), occurrences());
+    }
+
+}
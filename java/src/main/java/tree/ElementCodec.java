@@ -0,0 +1,316 @@
+package tree;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Codifica os elementos de uma Tree no formato de snapshot de Tree.writeTo e Tree.readFrom.
+ * Os elementos são escritos em ordem, e cada um é codificado sabendo qual foi o anterior,
+ * então o codec pode gravar só a diferença entre eles: integers() e longs() gravam a diferença entre as chaves
+ * em varint, e strings() grava só o sufixo que não é comum com a string anterior.
+ * @param <T> Tipo dos elementos.
+ */
+public interface ElementCodec<T> {
+
+    /**
+     * Escreve o elemento.
+     * @param previous Elemento escrito antes deste, ou null se este é o primeiro.
+     */
+    void write(T previous, T element, Output out) throws IOException;
+
+    /**
+     * Lê o elemento escrito por write.
+     * @param previous Elemento lido antes deste, ou null se este é o primeiro.
+     */
+    T read(T previous, Input in) throws IOException;
+
+    /**
+     * Integer, com a diferença para o anterior em varint zigzag: 1 byte por elemento se a diferença está entre -64 e 63.
+     */
+    static ElementCodec<Integer> integers() {
+        return new ElementCodec<>() {
+            @Override
+            public void write(Integer previous, Integer element, Output out) throws IOException {
+                out.writeZigZag(previous == null ? element : (long) element - previous);
+            }
+
+            @Override
+            public Integer read(Integer previous, Input in) throws IOException {
+                long value = in.readZigZag() + (previous == null ? 0 : previous);
+                if (value != (int) value) { throw new IOException("Valor fora do intervalo de int: " + value); }
+                return (int) value;
+            }
+        };
+    }
+
+    /**
+     * Long, com a diferença para o anterior em varint zigzag. A diferença pode transbordar, porque a soma na leitura também transborda.
+     */
+    static ElementCodec<Long> longs() {
+        return new ElementCodec<>() {
+            @Override
+            public void write(Long previous, Long element, Output out) throws IOException {
+                out.writeZigZag(previous == null ? element : element - previous);
+            }
+
+            @Override
+            public Long read(Long previous, Input in) throws IOException {
+                return in.readZigZag() + (previous == null ? 0 : previous);
+            }
+        };
+    }
+
+    /**
+     * String, com o número de caracteres iniciais em comum com a anterior e o restante em UTF-8.
+     */
+    static ElementCodec<String> strings() {
+        return new ElementCodec<>() {
+            @Override
+            public void write(String previous, String element, Output out) throws IOException {
+                int common = 0;
+                if (previous != null) {
+                    int max = Math.min(previous.length(), element.length());
+                    while (common < max && previous.charAt(common) == element.charAt(common)) { common++; }
+                    // Não separa um par de surrogates entre o prefixo e o sufixo.
+                    if (common > 0 && Character.isHighSurrogate(element.charAt(common - 1))) { common--; }
+                }
+                out.writeVarLong(common);
+                out.writeBytes(element.substring(common).getBytes(StandardCharsets.UTF_8));
+            }
+
+            @Override
+            public String read(String previous, Input in) throws IOException {
+                long common = in.readVarLong();
+                if (common < 0 || common > (previous == null ? 0 : previous.length())) {
+                    throw new IOException("Prefixo comum inválido para a string anterior: " + common);
+                }
+                String suffix = new String(in.readBytes(), StandardCharsets.UTF_8);
+                return common == 0 ? suffix : previous.substring(0, (int) common) + suffix;
+            }
+        };
+    }
+
+    /**
+     * Codec que grava cada elemento independentemente, como os bytes retornados por encoder, precedidos do tamanho.
+     */
+    static <T> ElementCodec<T> ofBytes(Function<? super T, byte[]> encoder, Function<byte[], ? extends T> decoder) {
+        Objects.requireNonNull(encoder);
+        Objects.requireNonNull(decoder);
+        return new ElementCodec<>() {
+            @Override
+            public void write(T previous, T element, Output out) throws IOException {
+                out.writeBytes(encoder.apply(element));
+            }
+
+            @Override
+            public T read(T previous, Input in) throws IOException {
+                return decoder.apply(in.readBytes());
+            }
+        };
+    }
+
+    /**
+     * Escreve num canal através de um buffer de tamanho fixo, que é enviado ao canal sempre que enche.
+     * Todos os valores de tamanho fixo são little-endian.
+     */
+    final class Output {
+
+        static final int BUFFER_BYTES = 1 << 16;
+
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+        Output(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Garante espaço para bytes bytes no buffer, que deve ser no máximo BUFFER_BYTES.
+         */
+        private void reserve(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) { flush(); }
+        }
+
+        public void writeByte(int value) throws IOException {
+            reserve(1);
+            buffer.put((byte) value);
+        }
+
+        public void writeInt(int value) throws IOException {
+            reserve(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        public void writeLong(long value) throws IOException {
+            reserve(Long.BYTES);
+            buffer.putLong(value);
+        }
+
+        /**
+         * Escreve o valor sem sinal em varint: 7 bits por byte, com o bit mais alto indicando que há mais bytes.
+         */
+        public void writeVarLong(long value) throws IOException {
+            reserve(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            buffer.put((byte) value);
+        }
+
+        /**
+         * Escreve o valor com sinal em varint zigzag, para que valores negativos pequenos também ocupem poucos bytes.
+         */
+        public void writeZigZag(long value) throws IOException {
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        /**
+         * Escreve o tamanho em varint seguido dos bytes.
+         */
+        public void writeBytes(byte[] bytes) throws IOException {
+            writeVarLong(bytes.length);
+            write(bytes, 0, bytes.length);
+        }
+
+        /**
+         * Escreve os bytes sem o tamanho.
+         */
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            int end = offset + length;
+            while (offset < end) {
+                if (!buffer.hasRemaining()) { flush(); }
+                int chunk = Math.min(buffer.remaining(), end - offset);
+                buffer.put(bytes, offset, chunk);
+                offset += chunk;
+            }
+        }
+
+        /**
+         * Envia ao canal tudo o que está no buffer.
+         */
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Lê de um canal através de um buffer de tamanho fixo, que é completado sempre que não tem os bytes necessários.
+     */
+    final class Input {
+
+        private final ReadableByteChannel channel;
+        private final ByteBuffer buffer;
+
+        Input(ReadableByteChannel channel) {
+            this.channel = channel;
+            this.buffer = ByteBuffer.allocate(Output.BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.flip();
+        }
+
+        /**
+         * Lê apenas os bytes restantes do buffer, sem canal.
+         */
+        Input(ByteBuffer bytes) {
+            this.channel = null;
+            this.buffer = bytes.order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        /**
+         * Garante que o buffer tem pelo menos bytes bytes, que deve ser no máximo BUFFER_BYTES.
+         * @throws EOFException Se o canal terminar antes.
+         */
+        private void require(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) { return; }
+            if (channel == null) { throw new EOFException("Snapshot terminou antes do esperado"); }
+            buffer.compact();
+            while (buffer.position() < bytes) {
+                if (channel.read(buffer) < 0) {
+                    buffer.flip();
+                    throw new EOFException("Snapshot terminou antes do esperado");
+                }
+            }
+            buffer.flip();
+        }
+
+        public int readByte() throws IOException {
+            require(1);
+            return buffer.get() & 0xFF;
+        }
+
+        public int readInt() throws IOException {
+            require(Integer.BYTES);
+            return buffer.getInt();
+        }
+
+        public long readLong() throws IOException {
+            require(Long.BYTES);
+            return buffer.getLong();
+        }
+
+        public long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) { return value; }
+            }
+            throw new IOException("Varint com mais de 10 bytes");
+        }
+
+        public long readZigZag() throws IOException {
+            long value = readVarLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        /**
+         * Lê bytes escritos por Output.writeBytes.
+         * O tamanho vem do arquivo e pode estar corrompido, então o array cresce à medida que os bytes chegam,
+         * em vez de ser alocado com o tamanho informado: um tamanho maior que os dados termina em EOFException
+         * depois de alocar no máximo o dobro do que foi lido.
+         */
+        public byte[] readBytes() throws IOException {
+            long length = readVarLong();
+            if (length < 0 || length > Integer.MAX_VALUE - 8) { throw new IOException("Tamanho inválido: " + length); }
+
+            byte[] bytes = new byte[(int) Math.min(length, Output.BUFFER_BYTES)];
+            int offset = 0;
+            while (true) {
+                read(bytes, offset, bytes.length - offset);
+                offset = bytes.length;
+                if (offset == length) { return bytes; }
+                bytes = Arrays.copyOf(bytes, (int) Math.min(length, 2L * offset));
+            }
+        }
+
+        /**
+         * Lê exatamente bytes.length bytes, escritos por Output.write.
+         */
+        public void readFully(byte[] bytes) throws IOException {
+            read(bytes, 0, bytes.length);
+        }
+
+        private void read(byte[] bytes, int offset, int length) throws IOException {
+            int end = offset + length;
+            while (offset < end) {
+                if (!buffer.hasRemaining()) { require(1); }
+                int chunk = Math.min(buffer.remaining(), end - offset);
+                buffer.get(bytes, offset, chunk);
+                offset += chunk;
+            }
+        }
+    }
+
+}
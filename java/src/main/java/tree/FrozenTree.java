@@ -0,0 +1,299 @@
+package tree;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+/**
+ * Cópia imutável de uma Tree otimizada para buscas, criada por Tree.freeze().
+ * Os elementos ficam num array no layout de Eytzinger: o elemento de índice k tem os filhos nos índices 2k e 2k + 1,
+ * como num heap, e a raiz fica no índice 1. Os primeiros níveis da árvore, visitados por todas as buscas,
+ * ocupam as primeiras linhas de cache do array, e cada descida só calcula o próximo índice, sem seguir ponteiros.
+ * <p>
+ * Quando a árvore foi criada com Tree.comparingLong, ou quando usa a ordem natural e todos os elementos são Integer
+ * ou todos são Long, as chaves também ficam num long[] no mesmo layout. Nesse caso a descida compara dois long
+ * e escolhe o filho com uma soma, sem desvio condicional: o número de passos é sempre o mesmo para uma busca,
+ * e o processador não erra previsões de desvio.
+ * <p>
+ * Ao final da descida, o índice k guarda o caminho percorrido em binário: cada bit depois do primeiro é 1 se a descida
+ * foi para a direita. O último nó em que a descida foi para a esquerda é o menor elemento maior que o procurado,
+ * e o último em que foi para a direita o maior elemento menor; os dois são obtidos removendo bits do fim de k.
+ * @param <T> Tipo dos elementos.
+ */
+public final class FrozenTree<T> implements Iterable<T> {
+
+    private final int size;
+
+    /**
+     * Elementos no layout de Eytzinger, a partir do índice 1.
+     */
+    private final Object[] elements;
+
+    /**
+     * Chaves dos elementos no mesmo layout, ou null se os elementos só podem ser comparados pelo comparator.
+     */
+    private final long[] keys;
+
+    /**
+     * Chave de um elemento procurado, quando keys não é null.
+     */
+    private final ToLongFunction<? super T> keyOf;
+
+    /**
+     * Ocorrências de cada elemento no mesmo layout, só quando a árvore original é um multiconjunto.
+     */
+    private final int[] occurrences;
+
+    private final Comparator<? super T> comparator;
+
+    /**
+     * Copia os elementos da árvore, em ordem, diretamente para as posições de Eytzinger, em tempo linear.
+     */
+    FrozenTree(Tree<T> tree, Comparator<? super T> comparator, ToLongFunction<? super T> keyExtractor, boolean multiset) {
+
+        this.size = tree.getSize();
+        this.comparator = comparator;
+        this.elements = new Object[size + 1];
+        this.occurrences = multiset ? new int[size + 1] : null;
+
+        Node<T> first = tree.firstNode(tree.getRoot());
+        ToLongFunction<? super T> numericKey = keyExtractor == null ? numericKey(tree, first) : null;
+        this.keyOf = keyExtractor != null ? keyExtractor : numericKey;
+        long[] keys = keyOf != null ? new long[size + 1] : null;
+
+        int k = leftmost(size);
+        for (Node<T> node = first; !node.isEmpty(); node = tree.successor(node)) {
+            elements[k] = node.getElement();
+            if (keys != null) { keys[k] = keyExtractor != null ? KeyedNode.key(node) : keyOf.applyAsLong(node.getElement()); }
+            if (multiset) { occurrences[k] = ((MultisetNode<T>) node).occurrences(); }
+            k = successor(k, size);
+        }
+        this.keys = keys;
+    }
+
+    /**
+     * Numa árvore com a ordem natural em que todos os elementos são Integer, ou todos são Long,
+     * a ordem dos elementos é a ordem do seu valor long. Retorna null se não for o caso.
+     */
+    private static <T> ToLongFunction<? super T> numericKey(Tree<T> tree, Node<T> first) {
+        if (!tree.hasNaturalOrdering() || first.isEmpty()) { return null; }
+
+        Class<?> type = first.getElement().getClass();
+        if (type != Integer.class && type != Long.class) { return null; }
+        for (Node<T> node = first; !node.isEmpty(); node = tree.successor(node)) {
+            if (node.getElement().getClass() != type) { return null; }
+        }
+        return element -> ((Number) element).longValue();
+    }
+
+    // Navegação no layout
+    // Com mais de 2^30 elementos, 2k e 2k + 1 não cabem num int. A existência dos filhos é verificada comparando k
+    // com size / 2, sem calcular 2k, e a descida das buscas calcula o caminho em long.
+
+    /**
+     * Índice do menor elemento: o nó mais à esquerda.
+     */
+    static int leftmost(int size) {
+        int k = 1;
+        // 2k <= size
+        while (k <= size >>> 1) { k = 2 * k; }
+        return k;
+    }
+
+    /**
+     * Índice do próximo elemento em ordem, ou um índice maior que size se k é o último.
+     */
+    static int successor(int k, int size) {
+        // 2k + 1 <= size
+        if (k <= (size - 1) >> 1) {
+            // O menor da subárvore direita.
+            k = 2 * k + 1;
+            while (k <= size >>> 1) { k = 2 * k; }
+            return k;
+        }
+        // Sobe enquanto k é filho à direita; o pai do primeiro filho à esquerda é o sucessor.
+        while ((k & 1) == 1) { k >>>= 1; }
+        k >>>= 1;
+        return k == 0 ? size + 1 : k;
+    }
+
+    /**
+     * Desce até depois de uma folha e retorna o caminho percorrido.
+     * @param orEqual Se a descida vai para a direita também quando encontra o elemento.
+     */
+    private long descend(T element, boolean orEqual) {
+        long k = 1;
+        if (keys != null) {
+            long key = keyOf.applyAsLong(element);
+            long[] keys = this.keys;
+            int size = this.size;
+            if (orEqual) {
+                while (k <= size) { k = 2 * k + (keys[(int) k] <= key ? 1 : 0); }
+            } else {
+                while (k <= size) { k = 2 * k + (keys[(int) k] < key ? 1 : 0); }
+            }
+        } else {
+            while (k <= size) {
+                int diff = compare(element((int) k), element);
+                k = 2 * k + (diff < 0 || (orEqual && diff == 0) ? 1 : 0);
+            }
+        }
+        return k;
+    }
+
+    /**
+     * Último nó do caminho em que a descida foi para a esquerda, ou 0 se ela só foi para a direita.
+     */
+    static int lastLeftTurn(long path) {
+        return (int) (path >>> (Long.numberOfTrailingZeros(~path) + 1));
+    }
+
+    /**
+     * Último nó do caminho em que a descida foi para a direita, ou 0 se ela só foi para a esquerda.
+     */
+    static int lastRightTurn(long path) {
+        return (int) (path >>> (Long.numberOfTrailingZeros(path) + 1));
+    }
+
+    @SuppressWarnings("unchecked")
+    private T element(int k) {
+        return (T) elements[k];
+    }
+
+    private T elementOrNull(int k) {
+        return k == 0 ? null : element(k);
+    }
+
+    @SuppressWarnings("unchecked")
+    private int compare(T a, T b) {
+        return comparator == null ? ((Comparable<? super T>) a).compareTo(b) : comparator.compare(a, b);
+    }
+
+    // Buscas
+
+    public int getSize() { return size; }
+
+    /**
+     * Índice do elemento, ou 0 se ele não está presente.
+     */
+    private int indexOf(T element) {
+        int k = lastLeftTurn(descend(element, false));
+        if (k == 0) { return 0; }
+        boolean equal = keys != null ? keys[k] == keyOf.applyAsLong(element) : compare(element(k), element) == 0;
+        return equal ? k : 0;
+    }
+
+    /**
+     * Verifica se o elemento está presente.
+     */
+    public boolean contains(T element) {
+        return indexOf(element) != 0;
+    }
+
+    /**
+     * Verifica se um elemento com esta chave está presente, sem criar um elemento para a busca.
+     * @throws IllegalStateException Se esta cópia tem elementos e não guarda chaves long.
+     */
+    public boolean containsKey(long key) {
+        if (size == 0) { return false; }
+        if (keys == null) { throw new IllegalStateException("Os elementos não têm chaves long"); }
+        long[] keys = this.keys;
+        int size = this.size;
+        long path = 1;
+        while (path <= size) { path = 2 * path + (keys[(int) path] < key ? 1 : 0); }
+        int k = lastLeftTurn(path);
+        return k != 0 && keys[k] == key;
+    }
+
+    /**
+     * Número de ocorrências do elemento: 0 ou 1, exceto se a árvore original é um multiconjunto.
+     */
+    public int count(T element) {
+        int k = indexOf(element);
+        if (k == 0) { return 0; }
+        return occurrences == null ? 1 : occurrences[k];
+    }
+
+    /**
+     * Maior elemento menor ou igual ao elemento, ou null se não existe.
+     */
+    public T floor(T element) {
+        return elementOrNull(lastRightTurn(descend(element, true)));
+    }
+
+    /**
+     * Menor elemento maior ou igual ao elemento, ou null se não existe.
+     */
+    public T ceiling(T element) {
+        return elementOrNull(lastLeftTurn(descend(element, false)));
+    }
+
+    /**
+     * Maior elemento estritamente menor que o elemento, ou null se não existe.
+     */
+    public T lower(T element) {
+        return elementOrNull(lastRightTurn(descend(element, false)));
+    }
+
+    /**
+     * Menor elemento estritamente maior que o elemento, ou null se não existe.
+     */
+    public T higher(T element) {
+        return elementOrNull(lastLeftTurn(descend(element, true)));
+    }
+
+    /**
+     * Menor elemento.
+     * @throws NoSuchElementException Se não há elementos.
+     */
+    public T first() {
+        if (size == 0) { throw new NoSuchElementException(); }
+        return element(leftmost(size));
+    }
+
+    /**
+     * Maior elemento.
+     * @throws NoSuchElementException Se não há elementos.
+     */
+    public T last() {
+        if (size == 0) { throw new NoSuchElementException(); }
+        int k = 1;
+        // 2k + 1 <= size
+        while (k <= (size - 1) >> 1) { k = 2 * k + 1; }
+        return element(k);
+    }
+
+    // Percurso
+
+    /**
+     * Iterador em ordem crescente.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<>() {
+            private int next = size == 0 ? 1 : leftmost(size);
+
+            @Override
+            public boolean hasNext() { return next <= size; }
+
+            @Override
+            public T next() {
+                if (next > size) { throw new NoSuchElementException(); }
+                T element = element(next);
+                next = successor(next, size);
+                return element;
+            }
+        };
+    }
+
+    @Override
+    public void forEach(Consumer<? super T> action) {
+        if (size == 0) { return; }
+        for (int k = leftmost(size); k <= size; k = successor(k, size)) {
+            action.accept(element(k));
+        }
+    }
+
+}
@@ -0,0 +1,662 @@
+package tree;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32C;
+
+/**
+ * Tree cujas modificações são registradas num journal antes de serem confirmadas, para sobreviver a uma queda do processo.
+ * O diretório contém um snapshot, escrito por Tree.writeTo, e o journal das modificações feitas depois dele.
+ * Ao abrir, o snapshot é lido e o journal é aplicado novamente sobre ele.
+ * <p>
+ * Quando o journal passa do tamanho do último snapshot, ou de MIN_COMPACTION_BYTES, ele é compactado:
+ * a árvore é copiada, um novo journal é iniciado e a cópia é gravada como novo snapshot numa thread separada,
+ * enquanto as modificações continuam. Depois disso o snapshot e o journal antigos são apagados.
+ * Assim o journal aplicado ao abrir nunca é muito maior do que o snapshot, por mais tempo que o processo tenha rodado.
+ * <p>
+ * Arquivos do diretório, em que N é a geração:
+ * <pre>
+ * snapshot-N  estado da árvore no início do journal N
+ * journal-N   registros, cada um com:
+ *   int    tamanho do conteúdo
+ *   int    CRC32C do conteúdo
+ *   conteúdo:
+ *     byte   INSERT ou REMOVE
+ *     bytes  escritos pelo codec, sem elemento anterior
+ * </pre>
+ * Valores de tamanho fixo são little-endian, como no snapshot.
+ * Só os journals a partir da geração do snapshot mais recente são aplicados. Um registro incompleto ou com CRC inválido
+ * no fim do último journal foi interrompido pela queda e é descartado.
+ * <p>
+ * Todos os métodos podem ser usados por várias threads; as operações são serializadas por um lock.
+ * Quando várias threads esperam pelo fsync ao mesmo tempo, um único fsync confirma os registros de todas elas.
+ * @param <T> Tipo dos elementos armazenados na árvore.
+ */
+public class JournaledTree<T> implements SearchTree<T>, AutoCloseable {
+
+    /**
+     * Tamanho mínimo do journal para uma compactação automática.
+     */
+    static final long MIN_COMPACTION_BYTES = 4 << 20;
+
+    /**
+     * Registros ainda não gravados que fazem a árvore os enviar ao arquivo, mesmo sem fsync.
+     */
+    private static final int PENDING_LIMIT = 1 << 20;
+
+    private static final byte INSERT = 1;
+    private static final byte REMOVE = 2;
+    private static final int RECORD_HEADER_BYTES = 8;
+
+    private static final Pattern FILE_NAME = Pattern.compile("(snapshot|journal)-(\\d+)");
+
+    /**
+     * Quando os registros do journal são gravados no disco com fsync.
+     */
+    public static final class Durability {
+
+        private enum Mode { OPERATION, BATCH, TIMED }
+
+        private final Mode mode;
+        private final Duration interval;
+
+        private Durability(Mode mode, Duration interval) {
+            this.mode = mode;
+            this.interval = interval;
+        }
+
+        /**
+         * fsync antes de cada insert e remove retornar. Operações simultâneas de várias threads compartilham o fsync.
+         */
+        public static Durability perOperation() { return new Durability(Mode.OPERATION, null); }
+
+        /**
+         * fsync só em commit(): as modificações feitas desde o último commit podem ser perdidas.
+         */
+        public static Durability perBatch() { return new Durability(Mode.BATCH, null); }
+
+        /**
+         * fsync numa thread separada a cada intervalo: as modificações do último intervalo podem ser perdidas.
+         */
+        public static Durability every(Duration interval) {
+            if (interval.isNegative() || interval.isZero()) {
+                throw new IllegalArgumentException("Intervalo deve ser positivo: " + interval);
+            }
+            return new Durability(Mode.TIMED, interval);
+        }
+    }
+
+    private final Path directory;
+    private final Tree<T> tree;
+    private final ElementCodec<T> codec;
+    private final Durability durability;
+
+    /**
+     * Protege a árvore, os registros pendentes e o journal atual.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Serializa as gravações no arquivo. Sempre adquirido antes de lock, nunca depois.
+     */
+    private final ReentrantLock syncLock = new ReentrantLock();
+
+    // Codificação de um registro, reutilizada por todas as operações.
+    private final ByteArrayOutputStream record = new ByteArrayOutputStream();
+    private final ElementCodec.Output recordOut = new ElementCodec.Output(Channels.newChannel(record));
+    private final CRC32C crc = new CRC32C();
+
+    /**
+     * Registros já aplicados à árvore e ainda não enviados ao arquivo.
+     */
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+
+    /**
+     * Número de registros adicionados a pending desde a abertura.
+     */
+    private long appended = 0;
+
+    /**
+     * Número de registros gravados com fsync. Só muda com syncLock.
+     */
+    private volatile long synced = 0;
+
+    private FileChannel journal;
+    private long generation;
+    private long journalBytes;
+    private long lastSnapshotBytes;
+
+    private final ScheduledExecutorService executor;
+    private CompletableFuture<Void> compaction = CompletableFuture.completedFuture(null);
+
+    /**
+     * Erro de uma gravação feita em outra thread. Depois dele a árvore recusa modificações.
+     */
+    private volatile IOException failure;
+    private boolean closed = false;
+
+    private JournaledTree(Path directory, Tree<T> tree, ElementCodec<T> codec, Durability durability) {
+        this.directory = directory;
+        this.tree = tree;
+        this.codec = codec;
+        this.durability = durability;
+        this.executor = Executors.newScheduledThreadPool(2, task -> {
+            Thread thread = new Thread(task, "tree-journal-" + directory.getFileName());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Abre o diretório, recuperando a árvore a partir do snapshot e do journal, ou começa uma árvore vazia
+     * se o diretório não existe ou está vazio.
+     * @param tree Árvore vazia, que define a ordem e o tipo de nó. Não pode mais ser usada diretamente depois disso.
+     * @param codec Codec dos elementos no snapshot e no journal.
+     * @throws IOException Se o snapshot ou um journal que não é o último está corrompido.
+     * @throws IllegalArgumentException Se a árvore não está vazia.
+     */
+    public static <T> JournaledTree<T> open(Path directory, Tree<T> tree, ElementCodec<T> codec, Durability durability)
+            throws IOException {
+
+        if (tree.getSize() != 0) { throw new IllegalArgumentException("A árvore não está vazia"); }
+
+        Files.createDirectories(directory);
+        JournaledTree<T> journaled = new JournaledTree<>(directory, tree, Objects.requireNonNull(codec),
+                Objects.requireNonNull(durability));
+
+        try {
+            journaled.recover();
+        } catch (IOException | RuntimeException e) {
+            journaled.executor.shutdownNow();
+            if (journaled.journal != null) { journaled.journal.close(); }
+            throw e;
+        }
+
+        if (durability.mode == Durability.Mode.TIMED) {
+            long nanos = durability.interval.toNanos();
+            journaled.executor.scheduleWithFixedDelay(journaled::backgroundSync, nanos, nanos, TimeUnit.NANOSECONDS);
+        }
+
+        return journaled;
+    }
+
+    // Recuperação
+
+    private void recover() throws IOException {
+
+        TreeMap<Long, Path> snapshots = new TreeMap<>();
+        TreeMap<Long, Path> journals = new TreeMap<>();
+
+        try (var files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                Matcher matcher = FILE_NAME.matcher(name);
+                if (name.endsWith(".tmp")) {
+                    // Snapshot interrompido por uma queda durante a compactação.
+                    Files.delete(file);
+                } else if (matcher.matches()) {
+                    long number = Long.parseLong(matcher.group(2));
+                    (matcher.group(1).equals("snapshot") ? snapshots : journals).put(number, file);
+                }
+            }
+        }
+
+        // O snapshot mais recente já contém os journals anteriores a ele.
+        generation = snapshots.isEmpty() ? 0 : snapshots.lastKey();
+        if (!snapshots.isEmpty()) {
+            Path snapshot = snapshots.lastEntry().getValue();
+            try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+                tree.readFrom(channel, codec);
+                lastSnapshotBytes = channel.size();
+            }
+        }
+
+        long last = journals.isEmpty() ? generation : Math.max(generation, journals.lastKey());
+        for (var entry : journals.tailMap(generation).entrySet()) {
+            replay(entry.getValue(), entry.getKey() == last);
+        }
+
+        // Apaga o que já está contido no snapshot mais recente.
+        for (Path old : snapshots.headMap(generation).values()) { Files.delete(old); }
+        for (Path old : journals.headMap(generation).values()) { Files.delete(old); }
+
+        generation = last;
+        journal = FileChannel.open(journalFile(generation),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        journalBytes = journal.size();
+    }
+
+    /**
+     * Aplica os registros do journal à árvore.
+     * @param last Se é o último journal, que pode terminar num registro interrompido pela queda.
+     * Nesse caso o registro é cortado do arquivo.
+     */
+    private void replay(Path file, boolean last) throws IOException {
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+
+            long size = channel.size();
+            long position = 0;
+            ElementCodec.Input in = new ElementCodec.Input(channel);
+
+            while (position < size) {
+                int length;
+                int checksum;
+                byte[] content;
+                try {
+                    length = in.readInt();
+                    checksum = in.readInt();
+                    if (length <= 0 || length > size - position - RECORD_HEADER_BYTES) { break; }
+                    content = new byte[length];
+                    in.readFully(content);
+                } catch (EOFException e) {
+                    break;
+                }
+
+                crc.reset();
+                crc.update(content);
+                if ((int) crc.getValue() != checksum) { break; }
+
+                apply(content);
+                position += RECORD_HEADER_BYTES + length;
+            }
+
+            if (position < size) {
+                if (!last) { throw new IOException("Journal corrompido: " + file + " na posição " + position); }
+                channel.truncate(position);
+                channel.force(true);
+            }
+        }
+    }
+
+    private void apply(byte[] content) throws IOException {
+        ElementCodec.Input in = new ElementCodec.Input(ByteBuffer.wrap(content));
+        byte operation = (byte) in.readByte();
+        T element = codec.read(null, in);
+        switch (operation) {
+            case INSERT -> tree.insert(element);
+            case REMOVE -> tree.remove(element);
+            default -> throw new IOException("Operação desconhecida no journal: " + operation);
+        }
+    }
+
+    // Leituras
+
+    @Override
+    public int getSize() {
+        lock.lock();
+        try {
+            return tree.getSize();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean contains(T element) {
+        lock.lock();
+        try {
+            return tree.contains(element);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Tamanho atual do journal, incluindo os registros ainda não gravados.
+     */
+    public long getJournalBytes() {
+        lock.lock();
+        try {
+            return journalBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Modificações
+
+    /**
+     * Insere o elemento e registra a inserção no journal. Com Durability.perOperation(), só retorna depois do fsync.
+     * @throws UncheckedIOException Se a gravação no journal falhou, agora ou numa gravação anterior em outra thread.
+     */
+    @Override
+    public boolean insert(T element) {
+        return modify(INSERT, element);
+    }
+
+    /**
+     * Remove o elemento e registra a remoção no journal. Com Durability.perOperation(), só retorna depois do fsync.
+     * @throws UncheckedIOException Se a gravação no journal falhou, agora ou numa gravação anterior em outra thread.
+     */
+    @Override
+    public boolean remove(T element) {
+        return modify(REMOVE, element);
+    }
+
+    private boolean modify(byte operation, T element) {
+
+        long sequence;
+        boolean compact;
+        boolean flush;
+
+        try {
+            lock.lock();
+            try {
+                checkOpen();
+
+                // O registro é codificado antes de modificar a árvore, para que um erro do codec não deixe a árvore
+                // com uma modificação que não está no journal.
+                record.reset();
+                recordOut.writeByte(operation);
+                codec.write(null, element, recordOut);
+                recordOut.flush();
+
+                boolean changed = operation == INSERT ? tree.insert(element) : tree.remove(element);
+                // Operações que não mudam a árvore não precisam ser registradas.
+                if (!changed) { return false; }
+
+                appendRecord();
+                sequence = appended;
+                compact = journalBytes > Math.max(MIN_COMPACTION_BYTES, lastSnapshotBytes) && compaction.isDone();
+                flush = pending.size() > PENDING_LIMIT;
+            } finally {
+                lock.unlock();
+            }
+
+            if (durability.mode == Durability.Mode.OPERATION) {
+                sync(sequence, true);
+            } else if (flush) {
+                sync(sequence, false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        if (compact) { compact(); }
+        return true;
+    }
+
+    /**
+     * Acrescenta o registro em record a pending, com o tamanho e o CRC. Chamado com lock.
+     */
+    private void appendRecord() {
+        byte[] content = record.toByteArray();
+        crc.reset();
+        crc.update(content);
+
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(content.length).putInt((int) crc.getValue());
+        pending.writeBytes(header.array());
+        pending.writeBytes(content);
+
+        appended++;
+        journalBytes += RECORD_HEADER_BYTES + content.length;
+    }
+
+    /**
+     * Grava no disco, com fsync, todas as modificações feitas até agora.
+     * Com Durability.perBatch() é o que confirma um lote; nos outros modos adianta o próximo fsync.
+     */
+    public void commit() throws IOException {
+        long sequence;
+        lock.lock();
+        try {
+            checkOpen();
+            sequence = appended;
+        } finally {
+            lock.unlock();
+        }
+        sync(sequence, true);
+    }
+
+    /**
+     * Envia ao arquivo os registros pendentes, se o registro sequence ainda não foi gravado.
+     * Se outra thread já está gravando, espera por ela: a gravação dela pode já incluir o registro, e nesse caso
+     * nenhum outro fsync é feito.
+     * @param force Se também deve fazer fsync.
+     */
+    private void sync(long sequence, boolean force) throws IOException {
+        syncLock.lock();
+        try {
+            if (synced >= sequence) { return; }
+
+            byte[] bytes;
+            long upTo;
+            lock.lock();
+            try {
+                bytes = pending.toByteArray();
+                pending.reset();
+                upTo = appended;
+            } finally {
+                lock.unlock();
+            }
+
+            write(bytes, upTo, force);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Grava os bytes no journal atual e, com force, registra que os registros até upTo foram gravados. Chamado com syncLock.
+     */
+    private void write(byte[] bytes, long upTo, boolean force) throws IOException {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                journal.write(buffer);
+            }
+            if (force) {
+                journal.force(false);
+                synced = upTo;
+            }
+        } catch (IOException e) {
+            failure = e;
+            throw e;
+        }
+    }
+
+    private void backgroundSync() {
+        try {
+            lock.lock();
+            long sequence;
+            try {
+                if (closed) { return; }
+                sequence = appended;
+            } finally {
+                lock.unlock();
+            }
+            sync(sequence, true);
+        } catch (IOException e) {
+            // Guardado em failure por sync; a próxima modificação lança o erro.
+        }
+    }
+
+    private void checkOpen() throws IOException {
+        if (closed) { throw new IllegalStateException("Árvore fechada"); }
+        if (failure != null) { throw new IOException("Gravação do journal falhou", failure); }
+    }
+
+    // Compactação
+
+    /**
+     * Inicia um novo journal e grava o estado atual como snapshot numa thread separada.
+     * Só a cópia da árvore, em tempo linear, e o fsync dos registros feitos durante a compactação bloqueiam as outras operações.
+     * Se uma compactação já está em andamento, retorna ela.
+     * @return Termina quando o novo snapshot foi gravado e os arquivos antigos foram apagados.
+     */
+    public CompletableFuture<Void> compact() {
+
+        Tree<T> copy;
+        long snapshotGeneration;
+        FileChannel oldJournal;
+        long sequence;
+
+        syncLock.lock();
+        try {
+            lock.lock();
+            try {
+                checkOpen();
+                if (!compaction.isDone()) { return compaction; }
+                sequence = appended;
+            } finally {
+                lock.unlock();
+            }
+
+            // Grava a maior parte dos registros pendentes sem bloquear as modificações.
+            sync(sequence, true);
+
+            lock.lock();
+            try {
+                // O journal atual é fechado com exatamente os registros contidos na cópia: os que chegaram desde o sync
+                // são gravados nele com o lock, para que nenhum fique também no próximo journal e seja aplicado duas vezes.
+                write(pending.toByteArray(), appended, true);
+                pending.reset();
+                copy = tree.copy();
+                snapshotGeneration = generation + 1;
+                oldJournal = journal;
+                journal = FileChannel.open(journalFile(snapshotGeneration),
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                generation = snapshotGeneration;
+                journalBytes = 0;
+                compaction = CompletableFuture.runAsync(() -> writeSnapshot(copy, snapshotGeneration), executor);
+            } finally {
+                lock.unlock();
+            }
+            // O journal antigo só é gravado com syncLock, mantido até aqui, então pode ser fechado sem bloquear as modificações.
+            oldJournal.close();
+            return compaction;
+
+        } catch (IOException e) {
+            failure = e;
+            return CompletableFuture.failedFuture(e);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Grava o snapshot num arquivo temporário e só depois o renomeia, para que um snapshot incompleto nunca
+     * seja encontrado na recuperação. Em seguida apaga os arquivos das gerações anteriores.
+     */
+    private void writeSnapshot(Tree<T> copy, long snapshotGeneration) {
+        try {
+            Path target = directory.resolve("snapshot-" + snapshotGeneration);
+            Path temporary = directory.resolve("snapshot-" + snapshotGeneration + ".tmp");
+
+            long bytes;
+            try (FileChannel channel = FileChannel.open(temporary,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                copy.writeTo(channel, codec);
+                channel.force(true);
+                bytes = channel.size();
+            }
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+            forceDirectory();
+
+            for (long old = snapshotGeneration - 1; old >= 0; old--) {
+                boolean deleted = Files.deleteIfExists(journalFile(old));
+                deleted |= Files.deleteIfExists(directory.resolve("snapshot-" + old));
+                if (!deleted) { break; }
+            }
+
+            lock.lock();
+            try {
+                lastSnapshotBytes = bytes;
+            } finally {
+                lock.unlock();
+            }
+        } catch (IOException e) {
+            failure = e;
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Grava no disco a entrada do diretório criada pelo rename. Nem todos os sistemas permitem abrir um diretório.
+     */
+    private void forceDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Sem suporte no sistema; o rename fica a cargo do sistema de arquivos.
+        }
+    }
+
+    private Path journalFile(long number) {
+        return directory.resolve("journal-" + number);
+    }
+
+    // Fechamento
+
+    /**
+     * Espera a compactação em andamento, grava os registros pendentes com fsync e fecha o journal.
+     * Chamadas repetidas não têm efeito.
+     * @throws IOException Se alguma gravação, inclusive numa thread separada, falhou.
+     */
+    @Override
+    public void close() throws IOException {
+
+        // Depois de closed nenhuma modificação ou compactação começa.
+        CompletableFuture<Void> running;
+        lock.lock();
+        try {
+            if (closed) { return; }
+            closed = true;
+            running = compaction;
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // O erro também está em failure.
+        }
+
+        syncLock.lock();
+        try {
+            if (failure == null) {
+                long sequence;
+                lock.lock();
+                try {
+                    sequence = appended;
+                } finally {
+                    lock.unlock();
+                }
+                sync(sequence, true);
+            }
+        } finally {
+            syncLock.unlock();
+            executor.shutdownNow();
+            journal.close();
+        }
+
+        if (failure != null) { throw new IOException("Gravação do journal falhou", failure); }
+    }
+
+}
@@ -0,0 +1,37 @@
+package tree;
+
+/**
+ * Nó que também guarda a chave long extraída do seu elemento.
+ * Usado pelas árvores criadas com Tree.comparingLong(), que na descida comparam essa chave
+ * com uma comparação de primitivos em vez de chamar compareTo ou um Comparator a cada nível.
+ * @param <T> Tipo do elemento armazenado nos nós.
+ */
+class KeyedNode<T> extends Node<T> {
+
+    /**
+     * Chave do elemento, calculada uma única vez quando o nó é criado.
+     */
+    private long key;
+
+    KeyedNode(T element, Node<T> parent, long key) {
+        super(element, parent);
+        this.key = key;
+    }
+
+    /**
+     * Chave guardada no nó, que não pode ser o nó vazio.
+     */
+    static <T> long key(Node<T> node) {
+        return ((KeyedNode<T>) node).key;
+    }
+
+    /**
+     * A chave acompanha o elemento quando ele é copiado para outro nó.
+     */
+    @Override
+    void copyContents(Node<T> source) {
+        super.copyContents(source);
+        key = ((KeyedNode<T>) source).key;
+    }
+
+}
@@ -0,0 +1,248 @@
+package tree;
+
+/**
+ * Árvore binária de busca de inteiros longos primitivos.
+ * Balanceada automaticamente por meio do algoritmo AVL, como Tree,
+ * mas guarda cada chave como long no próprio nó, sem boxing, e compara chaves com operadores primitivos.
+ */
+public class LongAVLTree {
+
+    /**
+     * Nó com a chave primitiva. Mesmo layout de Node.
+     */
+    private static final class LongNode {
+        /**
+         * Nó vazio compartilhado. Ocupa o lugar de todos os filhos ausentes e nunca é modificado.
+         */
+        static final LongNode EMPTY = new LongNode();
+
+        long key;
+        LongNode left;
+        LongNode right;
+        LongNode parent;
+        /**
+         * Folhas têm altura 1. O nó vazio tem altura 0.
+         */
+        int height;
+
+        private LongNode() { }
+
+        LongNode(long key, LongNode parent) {
+            this.key = key;
+            this.parent = parent;
+            this.left = EMPTY;
+            this.right = EMPTY;
+            this.height = 1;
+        }
+
+        boolean isEmpty() { return this == EMPTY; }
+
+        int getBalanceFactor() {
+            if (isEmpty()) { return 0; }
+            return right.height - left.height;
+        }
+
+        void setLeft(LongNode left) {
+            this.left = left;
+            if (left != EMPTY) { left.parent = this; }
+        }
+
+        void setRight(LongNode right) {
+            this.right = right;
+            if (right != EMPTY) { right.parent = this; }
+        }
+
+        void updadeHeight() {
+            if (isEmpty()) { return; }
+            height = Math.max(left.height, right.height) + 1;
+        }
+    }
+
+    private LongNode root = LongNode.EMPTY;
+    private int size = 0;
+
+    // Getters
+
+    public int getSize() { return size; }
+
+    /**
+     * Altura da árvore. 0 se estiver vazia.
+     */
+    public int getHeight() { return root.height; }
+
+    /**
+     * Desce na árvore até encontrar a chave.
+     * @return O nó contendo a chave, ou o nó vazio se não encontrada.
+     */
+    private LongNode find(long key) {
+
+        LongNode node = root;
+
+        while (!node.isEmpty()) {
+            if (key < node.key) {
+                node = node.left;
+            } else if (key > node.key) {
+                node = node.right;
+            } else {
+                return node;
+            }
+        }
+
+        return node;
+    }
+
+    /**
+     * Verifica se a chave está presente na árvore.
+     */
+    public boolean contains(long key) {
+        return !find(key).isEmpty();
+    }
+
+    /**
+     * Insere esta chave na árvore. Balanceia a árvore caso necessário.
+     * @return True se a chave foi inserida com sucesso, false se já existe na árvore.
+     */
+    public boolean insert(long key) {
+
+        LongNode parent = null;
+        LongNode node = root;
+
+        while (!node.isEmpty()) {
+            if (key == node.key) { return false; }
+            parent = node;
+            node = key < node.key ? node.left : node.right;
+        }
+
+        LongNode leaf = new LongNode(key, parent);
+
+        if (parent == null) {
+            root = leaf;
+        } else if (key < parent.key) {
+            parent.setLeft(leaf);
+        } else {
+            parent.setRight(leaf);
+        }
+
+        size += 1;
+
+        if (parent != null) {
+            balance(parent);
+        }
+
+        return true;
+    }
+
+    /**
+     * Remove a chave da árvore se ela existir. Balanceia a árvore se necessário.
+     * @return True se a chave foi removida, false se não está presente.
+     */
+    public boolean remove(long key) {
+
+        LongNode node = find(key);
+
+        if (node.isEmpty()) { return false; }
+
+        if (!node.left.isEmpty() && !node.right.isEmpty()) {
+            // Tem dois filhos: a chave do predecessor toma o lugar da removida e o predecessor é removido.
+            LongNode predecessor = node.left;
+            while (!predecessor.right.isEmpty()) {
+                predecessor = predecessor.right;
+            }
+            node.key = predecessor.key;
+            node = predecessor;
+        }
+
+        // Agora node tem no máximo um filho, que toma o seu lugar.
+        LongNode nodeToBalance = node.parent;
+        replaceNode(node, node.left.isEmpty() ? node.right : node.left);
+
+        size -= 1;
+
+        if (nodeToBalance != null) {
+            balance(nodeToBalance);
+        }
+
+        return true;
+    }
+
+    // Balanceamento
+
+    /**
+     * Sobe em direção à raiz balanceando enquanto a altura das subárvores muda. Mesmo algoritmo de Tree.balance.
+     */
+    private void balance(LongNode node) {
+
+        while (node != null) {
+
+            int oldHeight = node.height;
+
+            node.updadeHeight();
+
+            int balanceFactor = node.getBalanceFactor();
+
+            if (balanceFactor < -1) {
+                rightRotation(node);
+                node = node.parent;
+            } else if (balanceFactor > 1) {
+                leftRotation(node);
+                node = node.parent;
+            }
+
+            if (node.height == oldHeight) { return; }
+
+            node = node.parent;
+        }
+    }
+
+    // Rotações
+
+    /**
+     * O filho à direita se torna a nova raiz da subárvore. Mesmo algoritmo de Tree.leftRotation.
+     */
+    private void leftRotation(LongNode a) {
+
+        if (a.right.getBalanceFactor() < 0) { rightRotation(a.right); }
+
+        LongNode b = a.right;
+
+        a.setRight(b.left);
+        replaceNode(a, b);
+        b.setLeft(a);
+
+        a.updadeHeight();
+        b.updadeHeight();
+    }
+
+    /**
+     * O filho à esquerda se torna a nova raiz da subárvore. Mesmo algoritmo de Tree.rightRotation.
+     */
+    private void rightRotation(LongNode c) {
+
+        if (c.left.getBalanceFactor() > 0) { leftRotation(c.left); }
+
+        LongNode b = c.left;
+
+        c.setLeft(b.right);
+        replaceNode(c, b);
+        b.setRight(c);
+
+        c.updadeHeight();
+        b.updadeHeight();
+    }
+
+    /**
+     * Coloca newNode no lugar de oldNode e atualiza a raiz da árvore se necessário.
+     */
+    private void replaceNode(LongNode oldNode, LongNode newNode) {
+
+        if (oldNode.parent == null) {
+            root = newNode;
+            if (!newNode.isEmpty()) { newNode.parent = null; }
+        } else if (oldNode.parent.left == oldNode) {
+            oldNode.parent.setLeft(newNode);
+        } else {
+            oldNode.parent.setRight(newNode);
+        }
+    }
+
+}
@@ -0,0 +1,346 @@
+package tree;
+
+/**
+ * Algoritmo AVL para árvores de chaves long cujos nós são identificados por índices,
+ * guardados numa memória que a subclasse define (memória nativa, arquivo mapeado).
+ * <p>
+ * Cada nó tem chave, índice do filho esquerdo, índice do filho direito e altura.
+ * O índice 0 é o nó vazio, com altura 0, como o nó vazio compartilhado de Node.
+ * Índices liberados por remoções formam uma lista encadeada pelo filho esquerdo e são reutilizados.
+ * Não há ponteiro para o pai: a descida guarda o caminho, usado depois na subida do balanceamento.
+ */
+abstract class LongNodeTree {
+
+    static final int EMPTY = 0;
+
+    /**
+     * Profundidade máxima de uma árvore AVL com até 2^31 elementos é menor que 1,44 * 31 + 2.
+     */
+    private static final int MAX_DEPTH = 48;
+
+    int root = EMPTY;
+    int size = 0;
+
+    /**
+     * Próximo índice nunca usado.
+     */
+    int nextIndex = 1;
+
+    /**
+     * Primeiro índice da lista de índices liberados.
+     */
+    int freeList = EMPTY;
+
+    /**
+     * Índices dos nós visitados na descida da operação atual. Substitui o ponteiro para o pai.
+     */
+    private final int[] path = new int[MAX_DEPTH];
+
+    // Memória dos nós, definida pela subclasse.
+
+    abstract long key(int node);
+
+    abstract int left(int node);
+
+    abstract int right(int node);
+
+    abstract int height(int node);
+
+    abstract void setKey(int node, long key);
+
+    abstract void setLeft(int node, int left);
+
+    abstract void setRight(int node, int right);
+
+    abstract void setHeight(int node, int height);
+
+    /**
+     * Número de índices que cabem na memória reservada atualmente.
+     */
+    abstract int capacity();
+
+    /**
+     * Reserva mais memória para nós.
+     */
+    abstract void grow();
+
+    /**
+     * Lança IllegalStateException se a memória da árvore já foi liberada.
+     */
+    abstract void checkOpen();
+
+    /**
+     * Chamado uma vez antes de cada inserção ou remoção que vai modificar os nós.
+     */
+    void beforeModification() { }
+
+    // Getters
+
+    public int getSize() { return size; }
+
+    /**
+     * Altura da árvore. 0 se estiver vazia.
+     */
+    public int getHeight() {
+        checkOpen();
+        return height(root);
+    }
+
+    // Busca
+
+    /**
+     * Verifica se a chave está presente na árvore.
+     */
+    public boolean contains(long key) {
+
+        checkOpen();
+
+        int node = root;
+
+        while (node != EMPTY) {
+            long nodeKey = key(node);
+
+            if (key < nodeKey) {
+                node = left(node);
+            } else if (key > nodeKey) {
+                node = right(node);
+            } else {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    // Inserção
+
+    /**
+     * Insere esta chave na árvore. Balanceia a árvore caso necessário.
+     * @return True se a chave foi inserida com sucesso, false se já existe na árvore.
+     */
+    public boolean insert(long key) {
+
+        checkOpen();
+
+        int depth = 0;
+        int node = root;
+        long nodeKey = 0;
+
+        while (node != EMPTY) {
+            nodeKey = key(node);
+
+            if (key == nodeKey) { return false; }
+
+            path[depth++] = node;
+            node = key < nodeKey ? left(node) : right(node);
+        }
+
+        beforeModification();
+
+        int leaf = allocate(key);
+
+        if (depth == 0) {
+            root = leaf;
+        } else if (key < nodeKey) {
+            setLeft(path[depth - 1], leaf);
+        } else {
+            setRight(path[depth - 1], leaf);
+        }
+
+        size += 1;
+
+        balance(depth - 1);
+
+        return true;
+    }
+
+    // Remoção
+
+    /**
+     * Remove a chave da árvore se ela existir. Balanceia a árvore se necessário.
+     * @return True se a chave foi removida, false se não está presente.
+     */
+    public boolean remove(long key) {
+
+        checkOpen();
+
+        int depth = 0;
+        int node = root;
+
+        while (node != EMPTY) {
+            long nodeKey = key(node);
+
+            if (key == nodeKey) { break; }
+
+            path[depth++] = node;
+            node = key < nodeKey ? left(node) : right(node);
+        }
+
+        if (node == EMPTY) { return false; }
+
+        beforeModification();
+
+        if (left(node) != EMPTY && right(node) != EMPTY) {
+            // Tem dois filhos: a chave do predecessor toma o lugar da removida e o predecessor é removido.
+            int target = node;
+            path[depth++] = node;
+            node = left(node);
+            while (right(node) != EMPTY) {
+                path[depth++] = node;
+                node = right(node);
+            }
+            setKey(target, key(node));
+        }
+
+        // Agora node tem no máximo um filho, que toma o seu lugar.
+        int child = left(node) != EMPTY ? left(node) : right(node);
+        replaceChild(depth - 1, node, child);
+
+        release(node);
+        size -= 1;
+
+        balance(depth - 1);
+
+        return true;
+    }
+
+    // Balanceamento
+
+    /**
+     * Sobe pelo caminho da descida balanceando cada nó, enquanto a altura das subárvores muda.
+     * Mesmo algoritmo de Tree.balance.
+     * @param depth Posição em path do nó mais profundo que foi modificado. -1 se foi a raiz.
+     */
+    private void balance(int depth) {
+
+        for (int i = depth; i >= 0; i--) {
+
+            int node = path[i];
+            int oldHeight = height(node);
+
+            updateHeight(node);
+
+            int balanceFactor = balanceFactor(node);
+            int subtreeRoot = node;
+
+            if (balanceFactor < -1) {
+                subtreeRoot = rightRotation(node);
+            } else if (balanceFactor > 1) {
+                subtreeRoot = leftRotation(node);
+            }
+
+            if (subtreeRoot != node) {
+                replaceChild(i - 1, node, subtreeRoot);
+            }
+
+            if (height(subtreeRoot) == oldHeight) { return; }
+        }
+    }
+
+    private int balanceFactor(int node) {
+        return height(right(node)) - height(left(node));
+    }
+
+    // Rotações
+
+    /**
+     * O filho à direita se torna a nova raiz da subárvore. Mesmo algoritmo de Tree.leftRotation.
+     * @return Índice da nova raiz da subárvore.
+     */
+    private int leftRotation(int a) {
+
+        if (balanceFactor(right(a)) < 0) {
+            setRight(a, rightRotation(right(a)));
+        }
+
+        int b = right(a);
+        setRight(a, left(b));
+        setLeft(b, a);
+
+        updateHeight(a);
+        updateHeight(b);
+
+        return b;
+    }
+
+    /**
+     * O filho à esquerda se torna a nova raiz da subárvore. Mesmo algoritmo de Tree.rightRotation.
+     * @return Índice da nova raiz da subárvore.
+     */
+    private int rightRotation(int c) {
+
+        if (balanceFactor(left(c)) > 0) {
+            setLeft(c, leftRotation(left(c)));
+        }
+
+        int b = left(c);
+        setLeft(c, right(b));
+        setRight(b, c);
+
+        updateHeight(c);
+        updateHeight(b);
+
+        return b;
+    }
+
+    private void updateHeight(int node) {
+        setHeight(node, Math.max(height(left(node)), height(right(node))) + 1);
+    }
+
+    /**
+     * Coloca newChild no lugar de oldChild no pai, que está na posição parentDepth de path.
+     * Se parentDepth for -1, oldChild era a raiz.
+     */
+    private void replaceChild(int parentDepth, int oldChild, int newChild) {
+
+        if (parentDepth < 0) {
+            root = newChild;
+            return;
+        }
+
+        int parent = path[parentDepth];
+        if (left(parent) == oldChild) {
+            setLeft(parent, newChild);
+        } else {
+            setRight(parent, newChild);
+        }
+    }
+
+    // Gerenciamento dos índices
+
+    /**
+     * Reserva um índice para uma nova folha, reutilizando um índice liberado se houver.
+     */
+    private int allocate(long key) {
+
+        int node;
+
+        if (freeList != EMPTY) {
+            node = freeList;
+            freeList = left(node);
+        } else {
+            if (nextIndex == capacity()) {
+                grow();
+            }
+            node = nextIndex++;
+        }
+
+        setKey(node, key);
+        setLeft(node, EMPTY);
+        setRight(node, EMPTY);
+        setHeight(node, 1);
+
+        return node;
+    }
+
+    /**
+     * Devolve o índice à lista de índices livres.
+     */
+    private void release(int node) {
+        setHeight(node, 0);
+        setRight(node, EMPTY);
+        setLeft(node, freeList);
+        freeList = node;
+    }
+
+}
@@ -0,0 +1,309 @@
+package tree;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Árvore binária de busca de chaves long, balanceada pelo algoritmo AVL, guardada num arquivo mapeado em memória.
+ * Os nós são lidos e modificados diretamente nas páginas mapeadas por FileChannel.map,
+ * então abrir uma árvore existente não exige ler nem reinserir os elementos: só o cabeçalho é lido.
+ * <p>
+ * Formato do arquivo, em little-endian:
+ * <pre>
+ * Cabeçalho (HEADER_BYTES bytes)
+ *   0  long  MAGIC
+ *   8  int   VERSION
+ *   12 int   NODE_BYTES
+ *   16 int   índice da raiz
+ *   20 int   número de elementos
+ *   24 int   próximo índice nunca usado
+ *   28 int   primeiro índice da lista de índices liberados
+ *   32 int   1 se o arquivo foi fechado corretamente, 0 se está sendo modificado
+ * Regiões de REGION_NODES nós cada, a partir de HEADER_BYTES
+ *   0  long  chave
+ *   8  int   índice do filho esquerdo
+ *   12 int   índice do filho direito
+ *   16 int   altura
+ * </pre>
+ * Antes da primeira modificação depois de abrir ou de flush(), o cabeçalho é marcado como não fechado e gravado no disco.
+ * flush() e close() gravam todas as páginas e só então marcam o arquivo como fechado corretamente.
+ * Um arquivo que não foi fechado corretamente, por exemplo após uma queda do processo, é recusado por open().
+ * <p>
+ * O algoritmo está em LongNodeTree; esta classe só define onde os nós são guardados.
+ */
+public class MappedTree extends LongNodeTree implements AutoCloseable {
+
+    /**
+     * "AVLTREE1" em ASCII.
+     */
+    static final long MAGIC = 0x41564C5452454531L;
+    static final int VERSION = 1;
+
+    static final int HEADER_BYTES = 64;
+
+    // Campos do cabeçalho.
+    private static final int HEADER_MAGIC = 0;
+    private static final int HEADER_VERSION = 8;
+    private static final int HEADER_NODE_BYTES = 12;
+    private static final int HEADER_ROOT = 16;
+    private static final int HEADER_SIZE = 20;
+    private static final int HEADER_NEXT_INDEX = 24;
+    private static final int HEADER_FREE_LIST = 28;
+    private static final int HEADER_CLEAN = 32;
+
+    // Layout de um nó.
+    private static final int KEY = 0;
+    private static final int LEFT = 8;
+    private static final int RIGHT = 12;
+    private static final int HEIGHT = 16;
+    static final int NODE_BYTES = 24;
+
+    /**
+     * Cada região mapeada guarda 2^REGION_SHIFT nós.
+     */
+    private static final int REGION_SHIFT = 20;
+    private static final int REGION_NODES = 1 << REGION_SHIFT;
+    private static final int REGION_MASK = REGION_NODES - 1;
+    private static final long REGION_BYTES = (long) REGION_NODES * NODE_BYTES;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private MappedByteBuffer[] regions = new MappedByteBuffer[4];
+    private int regionCount = 0;
+
+    /**
+     * Verdadeiro se o cabeçalho no disco está marcado como não fechado.
+     */
+    private boolean dirty = false;
+    private boolean open = true;
+
+    private MappedTree(FileChannel channel) throws IOException {
+        this.channel = channel;
+        this.header = map(0, HEADER_BYTES);
+    }
+
+    /**
+     * Abre a árvore guardada no arquivo, ou cria uma árvore vazia se o arquivo não existe ou está vazio.
+     * O arquivo fica com um lock exclusivo até close(), para que dois processos, ou duas instâncias no mesmo processo,
+     * nunca modifiquem as mesmas páginas mapeadas.
+     * @throws IOException Se o arquivo não é uma árvore deste formato, não foi fechado corretamente ou já está aberto.
+     */
+    public static MappedTree open(Path file) throws IOException {
+
+        FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        try {
+            // O lock é liberado quando o canal é fechado.
+            if (tryLock(channel) == null) { throw new IOException("Arquivo já está aberto: " + file); }
+
+            boolean isNew = channel.size() == 0;
+            MappedTree tree = new MappedTree(channel);
+
+            if (isNew) {
+                tree.initialize();
+            } else {
+                tree.load();
+            }
+
+            return tree;
+
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Tenta obter um lock exclusivo do arquivo inteiro.
+     * @return null se o lock pertence a outro processo ou a outro canal deste processo.
+     */
+    private static FileLock tryLock(FileChannel channel) throws IOException {
+        try {
+            return channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Escreve o cabeçalho de uma árvore vazia e mapeia a primeira região, que contém o nó vazio no índice 0.
+     */
+    private void initialize() throws IOException {
+        header.putLong(HEADER_MAGIC, MAGIC);
+        header.putInt(HEADER_VERSION, VERSION);
+        header.putInt(HEADER_NODE_BYTES, NODE_BYTES);
+        writeState();
+        header.putInt(HEADER_CLEAN, 1);
+        mapRegion();
+        header.force();
+    }
+
+    /**
+     * Valida o cabeçalho de um arquivo existente, restaura o estado da árvore e mapeia as regiões.
+     */
+    private void load() throws IOException {
+
+        if (channel.size() < HEADER_BYTES || header.getLong(HEADER_MAGIC) != MAGIC) {
+            throw new IOException("Arquivo não contém uma árvore");
+        }
+        if (header.getInt(HEADER_VERSION) != VERSION || header.getInt(HEADER_NODE_BYTES) != NODE_BYTES) {
+            throw new IOException("Versão do arquivo não suportada: " + header.getInt(HEADER_VERSION));
+        }
+        if (header.getInt(HEADER_CLEAN) != 1) {
+            throw new IOException("Arquivo não foi fechado corretamente");
+        }
+
+        root = header.getInt(HEADER_ROOT);
+        size = header.getInt(HEADER_SIZE);
+        nextIndex = header.getInt(HEADER_NEXT_INDEX);
+        freeList = header.getInt(HEADER_FREE_LIST);
+
+        long regionsInFile = (channel.size() - HEADER_BYTES) / REGION_BYTES;
+        if (regionsInFile < 1 || nextIndex > regionsInFile * REGION_NODES) {
+            throw new IOException("Arquivo truncado");
+        }
+        for (long i = 0; i < regionsInFile; i++) {
+            mapRegion();
+        }
+    }
+
+    /**
+     * Grava no disco todas as modificações e marca o arquivo como fechado corretamente.
+     * A árvore continua aberta; a próxima modificação marca o arquivo como não fechado novamente.
+     */
+    public void flush() {
+        checkOpen();
+        if (!dirty) { return; }
+
+        for (int i = 0; i < regionCount; i++) {
+            regions[i].force();
+        }
+        writeState();
+        header.force();
+
+        // O arquivo só é marcado como fechado depois que todas as páginas estão no disco.
+        header.putInt(HEADER_CLEAN, 1);
+        header.force();
+        dirty = false;
+    }
+
+    /**
+     * Grava as modificações e fecha o arquivo. Chamadas repetidas não têm efeito.
+     * As regiões continuam mapeadas até serem coletadas pelo Garbage Collector.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!open) { return; }
+        try {
+            flush();
+        } finally {
+            open = false;
+            Arrays.fill(regions, null);
+            channel.close();
+        }
+    }
+
+    /**
+     * Tamanho do arquivo em bytes.
+     */
+    public long getFileSize() {
+        return HEADER_BYTES + regionCount * REGION_BYTES;
+    }
+
+    private void writeState() {
+        header.putInt(HEADER_ROOT, root);
+        header.putInt(HEADER_SIZE, size);
+        header.putInt(HEADER_NEXT_INDEX, nextIndex);
+        header.putInt(HEADER_FREE_LIST, freeList);
+    }
+
+    // Acesso aos campos dos nós
+
+    private MappedByteBuffer region(int node) { return regions[node >>> REGION_SHIFT]; }
+
+    private static int offset(int node) { return (node & REGION_MASK) * NODE_BYTES; }
+
+    @Override
+    long key(int node) { return region(node).getLong(offset(node) + KEY); }
+
+    @Override
+    int left(int node) { return region(node).getInt(offset(node) + LEFT); }
+
+    @Override
+    int right(int node) { return region(node).getInt(offset(node) + RIGHT); }
+
+    @Override
+    int height(int node) { return region(node).getInt(offset(node) + HEIGHT); }
+
+    @Override
+    void setKey(int node, long key) { region(node).putLong(offset(node) + KEY, key); }
+
+    @Override
+    void setLeft(int node, int left) { region(node).putInt(offset(node) + LEFT, left); }
+
+    @Override
+    void setRight(int node, int right) { region(node).putInt(offset(node) + RIGHT, right); }
+
+    @Override
+    void setHeight(int node, int height) { region(node).putInt(offset(node) + HEIGHT, height); }
+
+    // Gerenciamento do arquivo
+
+    @Override
+    int capacity() { return regionCount * REGION_NODES; }
+
+    @Override
+    void checkOpen() {
+        if (!open) { throw new IllegalStateException("Árvore já foi fechada"); }
+    }
+
+    /**
+     * Marca o arquivo como não fechado antes que qualquer página modificada possa chegar ao disco.
+     */
+    @Override
+    void beforeModification() {
+        if (dirty) { return; }
+        header.putInt(HEADER_CLEAN, 0);
+        header.force();
+        dirty = true;
+    }
+
+    /**
+     * Aumenta o arquivo em uma região e a mapeia.
+     */
+    @Override
+    void grow() {
+        try {
+            mapRegion();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void mapRegion() throws IOException {
+        if (regionCount == regions.length) {
+            regions = Arrays.copyOf(regions, regions.length * 2);
+        }
+        regions[regionCount] = map(HEADER_BYTES + regionCount * REGION_BYTES, REGION_BYTES);
+        regionCount++;
+    }
+
+    /**
+     * Mapeia o trecho do arquivo para leitura e escrita, aumentando o arquivo se necessário.
+     */
+    private MappedByteBuffer map(long position, long length) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, position, length);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+}
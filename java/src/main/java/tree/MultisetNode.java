@@ -0,0 +1,43 @@
+package tree;
+
+/**
+ * Nó de um multiconjunto: guarda quantas vezes o elemento foi inserido.
+ * Usado pelas árvores criadas com Tree.multiset(). Inserir um elemento repetido só incrementa o número de ocorrências,
+ * então um milhão de repetições de um elemento continuam custando um único nó.
+ * A contagem herdada de CountedNode soma as ocorrências da subárvore, para que rank e select considerem as repetições.
+ * @param <T> Tipo do elemento armazenado nos nós.
+ */
+class MultisetNode<T> extends CountedNode<T> {
+
+    /**
+     * Número de vezes que o elemento está no multiconjunto. Sempre maior que 0 enquanto o nó está na árvore.
+     */
+    private int occurrences = 1;
+
+    MultisetNode(T element, Node<T> parent) {
+        super(element, parent);
+    }
+
+    @Override
+    int occurrences() { return occurrences; }
+
+    /**
+     * Soma delta às ocorrências. A contagem da subárvore só é atualizada no próximo updadeHeight.
+     * @return Número de ocorrências depois da soma.
+     * @throws ArithmeticException Se o número de ocorrências passar de Integer.MAX_VALUE.
+     */
+    int addOccurrences(int delta) {
+        occurrences = Math.addExact(occurrences, delta);
+        return occurrences;
+    }
+
+    /**
+     * As ocorrências acompanham o elemento quando ele é copiado para outro nó.
+     */
+    @Override
+    void copyContents(Node<T> source) {
+        super.copyContents(source);
+        occurrences = ((MultisetNode<T>) source).occurrences;
+    }
+
+}
@@ -4,7 +4,15 @@ package tree;
  * Classe representando nó que só pode ser usada numa classe Tree deste pacote.
  * @param <T> Tipo do elemento armazenado nos nós.
  */
-class Node<T extends Comparable<T>> {
+class Node<T> {
+    /**
+     * Nó vazio compartilhado por todas as árvores.
+     * Ocupa o lugar de todos os filhos ausentes, então cada elemento custa um único objeto Node.
+     * Nunca é modificado: não tem elemento, filhos nem pai, e sua altura é sempre 0.
+     */
+    @SuppressWarnings("rawtypes")
+    private static final Node EMPTY = new Node();
+
     /**
      * Elemento associado a este nó.
      */
@@ -25,15 +33,31 @@ class Node<T extends Comparable<T>> {
      */
     private int height = 0;
 
-    // Construtor
+    // Construtores
+
+    /**
+     * Cria o nó vazio compartilhado.
+     */
+    private Node() { }
 
     /**
-     * Cria um nó vazio e atribui o seu pai.
+     * Cria uma folha com o elemento e atribui o seu pai.
+     * Os dois filhos são o nó vazio compartilhado.
      */
-    Node(Node<T> parent) {
+    Node(T element, Node<T> parent) {
+        this.element = element;
         this.parent = parent;
+        this.left = empty();
+        this.right = empty();
+        this.height = 1;
     }
 
+    /**
+     * Retorna o nó vazio compartilhado, tipado para o elemento da árvore.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> Node<T> empty() { return (Node<T>) EMPTY; }
+
     // Getters
 
     T getElement() { return element; }
@@ -42,7 +66,7 @@ class Node<T extends Comparable<T>> {
 
     Node<T> getRight() { return right; }
 
-    boolean isEmpty() { return (right == null && left == null); }
+    boolean isEmpty() { return this == EMPTY; }
 
     int getHeight() { return height; }
 
@@ -60,32 +84,30 @@ class Node<T extends Comparable<T>> {
     // Setters
 
     /**
-     * Atribui o elemento deste nó. Cada nó folha com um elemento possui nós vazios como filhos.
+     * Copia para este nó o conteúdo de source, sem alterar os filhos nem o pai.
+     * Usado na remoção de um nó com dois filhos, que recebe o conteúdo do seu predecessor.
+     * Subclasses que guardam mais dados junto com o elemento, como o valor em AVLMap, também os copiam.
      */
-    void setElement(T element) {
-        this.element = element;
-
-        if (isEmpty()) {
-            left = new Node<>(this);
-            right = new Node<>(this);
-            updadeHeight();
-        }
+    void copyContents(Node<T> source) {
+        this.element = source.element;
     }
 
     /**
      * Modifica o filho da esquerda e atribui este nó(this) como pai do argumento esquerda.
+     * O nó vazio compartilhado não recebe pai.
      */
     void setLeft(Node<T> left) {
         this.left = left;
-        left.parent = this;
+        if (left != EMPTY) { left.parent = this; }
     }
 
     /**
      * Modifica o filho da direita e atribui este nó(this) como pai do argumento direita.
+     * O nó vazio compartilhado não recebe pai.
      */
     void setRight(Node<T> right) {
         this.right = right;
-        right.parent = this;
+        if (right != EMPTY) { right.parent = this; }
     }
 
     // Outros métodos.
@@ -98,14 +120,4 @@ class Node<T extends Comparable<T>> {
         height =  Math.max(left.height, right.height) + 1;
     }
 
-    /**
-     * Retorna todos os valores ao padrão de um nó vazio.
-     */
-    void clear() {
-        element = null;
-        left = null;
-        right = null;
-        height = 0;
-    }
-
 }
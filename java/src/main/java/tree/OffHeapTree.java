@@ -0,0 +1,116 @@
+package tree;
+
+import jdk.incubator.foreign.MemoryAccess;
+import jdk.incubator.foreign.MemorySegment;
+import jdk.incubator.foreign.ResourceScope;
+
+import java.util.Arrays;
+
+/**
+ * Árvore binária de busca de chaves long, balanceada pelo algoritmo AVL, com os nós fora do heap da JVM.
+ * Os nós ficam em blocos de memória nativa alocados sob demanda, então a árvore pode guardar
+ * centenas de milhões de chaves sem aumentar o trabalho do Garbage Collector.
+ * <p>
+ * Cada nó ocupa NODE_BYTES bytes: chave, índice do filho esquerdo, índice do filho direito e altura.
+ * O algoritmo está em LongNodeTree; esta classe só define onde os nós são guardados.
+ * Toda a memória pertence a um único ResourceScope e é liberada de uma vez por close().
+ * Depois de close() qualquer operação lança IllegalStateException.
+ * <p>
+ * Usa a API de memória externa incubada no JDK 17 (jdk.incubator.foreign),
+ * que exige --add-modules jdk.incubator.foreign na compilação e na execução.
+ */
+public class OffHeapTree extends LongNodeTree implements AutoCloseable {
+
+    // Layout de um nó.
+    private static final long KEY = 0;
+    private static final long LEFT = 8;
+    private static final long RIGHT = 12;
+    private static final long HEIGHT = 16;
+    private static final long NODE_BYTES = 24;
+
+    /**
+     * Cada bloco guarda 2^CHUNK_SHIFT nós.
+     */
+    private static final int CHUNK_SHIFT = 16;
+    private static final int CHUNK_NODES = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_NODES - 1;
+
+    private final ResourceScope scope = ResourceScope.newSharedScope();
+    private MemorySegment[] chunks = new MemorySegment[4];
+    private int chunkCount = 0;
+
+    public OffHeapTree() {
+        // O primeiro bloco já contém o nó vazio, com altura 0, no índice 0.
+        grow();
+    }
+
+    /**
+     * Bytes de memória nativa reservados pelos blocos.
+     */
+    public long getReservedBytes() { return (long) chunkCount * CHUNK_NODES * NODE_BYTES; }
+
+    /**
+     * Libera toda a memória nativa da árvore. Chamadas repetidas não têm efeito.
+     */
+    @Override
+    public void close() {
+        if (scope.isAlive()) {
+            scope.close();
+            Arrays.fill(chunks, null);
+            root = EMPTY;
+            size = 0;
+        }
+    }
+
+    // Acesso aos campos dos nós
+
+    private MemorySegment chunk(int node) { return chunks[node >>> CHUNK_SHIFT]; }
+
+    private static long offset(int node) { return (node & CHUNK_MASK) * NODE_BYTES; }
+
+    @Override
+    long key(int node) { return MemoryAccess.getLongAtOffset(chunk(node), offset(node) + KEY); }
+
+    @Override
+    int left(int node) { return MemoryAccess.getIntAtOffset(chunk(node), offset(node) + LEFT); }
+
+    @Override
+    int right(int node) { return MemoryAccess.getIntAtOffset(chunk(node), offset(node) + RIGHT); }
+
+    @Override
+    int height(int node) { return MemoryAccess.getIntAtOffset(chunk(node), offset(node) + HEIGHT); }
+
+    @Override
+    void setKey(int node, long key) { MemoryAccess.setLongAtOffset(chunk(node), offset(node) + KEY, key); }
+
+    @Override
+    void setLeft(int node, int left) { MemoryAccess.setIntAtOffset(chunk(node), offset(node) + LEFT, left); }
+
+    @Override
+    void setRight(int node, int right) { MemoryAccess.setIntAtOffset(chunk(node), offset(node) + RIGHT, right); }
+
+    @Override
+    void setHeight(int node, int height) { MemoryAccess.setIntAtOffset(chunk(node), offset(node) + HEIGHT, height); }
+
+    // Gerenciamento da memória
+
+    @Override
+    int capacity() { return chunkCount * CHUNK_NODES; }
+
+    @Override
+    void checkOpen() {
+        if (!scope.isAlive()) { throw new IllegalStateException("Árvore já foi fechada"); }
+    }
+
+    /**
+     * Aloca mais um bloco de nós no escopo da árvore. A memória nativa nova é zerada.
+     */
+    @Override
+    void grow() {
+        if (chunkCount == chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunks.length * 2);
+        }
+        chunks[chunkCount++] = MemorySegment.allocateNative(CHUNK_NODES * NODE_BYTES, 8, scope);
+    }
+
+}
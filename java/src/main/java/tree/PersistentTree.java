@@ -0,0 +1,342 @@
+package tree;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Árvore binária de busca imutável, balanceada pelo algoritmo AVL.
+ * insert e remove não modificam a árvore: retornam uma nova árvore que compartilha com a anterior
+ * todas as subárvores que não mudaram. Só os nós no caminho da raiz até o elemento,
+ * e os poucos nós criados pelas rotações, são copiados.
+ * <p>
+ * Como uma versão nunca muda, guardar uma referência a ela já é um snapshot, que custa O(1).
+ * Leitores podem percorrer uma versão antiga pelo tempo que quiserem enquanto um escritor publica novas versões,
+ * por exemplo num campo volatile ou num AtomicReference, sem nenhum lock.
+ * <p>
+ * Os nós não têm ponteiro para o pai, ao contrário de Node, porque um mesmo nó pode estar em várias versões.
+ * @param <T> Tipo dos elementos armazenados na árvore.
+ */
+public final class PersistentTree<T extends Comparable<T>> implements Iterable<T> {
+
+    /**
+     * Tamanho estimado de um nó no heap com referências comprimidas, o padrão para heaps de até 32 GB:
+     * 12 bytes de cabeçalho, 3 referências de 4 bytes e a altura, alinhados a 8 bytes.
+     */
+    public static final int NODE_BYTES = 32;
+
+    /**
+     * Nó imutável. Todos os campos são final, então uma versão publicada é vista inteira por qualquer thread.
+     */
+    private static final class PersistentNode<T> {
+
+        @SuppressWarnings("rawtypes")
+        private static final PersistentNode EMPTY = new PersistentNode<>(null, null, null, 0);
+
+        final T element;
+        final PersistentNode<T> left;
+        final PersistentNode<T> right;
+        final int height;
+
+        private PersistentNode(T element, PersistentNode<T> left, PersistentNode<T> right, int height) {
+            this.element = element;
+            this.left = left;
+            this.right = right;
+            this.height = height;
+        }
+
+        @SuppressWarnings("unchecked")
+        static <T> PersistentNode<T> empty() { return (PersistentNode<T>) EMPTY; }
+
+        boolean isEmpty() { return this == EMPTY; }
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static final PersistentTree EMPTY_TREE = new PersistentTree(PersistentNode.empty(), 0, 0);
+
+    private final PersistentNode<T> root;
+    private final int size;
+
+    /**
+     * Número de nós criados pela operação que produziu esta versão.
+     */
+    private final int copiedNodes;
+
+    private PersistentTree(PersistentNode<T> root, int size, int copiedNodes) {
+        this.root = root;
+        this.size = size;
+        this.copiedNodes = copiedNodes;
+    }
+
+    /**
+     * Árvore vazia. Todas as árvores vazias são a mesma instância.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends Comparable<T>> PersistentTree<T> empty() { return (PersistentTree<T>) EMPTY_TREE; }
+
+    // Getters
+
+    public int getSize() { return size; }
+
+    /**
+     * Altura da árvore. 0 se estiver vazia.
+     */
+    public int getHeight() { return root.height; }
+
+    /**
+     * Número de nós alocados pelo insert ou remove que produziu esta versão.
+     * 0 se a operação não mudou nada e retornou a própria árvore.
+     */
+    public int getCopiedNodes() { return copiedNodes; }
+
+    /**
+     * Estimativa dos bytes alocados pelo insert ou remove que produziu esta versão: getCopiedNodes() * NODE_BYTES.
+     */
+    public long getCopiedBytes() { return (long) copiedNodes * NODE_BYTES; }
+
+    // Busca
+
+    /**
+     * Verifica se elemento está presente nesta versão da árvore.
+     */
+    public boolean contains(T element) {
+
+        PersistentNode<T> node = root;
+
+        while (!node.isEmpty()) {
+            int diff = node.element.compareTo(element);
+
+            if (diff > 0) {
+                node = node.left;
+            } else if (diff < 0) {
+                node = node.right;
+            } else {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    // Inserção
+
+    /**
+     * Retorna uma versão com o elemento inserido, ou esta mesma versão se o elemento já está presente.
+     */
+    public PersistentTree<T> insert(T element) {
+
+        Copies copies = new Copies();
+        PersistentNode<T> newRoot = insert(root, element, copies);
+
+        if (newRoot == root) { return this; }
+
+        return new PersistentTree<>(newRoot, size + 1, copies.count);
+    }
+
+    private static <T extends Comparable<T>> PersistentNode<T> insert(PersistentNode<T> node, T element, Copies copies) {
+
+        if (node.isEmpty()) {
+            return copies.node(element, node, node);
+        }
+
+        int diff = node.element.compareTo(element);
+
+        if (diff > 0) {
+            PersistentNode<T> left = insert(node.left, element, copies);
+            // Nada mudou abaixo: a subárvore continua sendo compartilhada.
+            if (left == node.left) { return node; }
+            return balance(node.element, left, node.right, copies);
+        } else if (diff < 0) {
+            PersistentNode<T> right = insert(node.right, element, copies);
+            if (right == node.right) { return node; }
+            return balance(node.element, node.left, right, copies);
+        }
+
+        // Elemento já existe.
+        return node;
+    }
+
+    // Remoção
+
+    /**
+     * Retorna uma versão sem o elemento, ou esta mesma versão se o elemento não está presente.
+     */
+    public PersistentTree<T> remove(T element) {
+
+        Copies copies = new Copies();
+        PersistentNode<T> newRoot = remove(root, element, copies);
+
+        if (newRoot == root) { return this; }
+
+        return new PersistentTree<>(newRoot, size - 1, copies.count);
+    }
+
+    private static <T extends Comparable<T>> PersistentNode<T> remove(PersistentNode<T> node, T element, Copies copies) {
+
+        if (node.isEmpty()) { return node; }
+
+        int diff = node.element.compareTo(element);
+
+        if (diff > 0) {
+            PersistentNode<T> left = remove(node.left, element, copies);
+            if (left == node.left) { return node; }
+            return balance(node.element, left, node.right, copies);
+        } else if (diff < 0) {
+            PersistentNode<T> right = remove(node.right, element, copies);
+            if (right == node.right) { return node; }
+            return balance(node.element, node.left, right, copies);
+        }
+
+        // Com no máximo um filho, o filho toma o lugar do nó sem nenhuma cópia.
+        if (node.left.isEmpty()) { return node.right; }
+        if (node.right.isEmpty()) { return node.left; }
+
+        // Tem dois filhos: o predecessor toma o lugar do elemento removido.
+        PersistentNode<T> predecessor = node.left;
+        while (!predecessor.right.isEmpty()) {
+            predecessor = predecessor.right;
+        }
+        PersistentNode<T> left = removeLast(node.left, copies);
+
+        return balance(predecessor.element, left, node.right, copies);
+    }
+
+    /**
+     * Remove o maior elemento da subárvore, que não pode estar vazia.
+     */
+    private static <T extends Comparable<T>> PersistentNode<T> removeLast(PersistentNode<T> node, Copies copies) {
+        if (node.right.isEmpty()) { return node.left; }
+        return balance(node.element, node.left, removeLast(node.right, copies), copies);
+    }
+
+    // Balanceamento
+
+    /**
+     * Cria a raiz de uma subárvore com element e os dois filhos, rotacionando se o balanço ficou fora de [-1, 1].
+     * Mesmos casos de Tree.leftRotation e Tree.rightRotation, mas criando nós novos em vez de modificar os existentes.
+     */
+    private static <T> PersistentNode<T> balance(T element, PersistentNode<T> left, PersistentNode<T> right, Copies copies) {
+
+        int balanceFactor = right.height - left.height;
+
+        if (balanceFactor > 1) {
+            if (right.right.height >= right.left.height) {
+                // Rotação à esquerda: right se torna a raiz.
+                PersistentNode<T> a = copies.node(element, left, right.left);
+                return copies.node(right.element, a, right.right);
+            }
+            // Rotação dupla: o filho esquerdo de right se torna a raiz.
+            PersistentNode<T> b = right.left;
+            PersistentNode<T> a = copies.node(element, left, b.left);
+            PersistentNode<T> c = copies.node(right.element, b.right, right.right);
+            return copies.node(b.element, a, c);
+        }
+
+        if (balanceFactor < -1) {
+            if (left.left.height >= left.right.height) {
+                // Rotação à direita: left se torna a raiz.
+                PersistentNode<T> c = copies.node(element, left.right, right);
+                return copies.node(left.element, left.left, c);
+            }
+            // Rotação dupla: o filho direito de left se torna a raiz.
+            PersistentNode<T> b = left.right;
+            PersistentNode<T> a = copies.node(left.element, left.left, b.left);
+            PersistentNode<T> c = copies.node(element, b.right, right);
+            return copies.node(b.element, a, c);
+        }
+
+        return copies.node(element, left, right);
+    }
+
+    /**
+     * Cria os nós de uma operação e conta quantos foram criados.
+     */
+    private static final class Copies {
+        int count = 0;
+
+        <T> PersistentNode<T> node(T element, PersistentNode<T> left, PersistentNode<T> right) {
+            count++;
+            return new PersistentNode<>(element, left, right, Math.max(left.height, right.height) + 1);
+        }
+    }
+
+    // Iteração
+
+    /**
+     * Percorre os elementos desta versão em ordem crescente.
+     * Modificações feitas depois criam outras versões e não afetam a iteração.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new PersistentIterator();
+    }
+
+    /**
+     * Iteração em ordem com uma pilha dos ancestrais ainda não visitados, já que os nós não têm pai.
+     */
+    private class PersistentIterator implements Iterator<T> {
+
+        @SuppressWarnings("unchecked")
+        private final PersistentNode<T>[] stack = (PersistentNode<T>[]) new PersistentNode<?>[Math.max(root.height, 1)];
+        private int depth = 0;
+
+        PersistentIterator() {
+            pushLeft(root);
+        }
+
+        private void pushLeft(PersistentNode<T> node) {
+            while (!node.isEmpty()) {
+                stack[depth++] = node;
+                node = node.left;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return depth > 0;
+        }
+
+        @Override
+        public T next() {
+            if (depth == 0) { throw new NoSuchElementException(); }
+            PersistentNode<T> node = stack[--depth];
+            pushLeft(node.right);
+            return node.element;
+        }
+    }
+
+    // Verificação
+
+    /**
+     * Verifica ordem, alturas e balanço de todos os nós.
+     * @return Número de elementos encontrados.
+     * @throws IllegalStateException Se alguma regra não é respeitada.
+     */
+    int checkStructure() {
+        int[] count = new int[1];
+        checkStructure(root, null, null, count);
+        return count[0];
+    }
+
+    private int checkStructure(PersistentNode<T> node, T min, T max, int[] count) {
+
+        if (node.isEmpty()) { return 0; }
+
+        if ((min != null && node.element.compareTo(min) <= 0) || (max != null && node.element.compareTo(max) >= 0)) {
+            throw new IllegalStateException("Fora de ordem: " + node.element);
+        }
+
+        int leftHeight = checkStructure(node.left, min, node.element, count);
+        int rightHeight = checkStructure(node.right, node.element, max, count);
+
+        if (node.height != 1 + Math.max(leftHeight, rightHeight)) {
+            throw new IllegalStateException("Altura incorreta em " + node.element);
+        }
+        if (Math.abs(rightHeight - leftHeight) > 1) {
+            throw new IllegalStateException("Desbalanceado em " + node.element);
+        }
+        count[0]++;
+
+        return node.height;
+    }
+
+}
@@ -0,0 +1,34 @@
+package tree;
+
+/**
+ * Operações comuns às árvores binárias de busca deste pacote.
+ * Permite trocar a implementação, por exemplo Tree por ArrayTree, sem alterar quem as usa.
+ * @param <T> Tipo dos elementos armazenados na árvore.
+ */
+public interface SearchTree<T> {
+
+    /**
+     * Número de elementos na árvore.
+     */
+    int getSize();
+
+    /**
+     * Verifica se elemento está presente na árvore.
+     * @param element Elemento procurado.
+     */
+    boolean contains(T element);
+
+    /**
+     * Insere este elemento na árvore. Balanceia a árvore caso necessário.
+     * @return True se o elemento foi inserido com sucesso, false se já existe na árvore.
+     */
+    boolean insert(T element);
+
+    /**
+     * Remove elemento da árvore se ele existir. Balanceia a árvore se necessário.
+     * @param element Elemento a ser removido.
+     * @return True se o elemento foi removido, false se não está presente.
+     */
+    boolean remove(T element);
+
+}
@@ -1,177 +1,2085 @@
 package tree;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Árvore binária de busca.
  * Balanceada automaticamente por meio do algoritmo AVL.
+ * <p>
+ * Os elementos são ordenados pela ordem natural, caso em que devem implementar Comparable,
+ * por um Comparator passado ao construtor, ou por uma chave long extraída de cada elemento, com comparingLong.
  * @param <T> Tipo dos elementos armazenados na árvore.
  */
-public class Tree<T extends Comparable<T>> {
+public class Tree<T> implements SearchTree<T>, Iterable<T> {
 
-    private Node<T> root = new Node<>(null);
+    /**
+     * Profundidade máxima de uma árvore AVL com até 2^31 elementos é menor que 1,44 * 31 + 2.
+     */
+    private static final int MAX_DEPTH = 48;
+
+    /**
+     * Subárvores com altura até este valor são processadas sequencialmente pelas operações paralelas.
+     * Uma subárvore AVL de altura 12 tem pelo menos 376 elementos.
+     */
+    private static final int PARALLEL_MIN_HEIGHT = 12;
+
+    private Node<T> root = Node.empty();
     private int size = 0;
 
-    // Getters
-    public Node<T> getRoot() { return root; }
+    /**
+     * Se verdadeiro, size não vale nada e o número de elementos é contado na próxima leitura, por size().
+     * Um split de árvore sem estatísticas de ordem não conhece o tamanho das partes e deixa as duas assim.
+     * Inserções e remoções continuam somando a size, o que mantém correta a comparação com um valor anterior
+     * em insertElement, e a contagem já inclui o efeito delas.
+     */
+    private boolean sizeUnknown = false;
+
+    /**
+     * Se verdadeiro, os nós são CountedNode e guardam o tamanho das suas subárvores.
+     */
+    private final boolean orderStatistics;
+
+    /**
+     * Se verdadeiro, a árvore é um multiconjunto: os nós são MultisetNode e contam as ocorrências de cada elemento.
+     * Multiconjuntos sempre têm estatísticas de ordem.
+     */
+    private final boolean multiset;
+
+    /**
+     * Ordem dos elementos. null indica a ordem natural, com compareTo.
+     */
+    private final Comparator<? super T> comparator;
+
+    /**
+     * Se não for null, os nós são KeyedNode e as descidas comparam as chaves guardadas neles.
+     * Nesse caso comparator compara as chaves extraídas, para os caminhos que comparam elementos.
+     */
+    private final ToLongFunction<? super T> keyExtractor;
+
+    /**
+     * Métricas das operações, ou null enquanto não forem ativadas por enableMetrics().
+     */
+    private TreeMetrics metrics;
+
+    // Construtores
+
+    /**
+     * Cria uma árvore vazia ordenada pela ordem natural dos elementos, que devem implementar Comparable.
+     */
+    public Tree() {
+        this(false, false, null, null);
+    }
+
+    /**
+     * Cria uma árvore vazia ordenada pelo comparator.
+     * Dois elementos para os quais o comparator retorna 0 são considerados o mesmo elemento.
+     */
+    public Tree(Comparator<? super T> comparator) {
+        this(false, false, Objects.requireNonNull(comparator), null);
+    }
+
+    private Tree(boolean orderStatistics, boolean multiset, Comparator<? super T> comparator,
+                 ToLongFunction<? super T> keyExtractor) {
+        this.orderStatistics = orderStatistics || multiset;
+        this.multiset = multiset;
+        this.comparator = comparator;
+        this.keyExtractor = keyExtractor;
+    }
+
+    /**
+     * Cria uma árvore vazia cujos nós também guardam o número de elementos das suas subárvores.
+     * Cada nó ocupa mais memória e toda inserção ou remoção atualiza os nós até a raiz,
+     * mas select, rank e countInRange passam a custar O(log n).
+     */
+    public static <T extends Comparable<T>> Tree<T> withOrderStatistics() {
+        return new Tree<>(true, false, null, null);
+    }
+
+    /**
+     * Como withOrderStatistics(), com os elementos ordenados pelo comparator.
+     */
+    public static <T> Tree<T> withOrderStatistics(Comparator<? super T> comparator) {
+        return new Tree<>(true, false, Objects.requireNonNull(comparator), null);
+    }
+
+    /**
+     * Cria um multiconjunto vazio: uma árvore que aceita elementos repetidos e conta as ocorrências de cada um no seu nó.
+     * insert de um elemento já presente incrementa as ocorrências e remove as decrementa, removendo o nó só na última.
+     * Os nós têm estatísticas de ordem que somam as ocorrências, então rank, select e countInRange contam as repetições.
+     * <p>
+     * getSize() é o número de elementos distintos e totalSize() o número de ocorrências.
+     * A iteração percorre os elementos distintos; count(element) informa as ocorrências de cada um.
+     * insertAll e removeAll inserem e removem uma ocorrência por elemento do lote.
+     * Entre dois multiconjuntos, union soma as ocorrências, intersection fica com a menor e difference as subtrai.
+     */
+    public static <T extends Comparable<T>> Tree<T> multiset() {
+        return new Tree<>(true, true, null, null);
+    }
+
+    /**
+     * Como multiset(), com os elementos ordenados pelo comparator.
+     */
+    public static <T> Tree<T> multiset(Comparator<? super T> comparator) {
+        return new Tree<>(true, true, Objects.requireNonNull(comparator), null);
+    }
+
+    /**
+     * Cria uma árvore vazia ordenada por uma chave long extraída de cada elemento, como Comparator.comparingLong.
+     * A chave é extraída uma vez por inserção e guardada no nó. Nas buscas a chave procurada também é extraída uma vez,
+     * e a descida compara dois long a cada nível, sem chamar compareTo ou um Comparator nos elementos,
+     * o que compensa quando os elementos são objetos cuja comparação é cara ou varia entre vários tipos.
+     * <p>
+     * Elementos com a mesma chave são considerados o mesmo elemento. A chave de um elemento não pode mudar
+     * enquanto ele estiver na árvore.
+     */
+    public static <T> Tree<T> comparingLong(ToLongFunction<? super T> keyExtractor) {
+        Objects.requireNonNull(keyExtractor);
+        return new Tree<>(false, false, Comparator.comparingLong(keyExtractor), keyExtractor);
+    }
+
+    /**
+     * Árvore vazia com a mesma ordem e o mesmo tipo de nó desta.
+     */
+    private Tree<T> emptyCopy() {
+        return new Tree<>(orderStatistics, multiset, comparator, keyExtractor);
+    }
+
+    /**
+     * Compara dois elementos pela ordem desta árvore.
+     */
+    @SuppressWarnings("unchecked")
+    private int compare(T a, T b) {
+        return comparator == null ? ((Comparable<? super T>) a).compareTo(b) : comparator.compare(a, b);
+    }
+
+    /**
+     * Comparator da ordem desta árvore, inclusive quando ela é a ordem natural.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Comparator<? super T> ordering() {
+        return comparator == null ? (Comparator) Comparator.naturalOrder() : comparator;
+    }
+
+    /**
+     * Verdadeiro se a árvore usa a ordem natural dos elementos, com compareTo.
+     */
+    boolean hasNaturalOrdering() { return comparator == null; }
+
+    // Getters
+    public Node<T> getRoot() { return root; }
+
+    /**
+     * Número de elementos distintos.
+     */
+    @Override
+    public int getSize() { return size(); }
+
+    /**
+     * Número de elementos distintos, contando os nós se ele não é conhecido desde um split.
+     */
+    private int size() {
+        if (sizeUnknown) {
+            size = countNodes(root);
+            sizeUnknown = false;
+        }
+        return size;
+    }
+
+    private void setSize(int size) {
+        this.size = size;
+        sizeUnknown = false;
+    }
+
+    private static <T> int countNodes(Node<T> node) {
+        return node.isEmpty() ? 0 : countNodes(node.getLeft()) + 1 + countNodes(node.getRight());
+    }
+
+    /**
+     * Métricas desta árvore, ou null se não foram ativadas.
+     */
+    public TreeMetrics getMetrics() { return metrics; }
+
+    /**
+     * Ativa a contagem de comparações, rotações e passos de balanceamento e a medição da latência
+     * de insert, remove e contains. Se as métricas já estão ativas, retorna as mesmas.
+     * Sem métricas, cada operação só verifica se o campo é null.
+     * <p>
+     * Deve ser chamado antes de a árvore ser compartilhada entre threads, ou sob o mesmo lock das modificações.
+     */
+    public TreeMetrics enableMetrics() {
+        if (metrics == null) { metrics = new TreeMetrics(this); }
+        return metrics;
+    }
+
+    /**
+     * Desativa as métricas. O objeto retornado antes por enableMetrics() mantém os valores, mas não é mais atualizado.
+     */
+    public void disableMetrics() { metrics = null; }
+
+    /**
+     * Número de elementos contando as repetições. Igual a getSize(), exceto nos multiconjuntos.
+     */
+    public int totalSize() { return multiset ? CountedNode.count(root) : size(); }
+
+    /**
+     * Garante que um multiconjunto com total ocorrências ainda pode ser contado num int.
+     * @throws ArithmeticException Se total passa de Integer.MAX_VALUE.
+     */
+    private static void checkTotal(long total) {
+        if (total > Integer.MAX_VALUE) {
+            throw new ArithmeticException("Total de ocorrências passaria de Integer.MAX_VALUE: " + total);
+        }
+    }
+
+    /**
+     * Desce na árvore até encontrar o elemento, comparando ele a cada nó.
+     * @param element Elemento procurado.
+     * @param node Nó a partir do qual a busca começa.
+     * @return O nó contendo o elemento, se encontrado,
+     * ou o nó vazio compartilhado, se não encontrado.
+     */
+    Node<T> find(T element, Node<T> node) {
+
+        if (keyExtractor != null) { return findKey(keyExtractor.applyAsLong(element), node); }
+
+        int comparisons = 0;
+
+        while (!node.isEmpty()) {
+
+            int diff = compare(node.getElement(), element);
+            comparisons++;
+
+            if (diff > 0) {
+                // Elemento vem antes deste nó.
+                node = node.getLeft();
+            } else if (diff < 0) {
+                // Elemento vem depois deste nó.
+                node = node.getRight();
+            } else {
+                // Elemento encontrado neste nó.
+                break;
+            }
+        }
+
+        // Se o elemento não foi encontrado, node é o nó vazio.
+        if (metrics != null) { metrics.recordFind(comparisons); }
+        return node;
+    }
+
+    /**
+     * A mesma descida de find, comparando a chave procurada com as chaves guardadas nos KeyedNode.
+     */
+    private Node<T> findKey(long key, Node<T> node) {
+
+        int comparisons = 0;
+
+        while (!node.isEmpty()) {
+
+            long nodeKey = KeyedNode.key(node);
+            comparisons++;
+
+            if (nodeKey > key) {
+                node = node.getLeft();
+            } else if (nodeKey < key) {
+                node = node.getRight();
+            } else {
+                break;
+            }
+        }
+
+        if (metrics != null) { metrics.recordFind(comparisons); }
+        return node;
+    }
+
+    /**
+     * Verifica se elemento está presente na árvore.
+     * @param element Elemento procurado.
+     */
+    @Override
+    public boolean contains(T element) {
+        TreeMetrics metrics = this.metrics;
+        if (metrics == null) { return containsElement(element); }
+
+        long start = System.nanoTime();
+        boolean found = containsElement(element);
+        metrics.recordLatency(TreeMetrics.Operation.CONTAINS, System.nanoTime() - start);
+        return found;
+    }
+
+    private boolean containsElement(T element) {
+        // Se o método encontrar retorna um nó vazio, isso significa que o elemento não foi encontrado.
+        return !find(element, root).isEmpty();
+    }
+
+    /**
+     * Mesma busca de contains, para as leituras otimistas de ConcurrentTree, que podem ver a árvore no meio de uma modificação.
+     * A descida para após MAX_DEPTH nós, para não ficar presa num ciclo momentâneo entre nós sendo rotacionados.
+     * O resultado só vale se a leitura otimista for validada depois; exceções também devem ser descartadas.
+     */
+    boolean containsOptimistic(T element) {
+
+        Node<T> node = root;
+        boolean keyed = keyExtractor != null;
+        long key = keyed ? keyExtractor.applyAsLong(element) : 0;
+
+        for (int depth = 0; depth < MAX_DEPTH && !node.isEmpty(); depth++) {
+
+            int diff = keyed ? Long.compare(KeyedNode.key(node), key) : compare(node.getElement(), element);
+
+            if (diff == 0) { return true; }
+
+            node = diff > 0 ? node.getLeft() : node.getRight();
+        }
+
+        return false;
+    }
+
+    /**
+     * Número de ocorrências do elemento: 0 se não está presente, 1 se está, exceto nos multiconjuntos.
+     */
+    public int count(T element) {
+        Node<T> node = find(element, root);
+        if (node.isEmpty()) { return 0; }
+        return multiset ? ((MultisetNode<T>) node).occurrences() : 1;
+    }
+
+    /**
+     * Insere este elemento na árvore. Balanceia a árvore caso necessário.
+     * Num multiconjunto, se o elemento já existe, incrementa as suas ocorrências.
+     * @return True se o elemento foi inserido com sucesso, false se já existe na árvore.
+     * Num multiconjunto sempre true.
+     * @throws ArithmeticException Num multiconjunto, se o total de ocorrências passar de Integer.MAX_VALUE.
+     * Nesse caso a árvore não é modificada.
+     */
+    @Override
+    public boolean insert(T element) {
+        TreeMetrics metrics = this.metrics;
+        if (metrics == null) { return insertElement(element); }
+
+        long start = System.nanoTime();
+        boolean inserted = insertElement(element);
+        metrics.recordLatency(TreeMetrics.Operation.INSERT, System.nanoTime() - start);
+        return inserted;
+    }
+
+    private boolean insertElement(T element) {
+        // Cada contagem da subárvore é no máximo a da raiz, então basta verificar a raiz antes de modificar os nós.
+        if (multiset) { checkTotal(CountedNode.count(root) + 1L); }
+        int oldSize = size;
+        Node<T> node = insertNode(element);
+        if (size != oldSize) { return true; }
+        if (!multiset) { return false; }
+
+        // Elemento repetido: nenhum nó é criado, só as contagens até a raiz mudam.
+        ((MultisetNode<T>) node).addOccurrences(1);
+        balance(node);
+        return true;
+    }
+
+    /**
+     * Insere o elemento, se ainda não existir, com uma única descida.
+     * @return O nó que contém o elemento, seja ele novo ou já existente.
+     */
+    Node<T> insertNode(T element) {
+
+        // Desce até a posição vazia onde o elemento deveria estar, guardando o último nó visitado.
+        // O nó vazio é compartilhado e não sabe quem é seu pai, por isso o pai é guardado aqui.
+        Node<T> parent = null;
+        Node<T> node = root;
+        int diff = 0;
+        // Com chave extraída, a chave do elemento é calculada uma vez e comparada com as guardadas nos nós.
+        boolean keyed = keyExtractor != null;
+        long key = keyed ? keyExtractor.applyAsLong(element) : 0;
+        // A descida é contada nas métricas como uma busca de find.
+        int comparisons = 0;
+
+        while (!node.isEmpty()) {
+            diff = keyed ? Long.compare(KeyedNode.key(node), key) : compare(node.getElement(), element);
+            comparisons++;
+
+            // Se o elemento já existe, não é inserido.
+            // A árvore não aceita com duplicados.
+            if (diff == 0) {
+                if (metrics != null) { metrics.recordFind(comparisons); }
+                return node;
+            }
+
+            parent = node;
+            node = diff > 0 ? node.getLeft() : node.getRight();
+        }
+
+        if (metrics != null) { metrics.recordFind(comparisons); }
+
+        Node<T> leaf = keyed ? new KeyedNode<>(element, parent, key) : newNode(element, parent);
+
+        if (parent == null) {
+            root = leaf;
+        } else if (diff > 0) {
+            parent.setLeft(leaf);
+        } else {
+            parent.setRight(leaf);
+        }
+
+        size += 1;
+
+        // Balanceia a subárvore modificada e todos os nós acima.
+        if (parent != null) {
+            balance(parent);
+        }
+
+        // As rotações movem os nós, não os elementos, então leaf continua contendo o elemento.
+        return leaf;
+    }
+
+    /**
+     * Remove o nó da árvore. Balanceia a árvore se necessário.
+     * @param node Nó a remover.
+     */
+    void remove(Node<T> node) {
+
+        // Em 3 dos próximos 4 casos a modificação mais profunda na árvore
+        // é no nó removido.
+        Node<T> nodeToBalance = node.parent;
+
+        if (node.getHeight() == 1) {
+            // Altura = 1 significa o mesmo que
+            // esquerda.isVazio() && direita.isVazio().
+            // Nó folha
+            // O nó vazio compartilhado toma o lugar da folha.
+            replaceNode(node, Node.empty());
+
+        } else if (node.getLeft().isEmpty()) {
+            // Tem apenas um filho à direita.
+            replaceNode(node, node.getRight());
+            // Garbage Collector pode liberar o espaço de no.
+
+        } else if (node.getRight().isEmpty()) {
+            // Tem apenas um filho à esquerda.
+            replaceNode(node, node.getLeft());
+            // Garbage Collector pode liberar o espaço de no.
+
+        } else {
+            // Tem dois filhos.
+
+            // Encontra nós mais à direita na subárvore esquerda.
+            Node<T> predecessor = node.getLeft();
+            while (!predecessor.getRight().isEmpty()) {
+                predecessor =  predecessor.getRight();
+            }
+
+            // Coloca o elemento mais à direita da subárvore esquerda no lugar do elemento removido.
+            node.copyContents(predecessor);
+            // A árvore será balanceada quando o predecessor for removido.
+            nodeToBalance = null;
+            // Como o elemento predecessor está no lugar do elemento removido, ele pode ser excluido.
+            remove(predecessor);
+            // Anulando a modificação dupla da contagem devido à remoção do predecessor.
+            size += 1;
+
+            // Garbage Collector pode liberar o espaço de no.
+        }
+
+        size -= 1;
+
+        if (nodeToBalance != null) {
+            balance(nodeToBalance);
+        }
+
+    }
+
+    /**
+     * Remove elemento da árvore se ele existir. Balanceia a árvore se necessário.
+     * Num multiconjunto remove uma ocorrência, e o nó só quando era a última.
+     * @param element Elemento a ser removido.
+     * @return True se o elemento foi removido, false se não está presente.
+     */
+    @Override
+    public boolean remove(T element) {
+        TreeMetrics metrics = this.metrics;
+        if (metrics == null) { return removeElement(element); }
+
+        long start = System.nanoTime();
+        boolean removed = removeElement(element);
+        metrics.recordLatency(TreeMetrics.Operation.REMOVE, System.nanoTime() - start);
+        return removed;
+    }
+
+    private boolean removeElement(T element) {
+
+        Node<T> node = find(element, root);
+
+        if (node.isEmpty()) { return false; }
+
+        if (multiset && ((MultisetNode<T>) node).occurrences() > 1) {
+            ((MultisetNode<T>) node).addOccurrences(-1);
+            balance(node);
+            return true;
+        }
+
+        remove(node);
+        return true;
+    }
+
+    /**
+     * Remove todos os elementos.
+     */
+    void clear() {
+        root = Node.empty();
+        setSize(0);
+    }
+
+    /**
+     * Cria uma folha do tipo usado por esta árvore.
+     * AVLMap sobrescreve este método para criar nós que também guardam o valor.
+     */
+    Node<T> newNode(T element, Node<T> parent) {
+        if (keyExtractor != null) { return new KeyedNode<>(element, parent, keyExtractor.applyAsLong(element)); }
+        if (multiset) { return new MultisetNode<>(element, parent); }
+        return orderStatistics ? new CountedNode<>(element, parent) : new Node<>(element, parent);
+    }
+
+    // Estatísticas de ordem
+
+    /**
+     * Elemento na posição k da ordem crescente. select(0) é o menor elemento.
+     * Num multiconjunto cada ocorrência ocupa uma posição.
+     * @throws UnsupportedOperationException Se a árvore não foi criada com withOrderStatistics().
+     * @throws IndexOutOfBoundsException Se k não está entre 0 e totalSize() - 1.
+     */
+    public T select(int k) {
+        checkOrderStatistics();
+        int total = totalSize();
+        if (k < 0 || k >= total) {
+            throw new IndexOutOfBoundsException("Posição %d fora da árvore de %d elementos".formatted(k, total));
+        }
+
+        Node<T> node = root;
+
+        while (true) {
+            int leftCount = CountedNode.count(node.getLeft());
+            int occurrences = ((CountedNode<T>) node).occurrences();
+
+            if (k < leftCount) {
+                node = node.getLeft();
+            } else if (k >= leftCount + occurrences) {
+                // Descarta a subárvore esquerda e este nó.
+                k -= leftCount + occurrences;
+                node = node.getRight();
+            } else {
+                return node.getElement();
+            }
+        }
+    }
+
+    /**
+     * Número de elementos menores que element. Também é a posição de element na ordem crescente, se ele estiver na árvore.
+     * Num multiconjunto conta todas as ocorrências dos elementos menores.
+     * @throws UnsupportedOperationException Se a árvore não foi criada com withOrderStatistics().
+     */
+    public int rank(T element) {
+        checkOrderStatistics();
+
+        Node<T> node = root;
+        int rank = 0;
+
+        while (!node.isEmpty()) {
+            int diff = compare(node.getElement(), element);
+
+            if (diff > 0) {
+                node = node.getLeft();
+            } else if (diff < 0) {
+                // Este nó e toda a subárvore esquerda são menores.
+                rank += CountedNode.count(node.getLeft()) + ((CountedNode<T>) node).occurrences();
+                node = node.getRight();
+            } else {
+                return rank + CountedNode.count(node.getLeft());
+            }
+        }
+
+        return rank;
+    }
+
+    /**
+     * Número de elementos maiores ou iguais a from e menores que to, os mesmos percorridos por subRange(from, to).
+     * @throws UnsupportedOperationException Se a árvore não foi criada com withOrderStatistics().
+     */
+    public int countInRange(T from, T to) {
+        if (compare(from, to) > 0) {
+            throw new IllegalArgumentException("Início maior que o fim: %s, %s".formatted(from, to));
+        }
+        return rank(to) - rank(from);
+    }
+
+    private void checkOrderStatistics() {
+        if (!orderStatistics) {
+            throw new UnsupportedOperationException("Árvore não foi criada com Tree.withOrderStatistics()");
+        }
+    }
+
+    // Construção em lote
+
+    /**
+     * Cria uma árvore perfeitamente balanceada a partir de elementos já ordenados, em tempo linear.
+     * Os nós são criados em ordem, da esquerda para a direita, e nenhuma rotação é necessária.
+     * @param sorted Elementos em ordem estritamente crescente.
+     * @throws IllegalArgumentException Se os elementos não estão em ordem estritamente crescente.
+     */
+    @SafeVarargs
+    public static <T extends Comparable<T>> Tree<T> fromSorted(T... sorted) {
+        // Só os elementos são lidos: o array não é repassado, então @SafeVarargs vale.
+        return fromSorted(IntStream.range(0, sorted.length).mapToObj(i -> sorted[i]).iterator(), sorted.length);
+    }
+
+    /**
+     * Cria uma árvore perfeitamente balanceada a partir de elementos já ordenados, em tempo linear.
+     * @param sorted Iterador dos elementos em ordem estritamente crescente.
+     * @param count Número de elementos que serão lidos do iterador.
+     * @throws IllegalArgumentException Se os elementos não estão em ordem estritamente crescente
+     * ou se o iterador tem menos do que count elementos.
+     */
+    public static <T extends Comparable<T>> Tree<T> fromSorted(Iterator<? extends T> sorted, int count) {
+        if (count < 0) { throw new IllegalArgumentException("Número de elementos negativo: " + count); }
+
+        Tree<T> tree = new Tree<>();
+        tree.root = tree.new SortedBuilder(sorted).build(count);
+        tree.size = count;
+        return tree;
+    }
+
+    /**
+     * Insere todos os elementos da coleção, ignorando os que já estão na árvore.
+     * Se a coleção é grande em relação à árvore, os elementos são ordenados, intercalados com os da árvore
+     * e a árvore é reconstruída perfeitamente balanceada, em tempo O(n + m log m).
+     * Caso contrário os elementos são inseridos um a um.
+     * @return Número de elementos que foram inseridos.
+     */
+    public int bulkInsert(Collection<? extends T> elements) {
+
+        int batchSize = elements.size();
+        if (batchSize == 0) { return 0; }
+        int size = size();
+
+        // Reconstruir custa O(n); inserir um a um custa O(m log n).
+        // A reconstrução eliminaria as repetições, então um multiconjunto sempre insere um a um.
+        if (multiset || (long) batchSize * (32 - Integer.numberOfLeadingZeros(size)) < size) {
+            int inserted = 0;
+            for (T element : elements) {
+                if (insert(element)) { inserted++; }
+            }
+            return inserted;
+        }
+
+        @SuppressWarnings("unchecked")
+        T[] batch = (T[]) elements.toArray();
+        Arrays.sort(batch, ordering());
+
+        @SuppressWarnings("unchecked")
+        T[] merged = (T[]) new Object[size + batchSize];
+        int count = 0;
+        int i = 0;
+        Node<T> node = firstNode(root);
+
+        // Intercala os elementos da árvore, em ordem, com os elementos ordenados do lote, sem repetições.
+        while (!node.isEmpty() || i < batchSize) {
+            T next;
+            if (node.isEmpty()) {
+                next = batch[i++];
+            } else if (i == batchSize || compare(node.getElement(), batch[i]) <= 0) {
+                next = node.getElement();
+                node = successor(node);
+            } else {
+                next = batch[i++];
+            }
+
+            if (count == 0 || compare(merged[count - 1], next) != 0) {
+                merged[count++] = next;
+            }
+        }
+
+        int inserted = count - size;
+        root = new SortedBuilder(Arrays.asList(merged).iterator()).build(count);
+        setSize(count);
+        return inserted;
+    }
+
+    /**
+     * Constrói uma subárvore balanceada consumindo os elementos de um iterador ordenado.
+     */
+    private class SortedBuilder {
+
+        private final Iterator<? extends T> iterator;
+        private T previous = null;
+
+        SortedBuilder(Iterator<? extends T> iterator) {
+            this.iterator = iterator;
+        }
+
+        /**
+         * Cria a subárvore com os próximos count elementos: primeiro a metade esquerda, depois a raiz, depois a direita.
+         * A recursão tem profundidade log2(count).
+         * @return Raiz da subárvore, sem pai.
+         */
+        Node<T> build(int count) {
+
+            if (count == 0) { return Node.empty(); }
+
+            int leftCount = (count - 1) / 2;
+            Node<T> left = build(leftCount);
+
+            Node<T> node = newNode(next(), null);
+            int occurrences = occurrences();
+            if (occurrences > 1) { ((MultisetNode<T>) node).addOccurrences(occurrences - 1); }
+            node.setLeft(left);
+            node.setRight(build(count - leftCount - 1));
+            node.updadeHeight();
+
+            return node;
+        }
+
+        private T next() {
+            if (!iterator.hasNext()) {
+                throw new IllegalArgumentException("Iterador tem menos elementos do que o informado");
+            }
+            T element = iterator.next();
+            if (previous != null && compare(previous, element) >= 0) {
+                throw new IllegalArgumentException("Elementos não estão em ordem estritamente crescente: %s, %s"
+                        .formatted(previous, element));
+            }
+            previous = element;
+            return element;
+        }
+
+        /**
+         * Ocorrências do elemento que acabou de ser lido do iterador. Maior que 1 só nos multiconjuntos.
+         */
+        int occurrences() { return 1; }
+    }
+
+    // Snapshot binário
+
+    /**
+     * "AVLSNAP1" em ASCII.
+     */
+    static final long SNAPSHOT_MAGIC = 0x41564C534E415031L;
+    static final int SNAPSHOT_VERSION = 1;
+    private static final int SNAPSHOT_MULTISET = 1;
+
+    /**
+     * Escreve todos os elementos no canal, em ordem, num formato binário compacto.
+     * Os elementos são codificados um a um num buffer de tamanho fixo, sem copiar a árvore.
+     * O canal não é fechado.
+     * <p>
+     * Formato, em little-endian:
+     * <pre>
+     * long   SNAPSHOT_MAGIC
+     * int    SNAPSHOT_VERSION
+     * byte   flags: 1 se a árvore é um multiconjunto
+     * varint número de elementos distintos
+     * Para cada elemento, em ordem:
+     *   bytes escritos por codec.write
+     *   varint ocorrências, só nos multiconjuntos
+     * </pre>
+     * @param codec Codifica cada elemento em relação ao anterior.
+     */
+    public void writeTo(WritableByteChannel channel, ElementCodec<? super T> codec) throws IOException {
+
+        ElementCodec.Output out = new ElementCodec.Output(channel);
+        out.writeLong(SNAPSHOT_MAGIC);
+        out.writeInt(SNAPSHOT_VERSION);
+        out.writeByte(multiset ? SNAPSHOT_MULTISET : 0);
+        out.writeVarLong(size());
+
+        T previous = null;
+        for (Node<T> node = firstNode(root); !node.isEmpty(); node = successor(node)) {
+            codec.write(previous, node.getElement(), out);
+            if (multiset) { out.writeVarLong(((MultisetNode<T>) node).occurrences()); }
+            previous = node.getElement();
+        }
+
+        out.flush();
+    }
+
+    /**
+     * Lê um snapshot escrito por writeTo para esta árvore, que deve estar vazia, e mantém a ordem e o tipo de nó dela.
+     * A árvore é reconstruída perfeitamente balanceada em tempo linear, sem rotações,
+     * lendo os elementos do canal à medida que os nós são criados.
+     * A leitura usa um buffer, então bytes depois do fim do snapshot podem ser consumidos do canal.
+     * @param codec O mesmo codec usado em writeTo.
+     * @throws IOException Se o canal não contém um snapshot, se ele está incompleto ou se os elementos não estão
+     * em ordem estritamente crescente pela ordem desta árvore. Nesse caso a árvore continua vazia.
+     * @throws IllegalStateException Se a árvore não está vazia.
+     */
+    public void readFrom(ReadableByteChannel channel, ElementCodec<T> codec) throws IOException {
+
+        if (!root.isEmpty()) { throw new IllegalStateException("A árvore não está vazia"); }
+
+        ElementCodec.Input in = new ElementCodec.Input(channel);
+        if (in.readLong() != SNAPSHOT_MAGIC) { throw new IOException("Canal não contém um snapshot de árvore"); }
+        int version = in.readInt();
+        if (version != SNAPSHOT_VERSION) { throw new IOException("Versão do snapshot não suportada: " + version); }
+        boolean snapshotMultiset = (in.readByte() & SNAPSHOT_MULTISET) != 0;
+        if (snapshotMultiset != multiset) {
+            throw new IOException(snapshotMultiset ? "Snapshot de multiconjunto numa árvore sem repetições"
+                    : "Snapshot sem repetições num multiconjunto");
+        }
+        long count = in.readVarLong();
+        // Um varint corrompido pode ter qualquer valor, inclusive negativo, que faria SortedBuilder.build não terminar.
+        if (count < 0 || count > Integer.MAX_VALUE) { throw new IOException("Número de elementos inválido: " + count); }
+
+        // O iterador lê um elemento do canal por chamada. Os erros de leitura atravessam o SortedBuilder como unchecked.
+        class SnapshotIterator implements Iterator<T> {
+            T previous = null;
+            int occurrences = 1;
+
+            @Override
+            public boolean hasNext() { return true; }
+
+            @Override
+            public T next() {
+                try {
+                    previous = codec.read(previous, in);
+                    if (multiset) {
+                        long value = in.readVarLong();
+                        if (value < 1 || value > Integer.MAX_VALUE) {
+                            throw new IOException("Número de ocorrências inválido: " + value);
+                        }
+                        occurrences = (int) value;
+                    }
+                    return previous;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+
+        SnapshotIterator elements = new SnapshotIterator();
+        SortedBuilder builder = new SortedBuilder(elements) {
+            @Override
+            int occurrences() { return elements.occurrences; }
+        };
+
+        try {
+            root = builder.build((int) count);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (IllegalArgumentException | ArithmeticException e) {
+            // ArithmeticException: ocorrências que somam mais que Integer.MAX_VALUE.
+            throw new IOException("Snapshot corrompido: " + e.getMessage(), e);
+        }
+        setSize((int) count);
+    }
+
+    /**
+     * Cópia com a mesma ordem, o mesmo tipo de nó e os mesmos elementos, perfeitamente balanceada, em tempo linear.
+     * Os elementos não são copiados, só os nós.
+     */
+    Tree<T> copy() {
+
+        class NodeIterator implements Iterator<T> {
+            Node<T> next = firstNode(root);
+            Node<T> current;
+
+            @Override
+            public boolean hasNext() { return !next.isEmpty(); }
+
+            @Override
+            public T next() {
+                current = next;
+                next = successor(next);
+                return current.getElement();
+            }
+        }
+
+        NodeIterator nodes = new NodeIterator();
+        Tree<T> copy = emptyCopy();
+        copy.root = copy.new SortedBuilder(nodes) {
+            @Override
+            int occurrences() { return multiset ? ((MultisetNode<T>) nodes.current).occurrences() : 1; }
+        }.build(size());
+        copy.size = size;
+        return copy;
+    }
+
+    /**
+     * Cópia imutável dos elementos num array no layout de Eytzinger, para buscas mais rápidas que na árvore.
+     * A cópia custa O(n) e não muda quando a árvore é modificada. Ver FrozenTree.
+     */
+    public FrozenTree<T> freeze() {
+        return new FrozenTree<>(this, comparator, keyExtractor, multiset);
+    }
+
+    // Split, join e operações de conjuntos
+
+    private enum SetOperationKind { UNION, INTERSECTION, DIFFERENCE }
+
+    /**
+     * Insere os elementos de um lote ordenado, ignorando os que já estão na árvore.
+     * O lote vira uma árvore balanceada em tempo linear, que é unida à árvore com split e join,
+     * em tempo O(m log(n / m + 1)) para m elementos no lote: bem menos do que m inserções quando o lote é grande.
+     * Elementos já presentes mantêm o objeto que estava na árvore.
+     * @param sorted Elementos em ordem estritamente crescente.
+     * @return Número de elementos que foram inseridos.
+     * @throws IllegalArgumentException Se os elementos não estão em ordem estritamente crescente. A árvore não é modificada.
+     */
+    public int insertAll(Collection<? extends T> sorted) {
+
+        int batchSize = sorted.size();
+        if (batchSize == 0) { return 0; }
+
+        Node<T> batch = new SortedBuilder(sorted.iterator()).build(batchSize);
+
+        SetOperation operation = new SetOperation(SetOperationKind.UNION, takeRoot(), batch, false);
+        setRoot(operation.compute());
+
+        size += batchSize - operation.matched;
+        // Num multiconjunto os elementos já presentes também ganham uma ocorrência.
+        return multiset ? batchSize : batchSize - operation.matched;
+    }
+
+    /**
+     * Remove os elementos de um lote ordenado, ignorando os que não estão na árvore.
+     * Como insertAll, usa split e join em tempo O(m log(n / m + 1)).
+     * @param sorted Elementos em ordem estritamente crescente.
+     * @return Número de elementos que foram removidos.
+     * @throws IllegalArgumentException Se os elementos não estão em ordem estritamente crescente. A árvore não é modificada.
+     */
+    public int removeAll(Collection<? extends T> sorted) {
+
+        int batchSize = sorted.size();
+        if (batchSize == 0) { return 0; }
+
+        Node<T> batch = new SortedBuilder(sorted.iterator()).build(batchSize);
+
+        SetOperation operation = new SetOperation(SetOperationKind.DIFFERENCE, takeRoot(), batch, false);
+        setRoot(operation.compute());
+
+        // Num multiconjunto um elemento com mais ocorrências continua na árvore.
+        size -= operation.matched - operation.retained;
+        return operation.matched;
+    }
+
+    /**
+     * Cria uma árvore com os elementos de left, element e os elementos de right, em tempo O(|altura de left - altura de right|).
+     * Os nós de left e right são reaproveitados: as duas árvores ficam vazias.
+     * @throws IllegalArgumentException Se algum elemento de left não é menor que element, algum elemento de right
+     * não é maior que element, ou se uma árvore tem estatísticas de ordem e a outra não.
+     * @throws ArithmeticException Se são multiconjuntos e o total de ocorrências passaria de Integer.MAX_VALUE.
+     */
+    public static <T> Tree<T> join(Tree<T> left, T element, Tree<T> right) {
+
+        checkCompatible(left, right);
+
+        if (!left.root.isEmpty() && left.compare(left.lastNode(left.root).getElement(), element) >= 0) {
+            throw new IllegalArgumentException("Elemento não é maior que todos os da árvore à esquerda: " + element);
+        }
+        if (!right.root.isEmpty() && right.compare(right.firstNode(right.root).getElement(), element) <= 0) {
+            throw new IllegalArgumentException("Elemento não é menor que todos os da árvore à direita: " + element);
+        }
+
+        if (left.multiset) { checkTotal((long) left.totalSize() + right.totalSize() + 1); }
+
+        Tree<T> result = left.emptyCopy();
+        // Um tamanho desconhecido depois de um split continua desconhecido, para não contar os nós aqui.
+        boolean sizeUnknown = left.sizeUnknown || right.sizeUnknown;
+        int size = left.size + right.size + 1;
+
+        result.setRoot(result.join(left.takeRoot(), result.newNode(element, null), right.takeRoot()));
+        result.setSize(size);
+        result.sizeUnknown = sizeUnknown;
+        left.setSize(0);
+        right.setSize(0);
+        return result;
+    }
+
+    /**
+     * Move para uma nova árvore os elementos maiores ou iguais a element, em tempo O(log n), e retorna a nova árvore.
+     * Esta árvore fica com os elementos menores, como em subRange, o que inclui element fica do lado direito.
+     * <p>
+     * Com estatísticas de ordem os tamanhos das duas partes são lidos das contagens.
+     * Sem elas, inclusive num multiconjunto, os tamanhos só são calculados se forem usados, contando os nós
+     * da parte na primeira chamada de getSize(), ou de outra operação que precise do tamanho, depois do split.
+     */
+    public Tree<T> split(T element) {
+
+        Splitter splitter = new Splitter();
+        splitter.split(takeRoot(), element);
+
+        Tree<T> greater = emptyCopy();
+
+        Node<T> right = splitter.right;
+        if (splitter.found != null) {
+            // O próprio element fica na parte direita, como seu menor elemento.
+            right = join(Node.empty(), splitter.found, right);
+        }
+
+        setRoot(splitter.left);
+        greater.setRoot(right);
+
+        if (orderStatistics && !multiset) {
+            setSize(CountedNode.count(root));
+            greater.setSize(CountedNode.count(right));
+        } else {
+            // Sem contagens de nós, inclusive num multiconjunto, em que as contagens somam ocorrências,
+            // os tamanhos só são contados se forem lidos.
+            sizeUnknown = true;
+            greater.sizeUnknown = true;
+        }
+
+        return greater;
+    }
+
+    /**
+     * União de a e b, em tempo O(m log(n / m + 1)) para m o tamanho da menor.
+     * Os nós das duas árvores são reaproveitados pelo resultado: a e b ficam vazias.
+     * Elementos presentes nas duas mantêm o objeto de a.
+     * @throws IllegalArgumentException Se a e b são a mesma árvore, ou se uma tem estatísticas de ordem e a outra não.
+     * @throws ArithmeticException Se são multiconjuntos e o total de ocorrências passaria de Integer.MAX_VALUE.
+     * Nesse caso nenhuma das duas é modificada.
+     */
+    public static <T> Tree<T> union(Tree<T> a, Tree<T> b) {
+        return setOperation(SetOperationKind.UNION, a, b, false);
+    }
+
+    /**
+     * Elementos presentes em a e em b, em tempo O(m log(n / m + 1)). Os nós de a são reaproveitados: a e b ficam vazias.
+     * @throws IllegalArgumentException Se a e b são a mesma árvore, ou se uma tem estatísticas de ordem e a outra não.
+     */
+    public static <T> Tree<T> intersection(Tree<T> a, Tree<T> b) {
+        return setOperation(SetOperationKind.INTERSECTION, a, b, false);
+    }
+
+    /**
+     * Elementos de a que não estão em b, em tempo O(m log(n / m + 1)). Os nós de a são reaproveitados: a e b ficam vazias.
+     * @throws IllegalArgumentException Se a e b são a mesma árvore, ou se uma tem estatísticas de ordem e a outra não.
+     */
+    public static <T> Tree<T> difference(Tree<T> a, Tree<T> b) {
+        return setOperation(SetOperationKind.DIFFERENCE, a, b, false);
+    }
+
+    /**
+     * Mesmo resultado de union, com as duas metades de cada nível da recursão executadas em paralelo
+     * no ForkJoinPool comum enquanto as subárvores forem grandes.
+     */
+    public static <T> Tree<T> parallelUnion(Tree<T> a, Tree<T> b) {
+        return setOperation(SetOperationKind.UNION, a, b, true);
+    }
+
+    /**
+     * Mesmo resultado de intersection, executado em paralelo como parallelUnion.
+     */
+    public static <T> Tree<T> parallelIntersection(Tree<T> a, Tree<T> b) {
+        return setOperation(SetOperationKind.INTERSECTION, a, b, true);
+    }
+
+    /**
+     * Mesmo resultado de difference, executado em paralelo como parallelUnion.
+     */
+    public static <T> Tree<T> parallelDifference(Tree<T> a, Tree<T> b) {
+        return setOperation(SetOperationKind.DIFFERENCE, a, b, true);
+    }
+
+    private static <T> Tree<T> setOperation(SetOperationKind kind, Tree<T> a, Tree<T> b, boolean parallel) {
+        checkCompatible(a, b);
+        if (a == b) { throw new IllegalArgumentException("A mesma árvore nos dois argumentos"); }
+        // Só a união pode somar mais ocorrências do que as de a ou de b.
+        if (kind == SetOperationKind.UNION && a.multiset) { checkTotal((long) a.totalSize() + b.totalSize()); }
+
+        // Como em join, um tamanho desconhecido não é contado. A interseção só depende de matched, e a diferença não depende de b.
+        boolean sizeUnknown = kind == SetOperationKind.UNION ? a.sizeUnknown || b.sizeUnknown
+                : kind == SetOperationKind.DIFFERENCE && a.sizeUnknown;
+        int sizeA = a.size;
+        int sizeB = b.size;
+        Tree<T> result = a.emptyCopy();
+
+        // Os elementos de b dividem a: um elemento presente nas duas é encontrado como nó de a.
+        Tree<T>.SetOperation operation = result.new SetOperation(kind, a.takeRoot(), b.takeRoot(), parallel);
+        result.setRoot(parallel ? ForkJoinPool.commonPool().invoke(operation) : operation.compute());
+
+        switch (kind) {
+            case UNION:
+                result.setSize(sizeA + sizeB - operation.matched);
+                break;
+            case INTERSECTION:
+                result.setSize(operation.matched);
+                break;
+            default:
+                result.setSize(sizeA - operation.matched + operation.retained);
+        }
+        result.sizeUnknown = sizeUnknown;
+        a.setSize(0);
+        b.setSize(0);
+
+        return result;
+    }
+
+    private static void checkCompatible(Tree<?> a, Tree<?> b) {
+        if (a.orderStatistics != b.orderStatistics) {
+            throw new IllegalArgumentException("Uma árvore tem estatísticas de ordem e a outra não");
+        }
+        if (a.multiset != b.multiset) {
+            throw new IllegalArgumentException("Uma árvore é multiconjunto e a outra não");
+        }
+        // Árvores com chave extraída precisam da mesma função, já que cada uma cria seu Comparator com comparingLong.
+        if (a.keyExtractor != b.keyExtractor || (a.keyExtractor == null && !Objects.equals(a.comparator, b.comparator))) {
+            throw new IllegalArgumentException("As árvores não têm a mesma ordem");
+        }
+    }
+
+    /**
+     * Operação de conjuntos entre duas subárvores sem pai, contando os elementos encontrados nas duas.
+     * Segue Blelloch, Ferizovic e Sun, "Just Join for Parallel Ordered Sets" (SPAA 2016):
+     * pivots é percorrida e tree é dividida pelo elemento de cada nó visitado. As duas metades de cada nível
+     * são independentes, então a versão paralela executa uma delas numa nova tarefa.
+     */
+    // As tarefas do ForkJoinPool herdam Serializable, mas só existem durante a operação e nunca são serializadas.
+    @SuppressWarnings("serial")
+    private class SetOperation extends RecursiveTask<Node<T>> {
+
+        private final SetOperationKind kind;
+        private final Node<T> tree;
+        private final Node<T> pivots;
+        private final boolean parallel;
+        private final Splitter splitter = new Splitter();
+
+        /**
+         * Número de elementos de pivots que também estavam em tree, somando as tarefas criadas por esta.
+         */
+        int matched = 0;
+
+        /**
+         * Na diferença entre multiconjuntos, número de elementos encontrados que continuam no resultado
+         * porque tinham mais ocorrências em tree do que em pivots.
+         */
+        int retained = 0;
+
+        SetOperation(SetOperationKind kind, Node<T> tree, Node<T> pivots, boolean parallel) {
+            this.kind = kind;
+            this.tree = tree;
+            this.pivots = pivots;
+            this.parallel = parallel;
+        }
+
+        @Override
+        protected Node<T> compute() {
+            return apply(tree, pivots);
+        }
+
+        private Node<T> apply(Node<T> tree, Node<T> pivots) {
+
+            if (pivots.isEmpty()) { return kind == SetOperationKind.INTERSECTION ? pivots : tree; }
+            if (tree.isEmpty()) { return kind == SetOperationKind.UNION ? pivots : tree; }
+
+            splitter.split(tree, pivots.getElement());
+            Node<T> treeLeft = splitter.left;
+            Node<T> found = splitter.found;
+            Node<T> treeRight = splitter.right;
+
+            if (found != null) { matched++; }
+
+            // Na união os nós de pivots passam a fazer parte do resultado.
+            Node<T> pivotsLeft = kind == SetOperationKind.UNION ? detach(pivots.getLeft()) : pivots.getLeft();
+            Node<T> pivotsRight = kind == SetOperationKind.UNION ? detach(pivots.getRight()) : pivots.getRight();
+
+            Node<T> left;
+            Node<T> right;
+
+            // As duas subárvores precisam ser altas para que a tarefa compense.
+            if (parallel && pivots.getHeight() > PARALLEL_MIN_HEIGHT && tree.getHeight() > PARALLEL_MIN_HEIGHT) {
+                SetOperation task = new SetOperation(kind, treeLeft, pivotsLeft, true);
+                task.fork();
+                right = apply(treeRight, pivotsRight);
+                left = task.join();
+                matched += task.matched;
+                retained += task.retained;
+            } else {
+                left = apply(treeLeft, pivotsLeft);
+                right = apply(treeRight, pivotsRight);
+            }
+
+            // Num multiconjunto o nó encontrado fica com as ocorrências do resultado.
+            // join recalcula a contagem do nó, já que ele recebe os filhos novamente.
+            int delta = found != null && multiset ? occurrencesDelta(found, pivots) : 0;
+
+            switch (kind) {
+                case UNION:
+                    // O nó de tree é mantido no lugar do nó de pivots com o mesmo elemento.
+                    return Tree.this.join(left, found != null ? found : pivots, right);
+                case INTERSECTION:
+                    return found != null ? Tree.this.join(left, found, right) : Tree.this.join(left, right);
+                default:
+                    if (delta < 0) {
+                        retained++;
+                        return Tree.this.join(left, found, right);
+                    }
+                    return Tree.this.join(left, right);
+            }
+        }
+
+        /**
+         * Ajusta as ocorrências de found, de tree, às do resultado, dadas as ocorrências do mesmo elemento em pivot.
+         * @return A variação das ocorrências de found. Na diferença, negativa se o elemento continua no resultado.
+         */
+        private int occurrencesDelta(Node<T> found, Node<T> pivot) {
+            MultisetNode<T> node = (MultisetNode<T>) found;
+            int pivotOccurrences = ((MultisetNode<T>) pivot).occurrences();
+
+            int delta;
+            switch (kind) {
+                case UNION:
+                    delta = pivotOccurrences;
+                    break;
+                case INTERSECTION:
+                    delta = Math.min(0, pivotOccurrences - node.occurrences());
+                    break;
+                default:
+                    // Se não sobra nenhuma ocorrência o nó sai do resultado e não precisa ser modificado.
+                    if (node.occurrences() <= pivotOccurrences) { return 0; }
+                    delta = -pivotOccurrences;
+            }
+            node.addOccurrences(delta);
+            return delta;
+        }
+    }
+
+    /**
+     * Divide subárvores sem pai. O resultado fica nos campos para não criar um objeto por nível da recursão;
+     * eles são lidos logo após cada chamada.
+     */
+    private class Splitter {
+
+        /**
+         * Elementos menores, nó do elemento se ele existia, e elementos maiores.
+         */
+        Node<T> left;
+        Node<T> found;
+        Node<T> right;
+
+        /**
+         * Divide a subárvore sem pai em duas subárvores balanceadas sem pai, com os elementos menores e maiores que element.
+         * Os nós no caminho até element são reaproveitados como nós do meio de join. Custa O(log n).
+         */
+        void split(Node<T> node, T element) {
+
+            if (node.isEmpty()) {
+                left = node;
+                found = null;
+                right = node;
+                return;
+            }
+
+            Node<T> nodeLeft = detach(node.getLeft());
+            Node<T> nodeRight = detach(node.getRight());
+
+            int diff = compare(node.getElement(), element);
+
+            if (diff == 0) {
+                left = nodeLeft;
+                found = node;
+                right = nodeRight;
+            } else if (diff > 0) {
+                split(nodeLeft, element);
+                right = join(right, node, nodeRight);
+            } else {
+                split(nodeRight, element);
+                left = join(nodeLeft, node, left);
+            }
+        }
+    }
+
+    /**
+     * Junta duas subárvores sem pai, com todos os elementos de left menores que todos os de right.
+     * O maior elemento de left é retirado e usado como nó do meio.
+     */
+    private Node<T> join(Node<T> left, Node<T> right) {
+
+        if (left.isEmpty()) { return right; }
+        if (right.isEmpty()) { return left; }
+
+        Node<T> last = left;
+        while (!last.getRight().isEmpty()) {
+            last = last.getRight();
+        }
+
+        // Retira last de left como remove faria com uma folha ou um nó com só o filho esquerdo.
+        Node<T> parent = last.parent;
+        Node<T> child = last.getLeft();
+        if (parent == null) {
+            left = detach(child);
+        } else {
+            parent.setRight(child);
+            balance(parent);
+            left = top(parent);
+        }
+
+        return join(left, last, right);
+    }
+
+    /**
+     * Junta duas subárvores sem pai e o nó middle, com left < middle < right. Custa O(|altura de left - altura de right|).
+     * Se as alturas são próximas, middle se torna a raiz. Senão middle desce pela borda da subárvore mais alta
+     * até uma subárvore com altura próxima da outra, e a subida de balance corrige as alturas e rotaciona se necessário.
+     * @return A raiz da subárvore resultante, sem pai.
+     */
+    private Node<T> join(Node<T> left, Node<T> middle, Node<T> right) {
+
+        int leftHeight = left.getHeight();
+        int rightHeight = right.getHeight();
+
+        middle.parent = null;
+
+        if (Math.abs(leftHeight - rightHeight) <= 1) {
+            middle.setLeft(left);
+            middle.setRight(right);
+            middle.updadeHeight();
+            return middle;
+        }
+
+        Node<T> parent;
+
+        if (leftHeight > rightHeight) {
+            // Desce pela borda direita de left.
+            parent = left;
+            Node<T> node = left.getRight();
+            while (node.getHeight() > rightHeight + 1) {
+                parent = node;
+                node = node.getRight();
+            }
+            middle.setLeft(node);
+            middle.setRight(right);
+            middle.updadeHeight();
+            parent.setRight(middle);
+        } else {
+            // Desce pela borda esquerda de right.
+            parent = right;
+            Node<T> node = right.getLeft();
+            while (node.getHeight() > leftHeight + 1) {
+                parent = node;
+                node = node.getLeft();
+            }
+            middle.setLeft(left);
+            middle.setRight(node);
+            middle.updadeHeight();
+            parent.setLeft(middle);
+        }
+
+        // A subida de balance termina no topo da subárvore, que não tem pai e não é a raiz da árvore.
+        balance(parent);
+        return top(parent);
+    }
+
+    /**
+     * Separa a subárvore do seu pai, sem modificar o pai.
+     */
+    private static <T> Node<T> detach(Node<T> node) {
+        if (!node.isEmpty()) { node.parent = null; }
+        return node;
+    }
+
+    /**
+     * Raiz da subárvore sem pai que contém node.
+     */
+    private static <T> Node<T> top(Node<T> node) {
+        while (node.parent != null) {
+            node = node.parent;
+        }
+        return node;
+    }
+
+    private void setRoot(Node<T> node) {
+        root = detach(node);
+    }
+
+    /**
+     * Retira todos os nós da árvore, que fica vazia, e retorna a antiga raiz.
+     * O tamanho deve ser atualizado por quem chama.
+     */
+    private Node<T> takeRoot() {
+        Node<T> node = root;
+        root = Node.empty();
+        return node;
+    }
+
+    // Percurso em ordem
+
+    /**
+     * Nó com o menor elemento da subárvore, ou o nó vazio se a subárvore é vazia.
+     */
+    Node<T> firstNode(Node<T> node) {
+        if (node.isEmpty()) { return node; }
+        while (!node.getLeft().isEmpty()) {
+            node = node.getLeft();
+        }
+        return node;
+    }
+
+    /**
+     * Nó com o maior elemento da subárvore, ou o nó vazio se a subárvore é vazia.
+     */
+    Node<T> lastNode(Node<T> node) {
+        if (node.isEmpty()) { return node; }
+        while (!node.getRight().isEmpty()) {
+            node = node.getRight();
+        }
+        return node;
+    }
+
+    /**
+     * Nó com o próximo elemento em ordem, usando o ponteiro para o pai. O nó vazio se node é o último.
+     */
+    Node<T> successor(Node<T> node) {
+
+        // O sucessor é o menor elemento da subárvore direita, se ela existir.
+        if (!node.getRight().isEmpty()) {
+            return firstNode(node.getRight());
+        }
+
+        // Senão é o primeiro ancestral do qual node está na subárvore esquerda.
+        Node<T> parent = node.parent;
+        while (parent != null && parent.getRight() == node) {
+            node = parent;
+            parent = parent.parent;
+        }
+        return parent == null ? Node.empty() : parent;
+    }
+
+    /**
+     * Nó com o elemento anterior em ordem, usando o ponteiro para o pai. O nó vazio se node é o primeiro.
+     */
+    Node<T> predecessor(Node<T> node) {
+
+        if (!node.getLeft().isEmpty()) {
+            return lastNode(node.getLeft());
+        }
+
+        Node<T> parent = node.parent;
+        while (parent != null && parent.getLeft() == node) {
+            node = parent;
+            parent = parent.parent;
+        }
+        return parent == null ? Node.empty() : parent;
+    }
+
+    /**
+     * Nó com o maior elemento menor ou igual a element, ou o nó vazio se não existir.
+     */
+    Node<T> floorNode(T element) {
+
+        Node<T> node = root;
+        Node<T> floor = Node.empty();
+
+        while (!node.isEmpty()) {
+            int diff = compare(node.getElement(), element);
+
+            if (diff < 0) {
+                // Este nó é candidato, mas pode haver um maior à direita.
+                floor = node;
+                node = node.getRight();
+            } else if (diff > 0) {
+                node = node.getLeft();
+            } else {
+                return node;
+            }
+        }
+
+        return floor;
+    }
+
+    /**
+     * Nó com o maior elemento estritamente menor que element, ou o nó vazio se não existir.
+     */
+    Node<T> lowerNode(T element) {
+
+        Node<T> node = root;
+        Node<T> lower = Node.empty();
+
+        while (!node.isEmpty()) {
+            if (compare(node.getElement(), element) < 0) {
+                lower = node;
+                node = node.getRight();
+            } else {
+                node = node.getLeft();
+            }
+        }
+
+        return lower;
+    }
+
+    /**
+     * Nó com o menor elemento estritamente maior que element, ou o nó vazio se não existir.
+     */
+    Node<T> higherNode(T element) {
+
+        Node<T> node = root;
+        Node<T> higher = Node.empty();
+
+        while (!node.isEmpty()) {
+            if (compare(node.getElement(), element) > 0) {
+                higher = node;
+                node = node.getLeft();
+            } else {
+                node = node.getRight();
+            }
+        }
 
-    public int getSize() { return size; }
+        return higher;
+    }
 
     /**
-     * Função recursiva que desce na árvore até encontrar o elemento, comparando ele a cada nó.
-     * @param element Elemento procurado.
-     * @param node Nó que será examinado nesta iteração.
-     * @return O nó contendo o elemento, se encontrado,
-     * ou o nó vazio onde o elemento deveria ser inserido, se não encontrado.
+     * Nó com o menor elemento maior ou igual a element, ou o nó vazio se não existir.
+     */
+    Node<T> ceilingNode(T element) {
+
+        Node<T> node = root;
+        Node<T> ceiling = Node.empty();
+
+        while (!node.isEmpty()) {
+            int diff = compare(node.getElement(), element);
+
+            if (diff > 0) {
+                // Este nó é candidato, mas pode haver um menor à esquerda.
+                ceiling = node;
+                node = node.getLeft();
+            } else if (diff < 0) {
+                node = node.getRight();
+            } else {
+                return node;
+            }
+        }
+
+        return ceiling;
+    }
+
+    /**
+     * Iterador em ordem crescente. Não usa recursão nem listas temporárias: avança pelos ponteiros para o pai.
+     * A árvore não deve ser modificada durante a iteração.
      */
-    private Node<T> find(T element, Node<T> node) {
+    @Override
+    public Iterator<T> iterator() {
+        return new TreeIterator(firstNode(root), null);
+    }
 
-        if (node.isEmpty()) {
-            // Elemento não foi encontrado, mas pode ser adicionado nesta posição.
-            return node;
+    /**
+     * Executa action em cada elemento, em ordem crescente.
+     */
+    @Override
+    public void forEach(Consumer<? super T> action) {
+        for (Node<T> node = firstNode(root); !node.isEmpty(); node = successor(node)) {
+            action.accept(node.getElement());
         }
+    }
 
-        int diff = node.getElement().compareTo(element);
+    /**
+     * Elementos maiores ou iguais a from e menores que to, em ordem crescente.
+     * A busca pelo primeiro elemento custa O(log n) e cada passo seguinte O(1) amortizado.
+     * A árvore não deve ser modificada durante a iteração.
+     * @param from Limite inferior, incluido.
+     * @param to Limite superior, não incluido.
+     */
+    public Iterable<T> subRange(T from, T to) {
+        if (compare(from, to) > 0) {
+            throw new IllegalArgumentException("Início maior que o fim: %s, %s".formatted(from, to));
+        }
+        return () -> new TreeIterator(ceilingNode(from), to);
+    }
 
-        if (diff > 0) {
-            // Elemento vem antes deste nó.
-            return find(element, node.getLeft());
-        } else if (diff < 0) {
-            // Elemento vem depois deste nó.
-            return find(element, node.getRight());
-        } else {
-            // Elemento encontrado neste nó.
-            return node;
+    /**
+     * Spliterator que divide a árvore nas raízes das subárvores, para que stream().parallel() distribua o trabalho.
+     */
+    @Override
+    public Spliterator<T> spliterator() {
+        Node<T> first = firstNode(root);
+        return new TreeSpliterator(first, Node.empty(), root, size());
+    }
+
+    /**
+     * Stream dos elementos em ordem crescente. Pode ser paralelizada com parallel().
+     */
+    public Stream<T> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Percorre os nós em ordem a partir de next, até o fim da árvore ou até o primeiro elemento maior ou igual a end.
+     */
+    private class TreeIterator implements Iterator<T> {
+
+        private Node<T> next;
+        /**
+         * Limite superior, não incluido. null para percorrer até o fim.
+         */
+        private final T end;
+
+        TreeIterator(Node<T> next, T end) {
+            this.next = next;
+            this.end = end;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !next.isEmpty() && (end == null || compare(next.getElement(), end) < 0);
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) { throw new NoSuchElementException(); }
+            T element = next.getElement();
+            next = successor(next);
+            return element;
         }
     }
 
     /**
-     * Verifica se elemento está presente na árvore.
-     * @param element Elemento procurado.
+     * Percorre os nós em ordem de current até fence, sem incluir fence.
+     * <p>
+     * splitRoot é a raiz de uma subárvore cujos nós estão todos entre current e fence.
+     * A divisão entrega [current, splitRoot) a um novo spliterator, que continua dividindo pela subárvore esquerda,
+     * e este passa a cobrir [splitRoot, fence), dividindo pela subárvore direita.
+     * Assim cada divisão corta o intervalo na raiz de uma subárvore, aproximadamente ao meio.
      */
-    public boolean contains(T element) {
-        // Se o método encontrar retorna um nó vazio, isso significa que o elemento não foi encontrado.
-        return !find(element, root).isEmpty();
+    private class TreeSpliterator implements Spliterator<T> {
+
+        private Node<T> current;
+        private final Node<T> fence;
+        private Node<T> splitRoot;
+        private long estimatedSize;
+
+        TreeSpliterator(Node<T> current, Node<T> fence, Node<T> splitRoot, long estimatedSize) {
+            this.current = current;
+            this.fence = fence;
+            this.splitRoot = splitRoot;
+            this.estimatedSize = estimatedSize;
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+
+            Node<T> middle = splitRoot;
+
+            // Não há onde dividir, ou a primeira metade seria vazia.
+            if (middle.isEmpty() || middle == current) { return null; }
+
+            long half = estimatedSize / 2;
+            Spliterator<T> prefix = new TreeSpliterator(current, middle, middle.getLeft(), half);
+
+            current = middle;
+            splitRoot = middle.getRight();
+            estimatedSize -= half;
+
+            return prefix;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+
+            if (current.isEmpty() || current == fence) { return false; }
+
+            // Depois de consumir um elemento, splitRoot pode não estar mais dentro do intervalo.
+            splitRoot = Node.empty();
+
+            T element = current.getElement();
+            current = successor(current);
+            if (estimatedSize > 0) { estimatedSize--; }
+            action.accept(element);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+
+            splitRoot = Node.empty();
+
+            Node<T> node = current;
+            current = fence;
+            estimatedSize = 0;
+            for (; !node.isEmpty() && node != fence; node = successor(node)) {
+                action.accept(node.getElement());
+            }
+        }
+
+        @Override
+        public long estimateSize() {
+            return estimatedSize;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.SORTED | Spliterator.NONNULL;
+        }
+
+        /**
+         * null indica a ordem natural dos elementos.
+         */
+        @Override
+        public Comparator<? super T> getComparator() {
+            return comparator;
+        }
     }
 
+    // Operações paralelas
+
     /**
-     * Insere este elemento na árvore. Balanceia a árvore caso necessário.
-     * @return True se o elemento foi inserido com sucesso, false se já existe na árvore.
+     * Executa a ação em todos os elementos, dividindo a árvore em tarefas no ForkJoinPool comum.
+     * Em cada nó de uma subárvore alta a subárvore esquerda vira uma nova tarefa e a direita continua na thread atual;
+     * subárvores com altura até PARALLEL_MIN_HEIGHT são percorridas sequencialmente.
+     * A ordem das chamadas não é definida e a ação pode ser chamada por várias threads ao mesmo tempo.
+     * A árvore não pode ser modificada durante a execução.
      */
-    public boolean insert(T element) {
+    public void parallelForEach(Consumer<? super T> action) {
+        ForkJoinPool.commonPool().invoke(new ForEachTask(root, action));
+    }
 
-        Node<T> node = find(element, root);
+    /**
+     * Aplica mapper a cada elemento e combina os resultados, em paralelo como parallelForEach.
+     * Os resultados são combinados na ordem dos elementos, então com um combiner associativo
+     * o resultado é o mesmo de uma redução sequencial em ordem crescente.
+     * @param identity Resultado de uma subárvore vazia. Deve ser neutro para combiner.
+     */
+    public <R> R parallelReduce(R identity, Function<? super T, ? extends R> mapper, BinaryOperator<R> combiner) {
+        return ForkJoinPool.commonPool().invoke(new ReduceTask<>(root, identity, mapper, combiner));
+    }
 
-        // Se o nó não é vazio, o elemento já existe.
-        // A árvore não aceita com duplicados.
-        if (!node.isEmpty()) { return false; }
+    /**
+     * Número de elementos que satisfazem predicate, contados em paralelo como parallelForEach.
+     */
+    public int parallelCount(Predicate<? super T> predicate) {
+        return ForkJoinPool.commonPool().invoke(new CountTask(root, predicate));
+    }
 
-        node.setElement(element);
+    @SuppressWarnings("serial")
+    private class ForEachTask extends RecursiveAction {
 
-        size += 1;
+        private final Node<T> node;
+        private final Consumer<? super T> action;
 
-        // Balanceia a subárvore modificada e todos os nós acima.
-        if (node.parent != null) {
-            balance(node.parent);
+        ForEachTask(Node<T> node, Consumer<? super T> action) {
+            this.node = node;
+            this.action = action;
         }
 
-        return true;
+        @Override
+        protected void compute() {
+
+            if (node.getHeight() <= PARALLEL_MIN_HEIGHT) {
+                forEachSequential(node);
+                return;
+            }
+
+            ForEachTask left = new ForEachTask(node.getLeft(), action);
+            left.fork();
+            action.accept(node.getElement());
+            new ForEachTask(node.getRight(), action).compute();
+            left.join();
+        }
+
+        private void forEachSequential(Node<T> node) {
+            if (node.isEmpty()) { return; }
+            forEachSequential(node.getLeft());
+            action.accept(node.getElement());
+            forEachSequential(node.getRight());
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private class ReduceTask<R> extends RecursiveTask<R> {
+
+        private final Node<T> node;
+        private final R identity;
+        private final Function<? super T, ? extends R> mapper;
+        private final BinaryOperator<R> combiner;
+
+        ReduceTask(Node<T> node, R identity, Function<? super T, ? extends R> mapper, BinaryOperator<R> combiner) {
+            this.node = node;
+            this.identity = identity;
+            this.mapper = mapper;
+            this.combiner = combiner;
+        }
+
+        @Override
+        protected R compute() {
+
+            if (node.getHeight() <= PARALLEL_MIN_HEIGHT) { return reduceSequential(node); }
+
+            ReduceTask<R> left = new ReduceTask<>(node.getLeft(), identity, mapper, combiner);
+            left.fork();
+            R middle = mapper.apply(node.getElement());
+            R right = new ReduceTask<>(node.getRight(), identity, mapper, combiner).compute();
+
+            return combiner.apply(combiner.apply(left.join(), middle), right);
+        }
+
+        private R reduceSequential(Node<T> node) {
+            if (node.isEmpty()) { return identity; }
+            R left = reduceSequential(node.getLeft());
+            R middle = mapper.apply(node.getElement());
+            return combiner.apply(combiner.apply(left, middle), reduceSequential(node.getRight()));
+        }
     }
 
     /**
-     * Remove o nó da árvore. Balanceia a árvore se necessário.
-     * @param node Nó a remover.
+     * Contagem sem boxing por elemento: só o resultado de cada tarefa é um Integer.
      */
-    private void remove(Node<T> node) {
+    @SuppressWarnings("serial")
+    private class CountTask extends RecursiveTask<Integer> {
 
-        // Em 3 dos próximos 4 casos a modificação mais profunda na árvore
-        // é no nó removido.
-        Node<T> nodeToBalance = node.parent;
+        private final Node<T> node;
+        private final Predicate<? super T> predicate;
 
-        if (node.getHeight() == 1) {
-            // Altura = 1 significa o mesmo que
-            // esquerda.isVazio() && direita.isVazio().
-            // Nó folha
-            node.clear();
+        CountTask(Node<T> node, Predicate<? super T> predicate) {
+            this.node = node;
+            this.predicate = predicate;
+        }
 
-        } else if (node.getLeft().isEmpty()) {
-            // Tem apenas um filho à direita.
-            replaceNode(node, node.getRight());
-            // Garbage Collector pode liberar o espaço de no.
+        @Override
+        protected Integer compute() {
 
-        } else if (node.getRight().isEmpty()) {
-            // Tem apenas um filho à esquerda.
-            replaceNode(node, node.getLeft());
-            // Garbage Collector pode liberar o espaço de no.
+            if (node.getHeight() <= PARALLEL_MIN_HEIGHT) { return countSequential(node); }
 
-        } else {
-            // Tem dois filhos.
+            CountTask left = new CountTask(node.getLeft(), predicate);
+            left.fork();
+            int count = predicate.test(node.getElement()) ? 1 : 0;
+            count += new CountTask(node.getRight(), predicate).compute();
 
-            // Encontra nós mais à direita na subárvore esquerda.
-            Node<T> predecessor = node.getLeft();
-            while (!predecessor.getRight().isEmpty()) {
-                predecessor =  predecessor.getRight();
+            return count + left.join();
+        }
+
+        private int countSequential(Node<T> node) {
+            if (node.isEmpty()) { return 0; }
+            int count = predicate.test(node.getElement()) ? 1 : 0;
+            return count + countSequential(node.getLeft()) + countSequential(node.getRight());
+        }
+    }
+
+    // Verificação
+
+    /**
+     * Verifica todos os invariantes da árvore numa única passada iterativa, em tempo O(n) e memória O(altura):
+     * elementos em ordem estritamente crescente, fator de balanço entre -1 e 1, altura guardada em cada nó,
+     * pais dos filhos, número de elementos e, conforme o tipo de árvore, as contagens das subárvores,
+     * as ocorrências e as chaves guardadas nos nós.
+     * Pode ser usada em produção para validar uma árvore grande. A árvore não pode ser modificada durante a verificação.
+     * @throws IllegalStateException Descrevendo o primeiro invariante violado encontrado.
+     */
+    public void verify() {
+        verifyRoot(verifySequential(root));
+    }
+
+    /**
+     * Como verify(), dividindo as subárvores com altura maior que PARALLEL_MIN_HEIGHT em tarefas no ForkJoinPool comum.
+     */
+    public void parallelVerify() {
+        verifyRoot(ForkJoinPool.commonPool().invoke(new VerifyTask(root, 0)));
+    }
+
+    /**
+     * Resultado da verificação de uma subárvore: número de nós e nós com o menor e o maior elemento.
+     */
+    private record VerifiedSubtree<T>(int count, Node<T> first, Node<T> last) { }
+
+    private void verifyRoot(VerifiedSubtree<T> verified) {
+        if (!Node.empty().isEmpty() || Node.empty().getHeight() != 0) {
+            throw new IllegalStateException("Nó vazio compartilhado foi modificado");
+        }
+        if (!root.isEmpty() && root.parent != null) {
+            throw new IllegalStateException("Raiz tem pai: " + root.getElement());
+        }
+        if (!sizeUnknown && verified.count() != size) {
+            throw new IllegalStateException("Árvore tem %d nós, mas size é %d".formatted(verified.count(), size));
+        }
+    }
+
+    /**
+     * Percorre a subárvore em ordem com uma pilha, verificando cada nó e a ordem entre nós consecutivos.
+     * A pilha é limitada a MAX_DEPTH nós, então um ciclo nos filhos também é detectado.
+     */
+    private VerifiedSubtree<T> verifySequential(Node<T> subtree) {
+
+        @SuppressWarnings("unchecked")
+        Node<T>[] stack = (Node<T>[]) new Node<?>[MAX_DEPTH];
+        int depth = 0;
+        int count = 0;
+        Node<T> first = null;
+        Node<T> previous = null;
+        Node<T> node = subtree;
+
+        while (depth > 0 || !node.isEmpty()) {
+            while (!node.isEmpty()) {
+                if (depth == MAX_DEPTH) {
+                    throw new IllegalStateException("Profundidade maior que a possível numa árvore AVL, a partir de "
+                            + subtree.getElement());
+                }
+                stack[depth++] = node;
+                node = node.getLeft();
             }
+            node = stack[--depth];
 
-            // Coloca o elemento mais à direita da subárvore esquerda no lugar do elemento removido.
-            node.setElement(predecessor.getElement());
-            // A árvore será balanceada quando o predecessor for removido.
-            nodeToBalance = null;
-            // Como o elemento predecessor está no lugar do elemento removido, ele pode ser excluido.
-            remove(predecessor);
-            // Anulando a modificação dupla da contagem devido à remoção do predecessor.
-            size += 1;
+            verifyNode(node);
+            if (previous != null) { verifyOrder(previous, node); } else { first = node; }
+            previous = node;
+            count++;
 
-            // Garbage Collector pode liberar o espaço de no.
+            node = node.getRight();
         }
 
-        size -= 1;
+        return new VerifiedSubtree<>(count, first, previous);
+    }
 
-        if (nodeToBalance != null) {
-            balance(nodeToBalance);
+    /**
+     * Verifica os invariantes locais do nó, que só dependem dele e dos filhos.
+     * Como a altura de cada nó é comparada com a dos filhos, a partir das folhas, todas as alturas guardadas ficam verificadas.
+     */
+    private void verifyNode(Node<T> node) {
+
+        Node<T> left = node.getLeft();
+        Node<T> right = node.getRight();
+
+        if (!left.isEmpty() && left.parent != node) {
+            throw new IllegalStateException("Filho à esquerda de %s tem outro pai".formatted(node.getElement()));
+        }
+        if (!right.isEmpty() && right.parent != node) {
+            throw new IllegalStateException("Filho à direita de %s tem outro pai".formatted(node.getElement()));
+        }
+
+        int height = Math.max(left.getHeight(), right.getHeight()) + 1;
+        if (node.getHeight() != height) {
+            throw new IllegalStateException("Nó %s tem altura %d, mas deveria ter %d"
+                    .formatted(node.getElement(), node.getHeight(), height));
+        }
+
+        int balanceFactor = node.getBalanceFactor();
+        if (balanceFactor < -1 || balanceFactor > 1) {
+            throw new IllegalStateException("Nó %s tem fator de balanço %d".formatted(node.getElement(), balanceFactor));
         }
 
+        if (orderStatistics) {
+            int occurrences = ((CountedNode<T>) node).occurrences();
+            if (occurrences < 1) {
+                throw new IllegalStateException("Nó %s tem %d ocorrências".formatted(node.getElement(), occurrences));
+            }
+            long count = (long) CountedNode.count(left) + CountedNode.count(right) + occurrences;
+            if (CountedNode.count(node) != count) {
+                throw new IllegalStateException("Subárvore de %s conta %d elementos, mas tem %d"
+                        .formatted(node.getElement(), CountedNode.count(node), count));
+            }
+        }
+
+        if (keyExtractor != null && KeyedNode.key(node) != keyExtractor.applyAsLong(node.getElement())) {
+            throw new IllegalStateException("Chave guardada em %s difere da chave do elemento".formatted(node.getElement()));
+        }
     }
 
     /**
-     * Remove elemento da árvore se ele existir. Balanceia a árvore se necessário.
-     * @param element Elemento a ser removido.
-     * @return True se o elemento foi removido, false se não está presente.
+     * Verifica que previous vem estritamente antes de next, comparando como as descidas comparam.
      */
-    public boolean remove(T element) {
+    private void verifyOrder(Node<T> previous, Node<T> next) {
+        int diff = keyExtractor != null
+                ? Long.compare(KeyedNode.key(previous), KeyedNode.key(next))
+                : compare(previous.getElement(), next.getElement());
+        if (diff >= 0) {
+            throw new IllegalStateException("Elementos fora de ordem: %s antes de %s"
+                    .formatted(previous.getElement(), next.getElement()));
+        }
+    }
 
-        Node<T> node = find(element, root);
+    @SuppressWarnings("serial")
+    private class VerifyTask extends RecursiveTask<VerifiedSubtree<T>> {
 
-        if (node.isEmpty()) { return false; }
+        private final Node<T> node;
+        private final int depth;
 
-        remove(node);
-        return true;
+        VerifyTask(Node<T> node, int depth) {
+            this.node = node;
+            this.depth = depth;
+        }
+
+        @Override
+        protected VerifiedSubtree<T> compute() {
+
+            // A divisão usa as alturas guardadas, que podem estar erradas; a verificação sequencial não depende delas,
+            // e depth impede que um ciclo nos filhos crie tarefas sem fim.
+            if (node.getHeight() <= PARALLEL_MIN_HEIGHT || depth >= MAX_DEPTH) { return verifySequential(node); }
+
+            VerifyTask leftTask = new VerifyTask(node.getLeft(), depth + 1);
+            leftTask.fork();
+            VerifiedSubtree<T> right = new VerifyTask(node.getRight(), depth + 1).compute();
+            VerifiedSubtree<T> left = leftTask.join();
+
+            verifyNode(node);
+            if (left.count() > 0) { verifyOrder(left.last(), node); }
+            if (right.count() > 0) { verifyOrder(node, right.first()); }
+
+            return new VerifiedSubtree<>(left.count() + right.count() + 1,
+                    left.count() > 0 ? left.first() : node, right.count() > 0 ? right.last() : node);
+        }
     }
 
     // Balanceamento
 
     /**
      * Verifica o balanço do nó e, dependendo do valor, realiza rotações para balancear a subárvore.
-     * @param node Nó que será verificado e balanceado.
+     * Sobe em direção à raiz enquanto a altura das subárvores muda.
+     * Se a altura de uma subárvore não mudou, os nós acima dela não são afetados e a subida termina.
+     * @param node Nó mais profundo que foi modificado e que será verificado e balanceado.
      */
     private void balance(Node<T> node) {
 
-        node.updadeHeight();
+        // Nós visitados pela subida, só para as métricas.
+        int steps = 0;
 
-        int balanceFactor = node.getBalanceFactor();
+        while (node != null) {
 
-        // Se -1 <= fatorBalanco <= 1, o nó já está balanceado e nada precisa ser feito.
-        if (balanceFactor < -1) {
-            rightRotation(node);
-        } else if (balanceFactor > 1) {
-            leftRotation(node);
-        }
+            steps++;
 
-        if (node.parent != null) {
-            balance(node.parent);
+            int oldHeight = node.getHeight();
+
+            node.updadeHeight();
+
+            int balanceFactor = node.getBalanceFactor();
+
+            // Se -1 <= fatorBalanco <= 1, o nó já está balanceado e nada precisa ser feito.
+            // Depois de uma rotação o pai de node é a nova raiz desta subárvore.
+            // As rotações são contadas aqui, e não nos métodos de rotação, porque uma rotação dupla chama os dois.
+            if (balanceFactor < -1) {
+                if (metrics != null) { metrics.recordRotation(node.getLeft().getBalanceFactor() > 0); }
+                rightRotation(node);
+                node = node.parent;
+            } else if (balanceFactor > 1) {
+                if (metrics != null) { metrics.recordRotation(node.getRight().getBalanceFactor() < 0); }
+                leftRotation(node);
+                node = node.parent;
+            }
+
+            // Após uma inserção a primeira rotação sempre restaura a altura anterior.
+            // Após uma remoção a subida pode continuar.
+            // Com estatísticas de ordem as contagens mudam até a raiz, então a subida não termina antes.
+            if (node.getHeight() == oldHeight && !orderStatistics) { break; }
+
+            node = node.parent;
         }
 
+        if (metrics != null) { metrics.recordRebalance(steps); }
     }
 
     // Rotações
@@ -216,11 +2124,10 @@ public class Tree<T extends Comparable<T>> {
          *   a       c
          */
 
-        // Os nós acima desta subárvore serão atualizados mais tarde
-        // porque balancear chama atualizarAltura para todos eles.
+        // Primeiro a, que agora está abaixo de b.
+        // Os nós acima desta subárvore são atualizados por balance, se a altura mudou.
         a.updadeHeight();
         b.updadeHeight();
-        b.getRight().updadeHeight();
     }
 
     /**
@@ -263,11 +2170,10 @@ public class Tree<T extends Comparable<T>> {
          *   a       c
          */
 
-        // Os nós acima desta subárvore serão atualizados mais tarde
-        // porque balancear chama atualizarAltura para todos eles.
-        b.updadeHeight();
+        // Primeiro c, que agora está abaixo de b.
+        // Os nós acima desta subárvore são atualizados por balance, se a altura mudou.
         c.updadeHeight();
-        b.getLeft().updadeHeight();
+        b.updadeHeight();
     }
 
     /**
@@ -279,9 +2185,10 @@ public class Tree<T extends Comparable<T>> {
     private void replaceNode(Node<T> oldNode, Node<T> newNode) {
 
         // Se antigo era raiz da árvore, agora novo se torna raiz.
+        // Uma subárvore separada durante split e join também não tem pai, mas não é a raiz.
         if (oldNode.parent == null) {
-            root = newNode;
-            newNode.parent = null;
+            if (oldNode == root) { root = newNode; }
+            if (!newNode.isEmpty()) { newNode.parent = null; }
         // Se antigo era um filho à esquerda, novo o substitui.
         // Compara por referência.
         } else if (oldNode.parent.getLeft() == oldNode) {
@@ -295,136 +2202,65 @@ public class Tree<T extends Comparable<T>> {
     // Métodos auxiliares para Strings.
 
     /**
-     * Representação da árvore na vertical. Nó direito fica abaixo do esquerdo.
-     * Ocupa menos espaço que a horizontal.
+     * Número de nós desenhados por toString e toStringVertical: 10 níveis completos.
      */
-    public String toStringVertical() {
-
-        StringBuilder stringBuilder = new StringBuilder();
+    static final int DEFAULT_RENDER_NODES = 1023;
 
-        recursiveVerticalToString(stringBuilder, 0, root, '*');
-
-        return stringBuilder.toString();
+    /**
+     * Desenha a árvore na horizontal: cada nó acima dos filhos, ligado a eles por / e \.
+     * Desenha só os níveis que cabem em maxNodes nós, até maxDepth níveis, e informa quantos elementos ficaram de fora.
+     * Cada nó ocupa só a largura do seu elemento, então o texto cresce com o número de nós desenhados, não com 2^altura.
+     * @param maxDepth Número máximo de níveis, 1 para só a raiz.
+     * @param maxNodes Número máximo de nós desenhados.
+     */
+    public void render(Appendable out, int maxDepth, int maxNodes) throws IOException {
+        checkRenderLimits(maxDepth, maxNodes);
+        TreeRenderer.renderHorizontal(root, size(), out, maxDepth, maxNodes);
     }
 
     /**
-     * Adiciona cada nó à representação após a indentação e um indicador de esquerda ou direita.
-     * @param stringBuilder StringBuilder que contém a representação da árvore.
-     * @param level Profundidade do nó que será representada como indentação. 0 para raiz.
+     * Desenha a árvore na vertical, um nó por linha: a indentação é a profundidade, e E e D indicam os filhos
+     * à esquerda e à direita. Escreve os nós à medida que os visita, até maxNodes nós e até maxDepth níveis.
+     * @param maxDepth Número máximo de níveis, 1 para só a raiz.
+     * @param maxNodes Número máximo de nós desenhados.
      */
-    private void recursiveVerticalToString(StringBuilder stringBuilder, int level, Node<T> node, char position) {
-
-        if (node.isEmpty()) { return; }
-
-        stringBuilder.append(
-                "%s%c %s%n"
-                        .formatted(" ".repeat(level), position, node.getElement().toString())
-        );
+    public void renderVertical(Appendable out, int maxDepth, int maxNodes) throws IOException {
+        checkRenderLimits(maxDepth, maxNodes);
+        TreeRenderer.renderVertical(root, size(), out, maxDepth, maxNodes);
+    }
 
-        recursiveVerticalToString(stringBuilder, level + 1, node.getLeft(), 'E');
-        recursiveVerticalToString(stringBuilder, level + 1, node.getRight(), 'D');
+    private static void checkRenderLimits(int maxDepth, int maxNodes) {
+        if (maxDepth < 0 || maxNodes < 0) {
+            throw new IllegalArgumentException("Limites negativos: maxDepth=%d, maxNodes=%d".formatted(maxDepth, maxNodes));
+        }
+    }
 
+    /**
+     * Representação da árvore na vertical. Nó direito fica abaixo do esquerdo.
+     * Ocupa menos espaço que a horizontal. Mostra no máximo DEFAULT_RENDER_NODES nós.
+     */
+    public String toStringVertical() {
+        StringBuilder stringBuilder = new StringBuilder();
+        try {
+            renderVertical(stringBuilder, Integer.MAX_VALUE, DEFAULT_RENDER_NODES);
+        } catch (IOException e) {
+            // StringBuilder não lança IOException.
+            throw new UncheckedIOException(e);
+        }
+        return stringBuilder.toString();
     }
 
     /**
      * Representação da árvore em texto na horizontal.
-     * Nós irmãos ficam lado a lado.
+     * Nós irmãos ficam lado a lado. Mostra no máximo DEFAULT_RENDER_NODES nós, em níveis completos.
      */
     public String toString() {
-        if (root.isEmpty()) { return ""; }
-
-        // Para cada linha da representação é feita uma lista de nós do nível correspondente da árvore.
-        ArrayList<ArrayList<Node<T>>> lines = new ArrayList<>(
-                List.of(
-                        new ArrayList<>(List.of(root))
-                )
-        );
-
-        // A ‘String’ que será retornada.
         StringBuilder stringBuilder = new StringBuilder();
-        // Número de caracteres necessários para representar o maior elemento da árvore.
-        int maxWidth =  root.getElement().toString().length();
-        boolean hasNext = true;
-
-        while (hasNext) {
-            ArrayList<Node<T>> nextLine =  new ArrayList<>();
-            hasNext = false;
-
-            for (Node<T> node : lines.get(lines.size() - 1)) {
-                if (node == null) {
-
-                    nextLine.add(null);
-                    nextLine.add(null);
-
-                } else {
-
-                    // Largura deste nó.
-                    int nodeWidth = node.getElement().toString().length();
-                    if (nodeWidth > maxWidth) {
-                        maxWidth = nodeWidth;
-                    }
-
-                    // Prepara a próxima linha.
-                    if (node.getLeft().isEmpty()) {
-                        nextLine.add(null);
-                    } else {
-                        nextLine.add(node.getLeft());
-                        hasNext = true;
-                    }
-                    if (node.getRight().isEmpty()) {
-                        nextLine.add(null);
-                    } else {
-                        nextLine.add(node.getRight());
-                        hasNext = true;
-                    }
-
-                }
-            }
-
-            if (hasNext) {
-                lines.add(nextLine);
-            }
-        }
-
-        int lastLineSize = lines.get(lines.size() - 1).size();
-
-        // Largura da última linha em função do espaço de um nó.
-        // Espaçamento entre nós na última linha é um nó vazio.
-        int treeWidth =  (2 * lastLineSize) - 1;
-
-        String emptySpace = " ".repeat(maxWidth);
-        String emptyNode = "-".repeat(maxWidth);
-        int depth = lines.size();
-
-        for (int i = 0; i < depth; i++) {
-            ArrayList<Node<T>> line =  lines.get(i);
-
-            // Espaço entre nós em função do espaço de um nó. Ex.: 1 nó vazio, 2 nós vazios, ...
-            int spacing =  (int) Math.pow(2, (depth - i)) - 1;
-
-            // Espaço que é adicionado à esquerda para centralizar o nó nesta linha.
-            int lineWidth =
-                    treeWidth - // Largura da árvore em nós.
-                            line.size() - // Número de nós desta linha.
-                            ((line.size() - 1) * spacing); // Espaço ocupado nesta linha entre os nós em função do espaço de um nó.
-
-            // Adiciona a indentação antes da linha.
-            stringBuilder.append(
-                   emptySpace.repeat(lineWidth / 2)
-            );
-
-            for (int j = 0; j < line.size(); j++) {
-                Node<T> node = line.get(j);
-                if (node == null) {
-                    stringBuilder.append(emptyNode);
-                } else {
-                    stringBuilder.append(String.format("%" + maxWidth + "s", node.getElement()));
-                }
-                if (j != line.size() - 1) {
-                    stringBuilder.append(emptySpace.repeat(spacing));
-                }
-            }
-            stringBuilder.append("\n");
+        try {
+            render(stringBuilder, Integer.MAX_VALUE, DEFAULT_RENDER_NODES);
+        } catch (IOException e) {
+            // StringBuilder não lança IOException.
+            throw new UncheckedIOException(e);
         }
         return stringBuilder.toString();
     }
@@ -0,0 +1,220 @@
+package tree;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Métricas de uma Tree, ativadas por Tree.enableMetrics().
+ * Enquanto estão desativadas a árvore não tem nenhum objeto TreeMetrics, e cada operação só verifica um campo null.
+ * <p>
+ * Os contadores usam LongAdder e os histogramas AtomicLongArray, então várias threads podem ler a árvore
+ * ao mesmo tempo, e outra thread, por exemplo a do JMX, pode ler as métricas enquanto elas são atualizadas.
+ * Cada leitura é um valor recente, mas as métricas lidas juntas não formam um instante exato.
+ */
+public final class TreeMetrics implements TreeMetricsMXBean {
+
+    /**
+     * Operações cuja latência é medida.
+     */
+    public enum Operation { INSERT, REMOVE, CONTAINS }
+
+    private final Tree<?> tree;
+
+    private final LongAdder finds = new LongAdder();
+    private final LongAdder comparisons = new LongAdder();
+    private final LongAdder singleRotations = new LongAdder();
+    private final LongAdder doubleRotations = new LongAdder();
+    private final LongAdder rebalances = new LongAdder();
+    private final LongAdder rebalanceSteps = new LongAdder();
+
+    private final EnumMap<Operation, AtomicLongArray> latencies = new EnumMap<>(Operation.class);
+
+    TreeMetrics(Tree<?> tree) {
+        this.tree = tree;
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, new AtomicLongArray(Histogram.BUCKETS));
+        }
+    }
+
+    // Registro, chamado pela árvore
+
+    void recordFind(int comparisons) {
+        finds.increment();
+        this.comparisons.add(comparisons);
+    }
+
+    void recordRotation(boolean isDouble) {
+        (isDouble ? doubleRotations : singleRotations).increment();
+    }
+
+    void recordRebalance(int steps) {
+        rebalances.increment();
+        rebalanceSteps.add(steps);
+    }
+
+    void recordLatency(Operation operation, long nanos) {
+        latencies.get(operation).incrementAndGet(Histogram.bucket(nanos));
+    }
+
+    // Leitura
+
+    @Override
+    public long getFinds() { return finds.sum(); }
+
+    @Override
+    public long getComparisons() { return comparisons.sum(); }
+
+    @Override
+    public long getSingleRotations() { return singleRotations.sum(); }
+
+    @Override
+    public long getDoubleRotations() { return doubleRotations.sum(); }
+
+    @Override
+    public long getRebalances() { return rebalances.sum(); }
+
+    @Override
+    public long getRebalanceSteps() { return rebalanceSteps.sum(); }
+
+    @Override
+    public int getHeight() { return tree.getRoot().getHeight(); }
+
+    /**
+     * Cópia do histograma de latências da operação.
+     */
+    public Histogram getLatency(Operation operation) {
+        AtomicLongArray buckets = latencies.get(operation);
+        long[] counts = new long[Histogram.BUCKETS];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets.get(i);
+        }
+        return new Histogram(counts);
+    }
+
+    @Override
+    public long latencyPercentileNanos(String operation, double percentile) {
+        return getLatency(Operation.valueOf(operation)).getPercentile(percentile);
+    }
+
+    /**
+     * Cópia de todos os contadores e histogramas, para ser consultada ou enviada a outro sistema de monitoramento.
+     */
+    public Snapshot snapshot() {
+        EnumMap<Operation, Histogram> histograms = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            histograms.put(operation, getLatency(operation));
+        }
+        return new Snapshot(getFinds(), getComparisons(), getSingleRotations(), getDoubleRotations(),
+                getRebalances(), getRebalanceSteps(), getHeight(), histograms);
+    }
+
+    @Override
+    public void reset() {
+        finds.reset();
+        comparisons.reset();
+        singleRotations.reset();
+        doubleRotations.reset();
+        rebalances.reset();
+        rebalanceSteps.reset();
+        for (AtomicLongArray buckets : latencies.values()) {
+            for (int i = 0; i < buckets.length(); i++) {
+                buckets.set(i, 0);
+            }
+        }
+    }
+
+    /**
+     * Valores das métricas num momento, que não mudam mais.
+     */
+    public record Snapshot(long finds, long comparisons, long singleRotations, long doubleRotations,
+                           long rebalances, long rebalanceSteps, int height, Map<Operation, Histogram> latencies) {
+
+        /**
+         * Média de comparações por busca. 0 se nenhuma busca foi feita.
+         */
+        public double averageComparisons() {
+            return finds == 0 ? 0 : (double) comparisons / finds;
+        }
+
+        /**
+         * Média de nós visitados por subida do balanceamento. 0 se nenhuma modificação foi feita.
+         */
+        public double averageRebalanceSteps() {
+            return rebalances == 0 ? 0 : (double) rebalanceSteps / rebalances;
+        }
+    }
+
+    /**
+     * Histograma de latências em nanossegundos com buckets logarítmicos: cada potência de 2 é dividida em 4 buckets,
+     * então o erro relativo é de até 25% e 248 buckets cobrem todos os valores de long.
+     */
+    public static final class Histogram {
+
+        static final int BUCKETS = 248;
+
+        private final long[] counts;
+        private final long count;
+
+        Histogram(long[] counts) {
+            this.counts = counts;
+            long total = 0;
+            for (long c : counts) {
+                total += c;
+            }
+            this.count = total;
+        }
+
+        /**
+         * Bucket do valor: de 0 a 3 um bucket por valor, depois 4 buckets por potência de 2.
+         */
+        static int bucket(long nanos) {
+            if (nanos < 4) { return (int) Math.max(nanos, 0); }
+            int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+            int sub = (int) (nanos >>> (exponent - 2)) & 3;
+            return (exponent - 1) * 4 + sub;
+        }
+
+        /**
+         * Maior valor que cai no bucket.
+         */
+        static long bucketMax(int bucket) {
+            if (bucket < 4) { return bucket; }
+            int exponent = bucket / 4 + 1;
+            long lower = (long) (4 + bucket % 4) << (exponent - 2);
+            return lower + (1L << (exponent - 2)) - 1;
+        }
+
+        /**
+         * Número de operações medidas.
+         */
+        public long getCount() { return count; }
+
+        /**
+         * Latência abaixo da qual estão percentile por cento das operações, arredondada para cima até o fim do bucket.
+         * 0 se nenhuma operação foi medida.
+         * @param percentile Entre 0 e 100.
+         */
+        public long getPercentile(double percentile) {
+            if (percentile < 0 || percentile > 100) {
+                throw new IllegalArgumentException("Percentil fora de [0, 100]: " + percentile);
+            }
+            if (count == 0) { return 0; }
+
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) { return bucketMax(i); }
+            }
+            return bucketMax(counts.length - 1);
+        }
+
+        /**
+         * Maior latência medida, arredondada para cima até o fim do bucket.
+         */
+        public long getMax() { return getPercentile(100); }
+    }
+
+}
@@ -0,0 +1,60 @@
+package tree;
+
+/**
+ * Interface JMX das métricas de uma Tree. Para publicar as métricas:
+ * <pre>
+ * TreeMetrics metrics = tree.enableMetrics();
+ * ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, new ObjectName("tree:name=pedidos"));
+ * </pre>
+ * Os contadores são acumulados desde que as métricas foram ativadas ou desde o último reset().
+ */
+public interface TreeMetricsMXBean {
+
+    /**
+     * Número de buscas: as de find, em contains, remove e count, e as descidas de insert.
+     */
+    long getFinds();
+
+    /**
+     * Número de comparações feitas nas buscas.
+     */
+    long getComparisons();
+
+    /**
+     * Rotações simples feitas pelo balanceamento.
+     */
+    long getSingleRotations();
+
+    /**
+     * Rotações duplas feitas pelo balanceamento.
+     */
+    long getDoubleRotations();
+
+    /**
+     * Número de vezes que o balanceamento subiu pela árvore após uma modificação.
+     */
+    long getRebalances();
+
+    /**
+     * Soma dos nós visitados por todas as subidas do balanceamento.
+     */
+    long getRebalanceSteps();
+
+    /**
+     * Altura atual da árvore.
+     */
+    int getHeight();
+
+    /**
+     * Latência da operação no percentil, em nanossegundos, com erro relativo de até 25%.
+     * @param operation INSERT, REMOVE ou CONTAINS.
+     * @param percentile Entre 0 e 100.
+     */
+    long latencyPercentileNanos(String operation, double percentile);
+
+    /**
+     * Zera todos os contadores e histogramas.
+     */
+    void reset();
+
+}
@@ -0,0 +1,150 @@
+package tree;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Desenha uma árvore em texto, escrevendo diretamente num Appendable.
+ * Só os primeiros níveis são desenhados, limitados por uma profundidade e por um número de nós,
+ * então desenhar uma árvore de milhões de elementos por engano, num log ou no depurador, custa o mesmo que desenhar o topo dela.
+ * Cada elemento desenhado é convertido em String uma única vez.
+ */
+final class TreeRenderer {
+
+    private TreeRenderer() { }
+
+    /**
+     * Desenho na horizontal, com cada nó acima dos seus filhos:
+     * <pre>
+     *   2
+     *  / \
+     * 1   3
+     * </pre>
+     * Cada nó ocupa as próprias colunas, na ordem dos elementos, então a largura é a soma das larguras dos nós desenhados,
+     * e não 2^altura posições como numa árvore completa. Só níveis inteiros são desenhados: tantos quanto couberem
+     * em maxNodes, até maxDepth. O tempo é proporcional ao texto produzido.
+     * @param size Número de elementos da árvore, para informar quantos não foram desenhados.
+     */
+    static <T> void renderHorizontal(Node<T> root, int size, Appendable out, int maxDepth, int maxNodes)
+            throws IOException {
+
+        // Níveis que cabem no limite, contados em largura. Cada nível é percorrido uma vez.
+        int depth = 0;
+        int printed = 0;
+        List<Node<T>> level = root.isEmpty() ? List.of() : List.of(root);
+        while (!level.isEmpty() && depth < maxDepth && printed + level.size() <= maxNodes) {
+            printed += level.size();
+            depth++;
+            List<Node<T>> next = new ArrayList<>(level.size() * 2);
+            for (Node<T> node : level) {
+                if (!node.getLeft().isEmpty()) { next.add(node.getLeft()); }
+                if (!node.getRight().isEmpty()) { next.add(node.getRight()); }
+            }
+            level = next;
+        }
+
+        if (depth > 0) {
+            // Percurso em ordem dos nós desenhados: cada um recebe a coluna seguinte à do anterior.
+            // Para cada nível são guardados o texto e a coluna dos nós, e as colunas das ligações com o nível acima.
+            List<StringBuilder> lines = new ArrayList<>(2 * depth - 1);
+            for (int i = 0; i < 2 * depth - 1; i++) { lines.add(new StringBuilder()); }
+
+            ArrayDeque<Node<T>> stack = new ArrayDeque<>();
+            ArrayDeque<Integer> depths = new ArrayDeque<>();
+            int column = 0;
+            Node<T> node = root;
+            int nodeDepth = 0;
+
+            while (!stack.isEmpty() || node != null) {
+                while (node != null) {
+                    stack.push(node);
+                    depths.push(nodeDepth);
+                    node = nodeDepth + 1 < depth && !node.getLeft().isEmpty() ? node.getLeft() : null;
+                    nodeDepth++;
+                }
+                node = stack.pop();
+                nodeDepth = depths.pop();
+
+                String text = String.valueOf(node.getElement());
+                place(lines.get(2 * nodeDepth), column, text);
+
+                // Ligação com o pai: '/' logo depois de um filho à esquerda, '\' logo antes de um filho à direita.
+                // As duas colunas pertencem só a este nó, então ligações de nós diferentes nunca se sobrepõem.
+                if (nodeDepth > 0) {
+                    boolean isLeft = node.parent.getLeft() == node;
+                    place(lines.get(2 * nodeDepth - 1), isLeft ? column + text.length() : column - 1, isLeft ? "/" : "\\");
+                }
+
+                column += text.length() + 1;
+                nodeDepth++;
+                node = nodeDepth < depth && !node.getRight().isEmpty() ? node.getRight() : null;
+            }
+
+            for (StringBuilder line : lines) {
+                out.append(line).append('\n');
+            }
+        }
+
+        appendHidden(out, size - printed);
+    }
+
+    /**
+     * Desenho na vertical, um nó por linha, com a profundidade como indentação e E ou D indicando se o nó
+     * é filho à esquerda ou à direita. A raiz é marcada com *.
+     * Os nós são escritos à medida que são visitados, em pré-ordem, até maxNodes nós e até a profundidade maxDepth,
+     * usando memória proporcional à altura.
+     * @param size Número de elementos da árvore, para informar quantos não foram desenhados.
+     */
+    static <T> void renderVertical(Node<T> root, int size, Appendable out, int maxDepth, int maxNodes)
+            throws IOException {
+
+        int printed = 0;
+        ArrayDeque<Node<T>> stack = new ArrayDeque<>();
+        ArrayDeque<Integer> depths = new ArrayDeque<>();
+        if (!root.isEmpty() && maxDepth > 0) {
+            stack.push(root);
+            depths.push(0);
+        }
+
+        while (!stack.isEmpty() && printed < maxNodes) {
+            Node<T> node = stack.pop();
+            int depth = depths.pop();
+
+            char position = depth == 0 ? '*' : node.parent.getLeft() == node ? 'E' : 'D';
+            for (int i = 0; i < depth; i++) { out.append(' '); }
+            out.append(position).append(' ').append(String.valueOf(node.getElement())).append('\n');
+            printed++;
+
+            // O filho à esquerda é empilhado por último, para ser escrito primeiro.
+            if (depth + 1 < maxDepth) {
+                if (!node.getRight().isEmpty()) {
+                    stack.push(node.getRight());
+                    depths.push(depth + 1);
+                }
+                if (!node.getLeft().isEmpty()) {
+                    stack.push(node.getLeft());
+                    depths.push(depth + 1);
+                }
+            }
+        }
+
+        appendHidden(out, size - printed);
+    }
+
+    /**
+     * Escreve o texto a partir da coluna, completando a linha com espaços. As colunas de cada linha são crescentes.
+     */
+    private static void place(StringBuilder line, int column, String text) {
+        while (line.length() < column) { line.append(' '); }
+        line.append(text);
+    }
+
+    private static void appendHidden(Appendable out, int hidden) throws IOException {
+        if (hidden > 0) {
+            out.append("... mais ").append(Integer.toString(hidden)).append(hidden == 1 ? " elemento\n" : " elementos\n");
+        }
+    }
+
+}
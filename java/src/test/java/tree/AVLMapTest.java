@@ -0,0 +1,194 @@
+package tree;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes para a classe AVLMap utilizando chaves Integer, comparando com TreeMap.
+ */
+class AVLMapTest {
+
+    /**
+     * put, get, remove e computeIfAbsent devem retornar o mesmo que TreeMap, e a árvore deve continuar balanceada.
+     */
+    @Test
+    public void randomOperationsTest() {
+
+        AVLMap<Integer, String> map = new AVLMap<>();
+        TreeMap<Integer, String> expected = new TreeMap<>();
+        Random random = new Random(17);
+
+        for (int i = 0; i < 20000; i++) {
+            int key = random.nextInt(1000);
+
+            switch (random.nextInt(4)) {
+                case 0 -> assertEquals(expected.put(key, "v" + i), map.put(key, "v" + i));
+                case 1 -> assertEquals(expected.remove(key), map.remove(key));
+                case 2 -> assertEquals(expected.get(key), map.get(key));
+                default -> assertEquals(expected.computeIfAbsent(key, k -> "c" + k), map.computeIfAbsent(key, k -> "c" + k));
+            }
+        }
+
+        assertEquals(expected, map);
+        assertEquals(new ArrayList<>(expected.entrySet()), new ArrayList<>(map.entrySet()));
+        // Altura de uma árvore AVL é no máximo 1,44 * log2(n + 2).
+        assertTrue(map.getHeight() <= 1.44 * Math.log(map.size() + 2) / Math.log(2));
+
+        assertNull(map.computeIfAbsent(-1, k -> null));
+        assertFalse(map.containsKey(-1));
+    }
+
+    /**
+     * floor, ceiling, lower, higher, first e last devem concordar com TreeMap em chaves presentes e ausentes.
+     */
+    @Test
+    public void navigationTest() {
+
+        AVLMap<Integer, Integer> map = new AVLMap<>();
+        TreeMap<Integer, Integer> expected = new TreeMap<>();
+        Random random = new Random(3);
+
+        assertNull(map.firstEntry());
+        assertThrows(java.util.NoSuchElementException.class, map::firstKey);
+
+        for (int i = 0; i < 500; i++) {
+            int key = random.nextInt(2000) * 2;
+            map.put(key, i);
+            expected.put(key, i);
+        }
+
+        for (int key = -3; key < 4003; key++) {
+            assertEquals(expected.floorEntry(key), map.floorEntry(key));
+            assertEquals(expected.ceilingEntry(key), map.ceilingEntry(key));
+            assertEquals(expected.lowerKey(key), map.lowerKey(key));
+            assertEquals(expected.higherKey(key), map.higherKey(key));
+        }
+
+        assertEquals(expected.firstEntry(), map.firstEntry());
+        assertEquals(expected.lastKey(), map.lastKey());
+        assertEquals(expected.pollFirstEntry(), map.pollFirstEntry());
+        assertEquals(expected.pollLastEntry(), map.pollLastEntry());
+        assertEquals(expected, map);
+    }
+
+    /**
+     * subMap, headMap, tailMap e descendingMap, inclusive compostos, devem se comportar como os de TreeMap,
+     * e modificações feitas pelas visões devem aparecer no mapa.
+     */
+    @Test
+    public void viewsTest() {
+
+        AVLMap<Integer, Integer> map = new AVLMap<>();
+        TreeMap<Integer, Integer> expected = new TreeMap<>();
+        Random random = new Random(29);
+
+        for (int i = 0; i < 1000; i++) {
+            int key = random.nextInt(3000);
+            map.put(key, i);
+            expected.put(key, i);
+        }
+
+        for (int i = 0; i < 200; i++) {
+            int from = random.nextInt(3000);
+            int to = from + random.nextInt(3000 - from + 1);
+            boolean fromInclusive = random.nextBoolean();
+            boolean toInclusive = random.nextBoolean();
+
+            List<NavigableMap<Integer, Integer>> views = List.of(
+                    map.subMap(from, fromInclusive, to, toInclusive),
+                    map.headMap(to, toInclusive),
+                    map.tailMap(from, fromInclusive),
+                    map.descendingMap().subMap(to, toInclusive, from, fromInclusive),
+                    map.subMap(from, fromInclusive, to, toInclusive).descendingMap().headMap(from + (to - from) / 2, true));
+            List<NavigableMap<Integer, Integer>> expectedViews = List.of(
+                    expected.subMap(from, fromInclusive, to, toInclusive),
+                    expected.headMap(to, toInclusive),
+                    expected.tailMap(from, fromInclusive),
+                    expected.descendingMap().subMap(to, toInclusive, from, fromInclusive),
+                    expected.subMap(from, fromInclusive, to, toInclusive).descendingMap().headMap(from + (to - from) / 2, true));
+
+            for (int v = 0; v < views.size(); v++) {
+                NavigableMap<Integer, Integer> view = views.get(v);
+                NavigableMap<Integer, Integer> expectedView = expectedViews.get(v);
+
+                assertEquals(new ArrayList<>(expectedView.entrySet()), new ArrayList<>(view.entrySet()));
+                assertEquals(new ArrayList<>(expectedView.navigableKeySet()), new ArrayList<>(view.navigableKeySet()));
+                assertEquals(new ArrayList<>(expectedView.descendingKeySet()), new ArrayList<>(view.descendingKeySet()));
+                assertEquals(expectedView.size(), view.size());
+                assertEquals(expectedView.firstEntry(), view.firstEntry());
+                assertEquals(expectedView.lastEntry(), view.lastEntry());
+
+                int probe = from - 5 + random.nextInt(to - from + 11);
+                assertEquals(expectedView.floorKey(probe), view.floorKey(probe));
+                assertEquals(expectedView.ceilingKey(probe), view.ceilingKey(probe));
+                assertEquals(expectedView.lowerKey(probe), view.lowerKey(probe));
+                assertEquals(expectedView.higherKey(probe), view.higherKey(probe));
+                assertEquals(expectedView.containsKey(probe), view.containsKey(probe));
+            }
+        }
+
+        // Modificações pelas visões.
+        map.headMap(1000, false).clear();
+        expected.headMap(1000, false).clear();
+        map.tailMap(2000, true).navigableKeySet().pollFirst();
+        expected.tailMap(2000, true).navigableKeySet().pollFirst();
+        map.subMap(1200, 1300).put(1250, -1);
+        expected.subMap(1200, 1300).put(1250, -1);
+        assertThrows(IllegalArgumentException.class, () -> map.subMap(1200, 1300).put(1300, 0));
+        assertThrows(IllegalArgumentException.class, () -> map.subMap(1300, 1200));
+
+        assertEquals(expected, map);
+    }
+
+    /**
+     * Remoção pelo iterador, nas duas direções, inclusive de nós com dois filhos,
+     * cujo conteúdo é substituído pelo do predecessor.
+     */
+    @Test
+    public void iteratorRemoveTest() {
+
+        AVLMap<Integer, Integer> map = new AVLMap<>();
+        TreeMap<Integer, Integer> expected = new TreeMap<>();
+
+        for (int i = 0; i < 2000; i++) {
+            map.put(i, i * 10);
+            expected.put(i, i * 10);
+        }
+
+        for (Iterator<Map.Entry<Integer, Integer>> iterator = map.entrySet().iterator(); iterator.hasNext(); ) {
+            Map.Entry<Integer, Integer> entry = iterator.next();
+            if (entry.getKey() % 3 == 0) {
+                iterator.remove();
+            } else {
+                entry.setValue(entry.getValue() + 1);
+            }
+        }
+        expected.entrySet().removeIf(entry -> entry.getKey() % 3 == 0);
+        expected.replaceAll((key, value) -> value + 1);
+        assertEquals(expected, map);
+
+        List<Integer> visited = new ArrayList<>();
+        for (Iterator<Integer> iterator = map.descendingKeySet().iterator(); iterator.hasNext(); ) {
+            int key = iterator.next();
+            visited.add(key);
+            if (key % 2 == 0) { iterator.remove(); }
+        }
+        assertEquals(new ArrayList<>(expected.descendingKeySet()), visited);
+        expected.keySet().removeIf(key -> key % 2 == 0);
+        assertEquals(expected, map);
+
+        map.values().removeIf(value -> value % 7 == 0);
+        expected.values().removeIf(value -> value % 7 == 0);
+        assertEquals(expected, map);
+    }
+
+}
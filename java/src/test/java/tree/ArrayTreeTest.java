@@ -0,0 +1,98 @@
+package tree;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes para a classe ArrayTree utilizando Integer.
+ */
+class ArrayTreeTest {
+
+    /**
+     * Altura máxima de uma árvore AVL com size elementos: 1,44 * log2(size + 2).
+     */
+    private static int maxHeight(int size) {
+        return (int) (1.4405 * (Math.log(size + 2) / Math.log(2)));
+    }
+
+    /**
+     * Compara a árvore com um TreeSet após inserções e remoções aleatórias,
+     * usando apenas a interface SearchTree como fariam os outros usuários da árvore.
+     */
+    @Test
+    public void randomOperationsTest() {
+
+        ArrayTree<Integer> arrayTree = new ArrayTree<>();
+        SearchTree<Integer> tree = arrayTree;
+        TreeSet<Integer> expected = new TreeSet<>();
+        Random random = new Random(11);
+
+        for (int i = 0; i < 50000; i++) {
+            int n = random.nextInt(5000);
+            if (random.nextBoolean()) {
+                assertEquals(expected.add(n), tree.insert(n));
+            } else {
+                assertEquals(expected.remove(n), tree.remove(n));
+            }
+            assertEquals(expected.size(), tree.getSize());
+        }
+
+        for (int n = 0; n < 5000; n++) {
+            assertEquals(expected.contains(n), tree.contains(n));
+        }
+        assertTrue(arrayTree.getHeight() <= maxHeight(tree.getSize()));
+    }
+
+    /**
+     * Índices liberados por remoções precisam ser reutilizados, sem crescer os arrays.
+     */
+    @Test
+    public void freeListReuseTest() {
+
+        ArrayTree<Integer> tree = new ArrayTree<>(1000);
+
+        for (int n = 0; n < 1000; n++) {
+            tree.insert(n);
+        }
+        assertEquals(1000, tree.getCapacity());
+
+        for (int round = 0; round < 10; round++) {
+            for (int n = 0; n < 1000; n += 2) {
+                assertTrue(tree.remove(n));
+            }
+            for (int n = 0; n < 1000; n += 2) {
+                assertTrue(tree.insert(n));
+            }
+        }
+
+        assertEquals(1000, tree.getSize());
+        assertEquals(1000, tree.getCapacity());
+        assertTrue(tree.getHeight() <= maxHeight(tree.getSize()));
+    }
+
+    /**
+     * A árvore cresce a partir da capacidade padrão e pode ser esvaziada completamente.
+     */
+    @Test
+    public void growAndClearTest() {
+
+        ArrayTree<Integer> tree = new ArrayTree<>();
+
+        for (int n = 0; n < 100000; n++) {
+            assertTrue(tree.insert(n));
+        }
+        assertEquals(100000, tree.getSize());
+        assertTrue(tree.getHeight() <= maxHeight(tree.getSize()));
+
+        for (int n = 99999; n >= 0; n--) {
+            assertTrue(tree.remove(n));
+        }
+        assertEquals(0, tree.getSize());
+        assertEquals(0, tree.getHeight());
+        assertFalse(tree.contains(0));
+    }
+}
@@ -0,0 +1,135 @@
+package tree;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes para a classe ConcurrentAVLTree utilizando Integer.
+ */
+class ConcurrentAVLTreeTest {
+
+    /**
+     * Com uma única thread a árvore deve se comportar como um TreeSet.
+     */
+    @Test
+    public void randomOperationsTest() {
+
+        ConcurrentAVLTree<Integer> tree = new ConcurrentAVLTree<>();
+        TreeSet<Integer> expected = new TreeSet<>();
+        Random random = new Random(12);
+
+        for (int i = 0; i < 50000; i++) {
+            int n = random.nextInt(5000);
+            if (random.nextBoolean()) {
+                assertEquals(expected.add(n), tree.insert(n));
+            } else {
+                assertEquals(expected.remove(n), tree.remove(n));
+            }
+            assertEquals(expected.size(), tree.getSize());
+        }
+
+        for (int n = 0; n < 5000; n++) {
+            assertEquals(expected.contains(n), tree.contains(n));
+        }
+        assertEquals(expected.size(), tree.checkStructure());
+    }
+
+    /**
+     * Várias threads inserem e removem chaves ímpares enquanto outras buscam chaves pares, que nunca são removidas.
+     * As buscas nunca podem deixar de encontrar uma chave par, mesmo durante as rotações.
+     * Cada escritora modifica apenas as suas próprias chaves, então no final o conteúdo da árvore é conhecido.
+     */
+    @Test
+    public void concurrentStressTest() throws Exception {
+
+        final int keys = 20000;
+        final int writers = 4;
+        final int readers = 4;
+        final int operations = 200000;
+
+        ConcurrentAVLTree<Integer> tree = new ConcurrentAVLTree<>();
+        for (int n = 0; n < keys; n += 2) {
+            tree.insert(n);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(writers + readers);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+
+        try {
+            List<Future<TreeSet<Integer>>> writerResults = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                final int id = w;
+                writerResults.add(executor.submit(() -> {
+                    Random random = new Random(id);
+                    TreeSet<Integer> own = new TreeSet<>();
+                    start.await();
+
+                    for (int i = 0; i < operations; i++) {
+                        // Chaves ímpares n com (n / 2) % writers == id pertencem a esta escritora.
+                        int n = 2 * (random.nextInt(keys / 2 / writers) * writers + id) + 1;
+                        if (random.nextBoolean()) {
+                            assertEquals(own.add(n), tree.insert(n));
+                        } else {
+                            assertEquals(own.remove(n), tree.remove(n));
+                        }
+                    }
+                    return own;
+                }));
+            }
+
+            List<Future<Integer>> readerResults = new ArrayList<>();
+            for (int r = 0; r < readers; r++) {
+                final int id = r;
+                readerResults.add(executor.submit(() -> {
+                    Random random = new Random(100 + id);
+                    int lookups = 0;
+                    start.await();
+
+                    while (writing.get()) {
+                        int n = 2 * random.nextInt(keys / 2);
+                        assertTrue(tree.contains(n), "Chave " + n + " não encontrada");
+                        lookups++;
+                    }
+                    return lookups;
+                }));
+            }
+
+            start.countDown();
+
+            TreeSet<Integer> expected = new TreeSet<>();
+            for (int n = 0; n < keys; n += 2) {
+                expected.add(n);
+            }
+            for (Future<TreeSet<Integer>> result : writerResults) {
+                expected.addAll(result.get(60, TimeUnit.SECONDS));
+            }
+            writing.set(false);
+            for (Future<Integer> result : readerResults) {
+                assertTrue(result.get(60, TimeUnit.SECONDS) > 0);
+            }
+
+            for (int n = 0; n < keys; n++) {
+                assertEquals(expected.contains(n), tree.contains(n), "Chave " + n);
+            }
+            assertEquals(expected.size(), tree.getSize());
+            assertEquals(expected.size(), tree.checkStructure());
+
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
@@ -0,0 +1,107 @@
+package tree;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes para a classe ConcurrentTree utilizando Integer.
+ */
+class ConcurrentTreeTest {
+
+    /**
+     * Uma escritora insere e remove chaves ímpares enquanto leitoras buscam chaves pares, que nunca são removidas,
+     * e iteram sobre cópias da árvore, que devem estar sempre ordenadas e conter todas as chaves pares.
+     */
+    @Test
+    public void optimisticReadsTest() throws Exception {
+
+        final int keys = 20000;
+        final int readers = 4;
+
+        ConcurrentTree<Integer> tree = new ConcurrentTree<>();
+        for (int n = 0; n < keys; n += 2) {
+            tree.insert(n);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(readers + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+
+        try {
+            Future<TreeSet<Integer>> writer = executor.submit(() -> {
+                Random random = new Random(1);
+                TreeSet<Integer> odd = new TreeSet<>();
+                start.await();
+
+                for (int i = 0; i < 200000; i++) {
+                    int n = 2 * random.nextInt(keys / 2) + 1;
+                    if (random.nextBoolean()) {
+                        assertEquals(odd.add(n), tree.insert(n));
+                    } else {
+                        assertEquals(odd.remove(n), tree.remove(n));
+                    }
+                }
+                return odd;
+            });
+
+            List<Future<?>> readerResults = new ArrayList<>();
+            for (int r = 0; r < readers; r++) {
+                final int id = r;
+                readerResults.add(executor.submit(() -> {
+                    Random random = new Random(100 + id);
+                    start.await();
+
+                    while (writing.get()) {
+                        int n = 2 * random.nextInt(keys / 2);
+                        assertTrue(tree.contains(n), "Chave " + n + " não encontrada");
+
+                        if (random.nextInt(1000) == 0) {
+                            int even = 0;
+                            Integer previous = null;
+                            for (Integer element : tree) {
+                                assertTrue(previous == null || previous < element);
+                                previous = element;
+                                if (element % 2 == 0) { even++; }
+                            }
+                            assertEquals(keys / 2, even);
+                        }
+                    }
+                    return null;
+                }));
+            }
+
+            start.countDown();
+
+            TreeSet<Integer> expected = writer.get(60, TimeUnit.SECONDS);
+            writing.set(false);
+            for (Future<?> result : readerResults) {
+                result.get(60, TimeUnit.SECONDS);
+            }
+
+            for (int n = 0; n < keys; n += 2) {
+                expected.add(n);
+            }
+            assertEquals(expected.size(), tree.getSize());
+
+            List<Integer> elements = new ArrayList<>();
+            tree.forEach(elements::add);
+            assertEquals(new ArrayList<>(expected), elements);
+
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
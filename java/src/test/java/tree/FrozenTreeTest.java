@@ -0,0 +1,182 @@
+package tree;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes para a classe FrozenTree.
+ */
+class FrozenTreeTest {
+
+    /**
+     * Compara todas as buscas com um TreeSet, para elementos presentes, ausentes e fora dos extremos.
+     */
+    private static <T> void navigationTest(FrozenTree<T> frozen, NavigableSet<T> expected, List<T> probes) {
+
+        List<T> elements = new ArrayList<>();
+        frozen.forEach(elements::add);
+        assertEquals(new ArrayList<>(expected), elements);
+        List<T> iterated = new ArrayList<>();
+        frozen.iterator().forEachRemaining(iterated::add);
+        assertEquals(elements, iterated);
+        assertEquals(expected.size(), frozen.getSize());
+
+        for (T probe : probes) {
+            assertEquals(expected.contains(probe), frozen.contains(probe));
+            assertEquals(expected.floor(probe), frozen.floor(probe));
+            assertEquals(expected.ceiling(probe), frozen.ceiling(probe));
+            assertEquals(expected.lower(probe), frozen.lower(probe));
+            assertEquals(expected.higher(probe), frozen.higher(probe));
+        }
+
+        if (expected.isEmpty()) {
+            assertThrows(NoSuchElementException.class, frozen::first);
+            assertThrows(NoSuchElementException.class, frozen::last);
+        } else {
+            assertEquals(expected.first(), frozen.first());
+            assertEquals(expected.last(), frozen.last());
+        }
+    }
+
+    /**
+     * Integer na ordem natural usa as chaves long; com um Comparator, as comparações nos elementos.
+     * Tamanhos de 0 a 300 cobrem árvores com o último nível completo e incompleto.
+     */
+    @Test
+    public void navigationTest() {
+
+        Random random = new Random(25);
+
+        for (int size = 0; size <= 300; size += size < 20 ? 1 : 31) {
+            Tree<Integer> natural = new Tree<>();
+            Tree<Integer> reversed = new Tree<>(Comparator.reverseOrder());
+            TreeSet<Integer> expected = new TreeSet<>();
+            while (expected.size() < size) {
+                int n = random.nextInt(10 * size) * 2;
+                natural.insert(n);
+                reversed.insert(n);
+                expected.add(n);
+            }
+
+            List<Integer> probes = new ArrayList<>();
+            for (int n = -3; n <= 20 * size + 3; n++) { probes.add(n); }
+
+            FrozenTree<Integer> frozen = natural.freeze();
+            navigationTest(frozen, expected, probes);
+            for (int n = -3; n <= 20 * size + 3; n++) {
+                assertEquals(expected.contains(n), frozen.containsKey(n));
+            }
+            navigationTest(reversed.freeze(), expected.descendingSet(), probes);
+        }
+
+        // Long com valores nos extremos, onde a diferença entre chaves transbordaria.
+        Tree<Long> longs = new Tree<>();
+        TreeSet<Long> expectedLongs = new TreeSet<>();
+        for (long n : new long[] {Long.MIN_VALUE, -1, 0, 1, Long.MAX_VALUE}) {
+            longs.insert(n);
+            expectedLongs.add(n);
+        }
+        navigationTest(longs.freeze(), expectedLongs, List.of(Long.MIN_VALUE, -2L, 0L, 2L, Long.MAX_VALUE - 1, Long.MAX_VALUE));
+    }
+
+    /**
+     * Strings não têm chaves long, e a cópia não muda quando a árvore é modificada depois.
+     */
+    @Test
+    public void comparableElementsTest() {
+
+        Tree<String> tree = new Tree<>();
+        TreeSet<String> expected = new TreeSet<>();
+        for (String s : List.of("pera", "maçã", "uva", "banana", "kiwi", "laranja", "abacaxi")) {
+            tree.insert(s);
+            expected.add(s);
+        }
+
+        FrozenTree<String> frozen = tree.freeze();
+        tree.insert("caju");
+        tree.remove("uva");
+
+        navigationTest(frozen, expected, List.of("", "a", "banana", "c", "kiwi", "z"));
+        assertFalse(frozen.contains("caju"));
+        assertThrows(IllegalStateException.class, () -> frozen.containsKey(1));
+    }
+
+    /**
+     * Com Tree.comparingLong as chaves guardadas nos nós são copiadas, e num multiconjunto as ocorrências.
+     */
+    @Test
+    public void keysAndOccurrencesTest() {
+
+        record Event(long time, String name) { }
+
+        Tree<Event> events = Tree.comparingLong(Event::time);
+        for (int i = 0; i < 100; i++) { events.insert(new Event(i * 10L, "e" + i)); }
+        FrozenTree<Event> frozen = events.freeze();
+
+        assertTrue(frozen.contains(new Event(500, "outro nome")));
+        assertTrue(frozen.containsKey(500));
+        assertFalse(frozen.containsKey(505));
+        assertEquals("e50", frozen.floor(new Event(505, "")).name());
+        assertEquals("e51", frozen.ceiling(new Event(505, "")).name());
+        assertNull(frozen.lower(new Event(0, "")));
+        assertNull(frozen.higher(new Event(990, "")));
+
+        Tree<Integer> multiset = Tree.multiset();
+        for (int i = 0; i < 1000; i++) { multiset.insert(i % 7); }
+        FrozenTree<Integer> frozenMultiset = multiset.freeze();
+        assertEquals(7, frozenMultiset.getSize());
+        for (int n = 0; n < 7; n++) {
+            assertEquals(multiset.count(n), frozenMultiset.count(n));
+        }
+        assertEquals(0, frozenMultiset.count(7));
+        assertEquals(0, new Tree<Integer>().freeze().count(0));
+    }
+
+    /**
+     * A navegação no layout não transborda com mais de 2^30 elementos, quando 2k passa de Integer.MAX_VALUE.
+     * Só os índices são testados, sem criar uma árvore tão grande.
+     */
+    @Test
+    public void largeLayoutTest() {
+
+        // Para tamanhos pequenos, percorrer com successor visita todos os índices uma vez.
+        for (int size = 1; size <= 64; size++) {
+            boolean[] visited = new boolean[size + 1];
+            int count = 0;
+            for (int k = FrozenTree.leftmost(size); k <= size; k = FrozenTree.successor(k, size)) {
+                assertFalse(visited[k]);
+                visited[k] = true;
+                count++;
+            }
+            assertEquals(size, count);
+        }
+
+        // O maior array possível: os nós do último nível completo não têm filhos.
+        int size = Integer.MAX_VALUE - 8;
+        assertEquals(1 << 30, FrozenTree.leftmost(size));
+        assertEquals(1 << 29, FrozenTree.successor(1 << 30, size));
+        assertEquals(size + 1, FrozenTree.successor((1 << 30) - 1, size));
+        assertEquals((1 << 30) + 1, FrozenTree.successor(1 << 29, size));
+
+        // Caminhos de 31 passos, que passam de Integer.MAX_VALUE: só à esquerda, só à direita,
+        // e 29 à esquerda seguidos de um à direita e um à esquerda.
+        long path = 1L << 31;
+        assertEquals(1 << 30, FrozenTree.lastLeftTurn(path));
+        assertEquals(0, FrozenTree.lastRightTurn(path));
+        assertEquals(0, FrozenTree.lastLeftTurn((1L << 32) - 1));
+        assertEquals(Integer.MAX_VALUE, FrozenTree.lastRightTurn((1L << 32) - 1));
+        path = ((1L << 30) + 1) << 1;
+        assertEquals((1 << 30) + 1, FrozenTree.lastLeftTurn(path));
+        assertEquals(1 << 29, FrozenTree.lastRightTurn(path));
+    }
+
+}
@@ -0,0 +1,257 @@
+package tree;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes para a classe JournaledTree.
+ */
+class JournaledTreeTest {
+
+    @TempDir
+    Path directory;
+
+    private JournaledTree<Integer> open(JournaledTree.Durability durability) throws IOException {
+        return JournaledTree.open(directory, new Tree<>(), ElementCodec.integers(), durability);
+    }
+
+    private static void randomOperations(JournaledTree<Integer> tree, TreeSet<Integer> expected, Random random, int count) {
+        for (int i = 0; i < count; i++) {
+            int n = random.nextInt(2000) - 1000;
+            if (random.nextInt(3) < 2) {
+                assertEquals(expected.add(n), tree.insert(n));
+            } else {
+                assertEquals(expected.remove(n), tree.remove(n));
+            }
+        }
+    }
+
+    private static void contentTest(JournaledTree<Integer> tree, TreeSet<Integer> expected) {
+        assertEquals(expected.size(), tree.getSize());
+        for (int n = -1000; n < 1000; n++) {
+            assertEquals(expected.contains(n), tree.contains(n));
+        }
+    }
+
+    private List<String> files() throws IOException {
+        try (var files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString()).sorted().collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * A árvore aberta novamente contém exatamente os elementos presentes quando foi fechada, em todos os modos.
+     */
+    @Test
+    public void reopenTest() throws IOException {
+
+        TreeSet<Integer> expected = new TreeSet<>();
+        Random random = new Random(22);
+
+        List<JournaledTree.Durability> modes = List.of(JournaledTree.Durability.perOperation(),
+                JournaledTree.Durability.perBatch(), JournaledTree.Durability.every(Duration.ofMillis(5)));
+
+        for (JournaledTree.Durability durability : modes) {
+            try (JournaledTree<Integer> tree = open(durability)) {
+                contentTest(tree, expected);
+                randomOperations(tree, expected, random, 3000);
+            }
+        }
+
+        try (JournaledTree<Integer> tree = open(JournaledTree.Durability.perBatch())) {
+            contentTest(tree, expected);
+        }
+        assertThrows(IllegalArgumentException.class,
+                () -> JournaledTree.open(directory, Tree.fromSorted(1), ElementCodec.integers(),
+                        JournaledTree.Durability.perBatch()));
+    }
+
+    /**
+     * Sem close, só o que passou por fsync é garantido, e um registro interrompido no fim do journal é descartado.
+     */
+    @Test
+    public void crashTest() throws IOException {
+
+        TreeSet<Integer> expected = new TreeSet<>();
+        Random random = new Random(23);
+
+        // O processo "cai": a árvore nunca é fechada.
+        JournaledTree<Integer> crashed = open(JournaledTree.Durability.perOperation());
+        randomOperations(crashed, expected, random, 2000);
+
+        try (JournaledTree<Integer> tree = open(JournaledTree.Durability.perBatch())) {
+            contentTest(tree, expected);
+            assertTrue(tree.insert(5000));
+            tree.commit();
+        }
+
+        // Os últimos bytes do journal, como uma gravação interrompida no meio do registro de 5000.
+        Path journal = directory.resolve("journal-0");
+        try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 2);
+        }
+        long truncated = Files.size(journal);
+
+        try (JournaledTree<Integer> tree = open(JournaledTree.Durability.perBatch())) {
+            contentTest(tree, expected);
+            assertFalse(tree.contains(5000));
+            // O registro incompleto foi cortado do arquivo.
+            assertTrue(Files.size(journal) < truncated);
+            assertTrue(tree.insert(6000));
+            expected.add(6000);
+        }
+
+        try (JournaledTree<Integer> tree = open(JournaledTree.Durability.perBatch())) {
+            assertTrue(tree.contains(6000));
+            assertEquals(expected.size(), tree.getSize());
+        }
+    }
+
+    /**
+     * A compactação troca o journal por um snapshot, e um snapshot incompleto de uma compactação interrompida é ignorado.
+     */
+    @Test
+    public void compactionTest() throws IOException {
+
+        TreeSet<Integer> expected = new TreeSet<>();
+        Random random = new Random(24);
+
+        try (JournaledTree<Integer> tree = open(JournaledTree.Durability.perBatch())) {
+            randomOperations(tree, expected, random, 5000);
+            long before = tree.getJournalBytes();
+
+            tree.compact().join();
+            assertEquals(0, tree.getJournalBytes());
+            assertEquals(List.of("journal-1", "snapshot-1"), files());
+
+            randomOperations(tree, expected, random, 100);
+            assertTrue(tree.getJournalBytes() < before);
+            tree.compact().join();
+            randomOperations(tree, expected, random, 100);
+        }
+        assertEquals(List.of("journal-2", "snapshot-2"), files());
+
+        // Queda durante a gravação de um snapshot.
+        Files.write(directory.resolve("snapshot-3.tmp"), new byte[] {1, 2, 3});
+        try (JournaledTree<Integer> tree = open(JournaledTree.Durability.perBatch())) {
+            contentTest(tree, expected);
+        }
+        assertEquals(List.of("journal-2", "snapshot-2"), files());
+
+        // Queda depois de iniciar o journal 3, antes do snapshot 3: os journals 2 e 3 são aplicados sobre o snapshot 2.
+        Files.createFile(directory.resolve("journal-3"));
+        try (JournaledTree<Integer> tree = open(JournaledTree.Durability.perBatch())) {
+            contentTest(tree, expected);
+            randomOperations(tree, expected, random, 100);
+        }
+        try (JournaledTree<Integer> tree = open(JournaledTree.Durability.perBatch())) {
+            contentTest(tree, expected);
+        }
+
+        // O journal cresce até ficar maior que MIN_COMPACTION_BYTES e é compactado automaticamente.
+        try (JournaledTree<Integer> tree = open(JournaledTree.Durability.perBatch())) {
+            for (int i = 0; files().contains("journal-3"); i++) {
+                for (int j = 0; j < 1000; j++) {
+                    assertTrue(tree.insert(100000 + j));
+                    assertTrue(tree.remove(100000 + j));
+                }
+                assertTrue(i < 10000);
+            }
+            assertTrue(tree.getJournalBytes() < JournaledTree.MIN_COMPACTION_BYTES);
+        }
+        try (JournaledTree<Integer> tree = open(JournaledTree.Durability.perBatch())) {
+            contentTest(tree, expected);
+        }
+    }
+
+    /**
+     * Compactações durante as modificações: cada registro fica no snapshot ou no journal seguinte, nunca nos dois.
+     * Num multiconjunto um registro aplicado duas vezes mudaria o número de ocorrências.
+     */
+    @Test
+    public void concurrentCompactionTest() throws Exception {
+
+        int inserts = 50000;
+        int distinct = 100;
+
+        try (JournaledTree<Integer> tree = JournaledTree.open(directory, Tree.multiset(), ElementCodec.integers(),
+                JournaledTree.Durability.perBatch())) {
+            Thread writer = new Thread(() -> {
+                for (int i = 0; i < inserts; i++) {
+                    assertTrue(tree.insert(i % distinct));
+                }
+            });
+            writer.start();
+            int compactions = 0;
+            while (writer.isAlive()) {
+                tree.compact().join();
+                compactions++;
+            }
+            writer.join();
+            assertTrue(compactions > 0);
+        }
+
+        Tree<Integer> recovered = Tree.multiset();
+        try (JournaledTree<Integer> tree = JournaledTree.open(directory, recovered, ElementCodec.integers(),
+                JournaledTree.Durability.perBatch())) {
+            assertEquals(distinct, tree.getSize());
+            assertEquals(inserts, recovered.totalSize());
+            for (int n = 0; n < distinct; n++) {
+                assertEquals(inserts / distinct, recovered.count(n));
+            }
+        }
+    }
+
+    /**
+     * Várias threads modificando ao mesmo tempo com fsync por operação compartilham os fsyncs.
+     */
+    @Test
+    public void concurrentTest() throws Exception {
+
+        int threads = 8;
+        int perThread = 300;
+
+        try (JournaledTree<Integer> tree = open(JournaledTree.Durability.perOperation())) {
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int first = t * perThread;
+                Thread worker = new Thread(() -> {
+                    for (int i = first; i < first + perThread; i++) {
+                        assertTrue(tree.insert(i));
+                    }
+                });
+                workers.add(worker);
+                worker.start();
+            }
+            for (Thread worker : workers) { worker.join(); }
+            assertEquals(threads * perThread, tree.getSize());
+        }
+
+        try (JournaledTree<Integer> tree = open(JournaledTree.Durability.perBatch())) {
+            assertEquals(threads * perThread, tree.getSize());
+            for (int i = 0; i < threads * perThread; i++) {
+                assertTrue(tree.contains(i));
+            }
+        }
+
+        JournaledTree<Integer> closed = open(JournaledTree.Durability.perBatch());
+        closed.close();
+        closed.close();
+        assertThrows(IllegalStateException.class, () -> closed.insert(1));
+    }
+
+}
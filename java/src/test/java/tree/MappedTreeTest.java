@@ -0,0 +1,148 @@
+package tree;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes para a classe MappedTree.
+ */
+class MappedTreeTest {
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Altura máxima de uma árvore AVL com size elementos: 1,44 * log2(size + 2).
+     */
+    private static int maxHeight(int size) {
+        return (int) (1.4405 * (Math.log(size + 2) / Math.log(2)));
+    }
+
+    /**
+     * A árvore aberta novamente contém exatamente os elementos presentes quando foi fechada.
+     */
+    @Test
+    public void reopenTest() throws IOException {
+
+        Path file = directory.resolve("tree.avl");
+        TreeSet<Long> expected = new TreeSet<>();
+        Random random = new Random(17);
+
+        try (MappedTree tree = MappedTree.open(file)) {
+            for (int i = 0; i < 50000; i++) {
+                long n = random.nextInt(5000) - 2500L;
+                if (random.nextBoolean()) {
+                    assertEquals(expected.add(n), tree.insert(n));
+                } else {
+                    assertEquals(expected.remove(n), tree.remove(n));
+                }
+            }
+        }
+
+        try (MappedTree tree = MappedTree.open(file)) {
+            assertEquals(expected.size(), tree.getSize());
+            for (long n = -2500; n < 2500; n++) {
+                assertEquals(expected.contains(n), tree.contains(n));
+            }
+            assertTrue(tree.getHeight() <= maxHeight(tree.getSize()));
+
+            // A árvore reaberta continua aceitando modificações.
+            assertTrue(tree.insert(1_000_000));
+        }
+
+        try (MappedTree tree = MappedTree.open(file)) {
+            assertEquals(expected.size() + 1, tree.getSize());
+            assertTrue(tree.contains(1_000_000));
+        }
+    }
+
+    /**
+     * Mais elementos do que cabem numa região: o arquivo cresce e é reaberto com todas as regiões.
+     */
+    @Test
+    public void growTest() throws IOException {
+
+        Path file = directory.resolve("tree.avl");
+        int count = 1_200_000;
+
+        try (MappedTree tree = MappedTree.open(file)) {
+            for (long n = 0; n < count; n++) {
+                tree.insert(n);
+            }
+        }
+
+        try (MappedTree tree = MappedTree.open(file)) {
+            assertEquals(count, tree.getSize());
+            assertEquals(Files.size(file), tree.getFileSize());
+            assertTrue(tree.contains(0));
+            assertTrue(tree.contains(count - 1));
+            assertFalse(tree.contains(count));
+        }
+    }
+
+    /**
+     * Um arquivo modificado e não fechado, como após uma queda do processo, é recusado.
+     * Depois de flush o arquivo volta a ser consistente.
+     */
+    @Test
+    public void uncleanFileTest() throws IOException {
+
+        Path file = directory.resolve("tree.avl");
+        Path crashed = directory.resolve("crashed.avl");
+
+        try (MappedTree tree = MappedTree.open(file)) {
+            tree.insert(1);
+
+            // O processo "caiu" com a árvore aberta e modificada: o arquivo fica como estava neste momento.
+            Files.copy(file, crashed);
+
+            tree.flush();
+        }
+
+        assertThrows(IOException.class, () -> MappedTree.open(crashed));
+        try (MappedTree tree = MappedTree.open(file)) {
+            assertTrue(tree.contains(1));
+        }
+    }
+
+    /**
+     * Enquanto a árvore está aberta, o arquivo não pode ser aberto por outra instância, mesmo depois de flush.
+     */
+    @Test
+    public void lockTest() throws IOException {
+
+        Path file = directory.resolve("tree.avl");
+
+        try (MappedTree tree = MappedTree.open(file)) {
+            tree.insert(1);
+            assertThrows(IOException.class, () -> MappedTree.open(file));
+            tree.flush();
+            assertThrows(IOException.class, () -> MappedTree.open(file));
+        }
+
+        // Fechada, a árvore libera o arquivo.
+        try (MappedTree tree = MappedTree.open(file)) {
+            assertTrue(tree.contains(1));
+        }
+    }
+
+    /**
+     * Arquivos que não foram criados por MappedTree são recusados.
+     */
+    @Test
+    public void invalidFileTest() throws IOException {
+
+        Path file = directory.resolve("other.bin");
+        Files.write(file, new byte[MappedTree.HEADER_BYTES * 2]);
+
+        assertThrows(IOException.class, () -> MappedTree.open(file));
+    }
+}
@@ -0,0 +1,95 @@
+package tree;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes para a classe OffHeapTree.
+ */
+class OffHeapTreeTest {
+
+    /**
+     * Altura máxima de uma árvore AVL com size elementos: 1,44 * log2(size + 2).
+     */
+    private static int maxHeight(int size) {
+        return (int) (1.4405 * (Math.log(size + 2) / Math.log(2)));
+    }
+
+    /**
+     * Compara a árvore com um TreeSet após inserções e remoções aleatórias.
+     */
+    @Test
+    public void randomOperationsTest() {
+
+        TreeSet<Long> expected = new TreeSet<>();
+        Random random = new Random(13);
+
+        try (OffHeapTree tree = new OffHeapTree()) {
+
+            for (int i = 0; i < 50000; i++) {
+                long n = random.nextInt(5000) * 1_000_000_007L;
+                if (random.nextBoolean()) {
+                    assertEquals(expected.add(n), tree.insert(n));
+                } else {
+                    assertEquals(expected.remove(n), tree.remove(n));
+                }
+                assertEquals(expected.size(), tree.getSize());
+            }
+
+            for (long n = 0; n < 5000; n++) {
+                long key = n * 1_000_000_007L;
+                assertEquals(expected.contains(key), tree.contains(key));
+            }
+            assertTrue(tree.getHeight() <= maxHeight(tree.getSize()));
+        }
+    }
+
+    /**
+     * Mais chaves do que cabem num bloco: a árvore precisa alocar novos blocos
+     * e reutilizar os índices liberados antes de alocar outros.
+     */
+    @Test
+    public void chunkAllocationTest() {
+
+        try (OffHeapTree tree = new OffHeapTree()) {
+
+            for (long n = 0; n < 200000; n++) {
+                assertTrue(tree.insert(n));
+            }
+            long reserved = tree.getReservedBytes();
+            assertTrue(tree.getHeight() <= maxHeight(tree.getSize()));
+
+            for (long n = 0; n < 200000; n += 2) {
+                assertTrue(tree.remove(n));
+            }
+            for (long n = 0; n < 200000; n += 2) {
+                assertTrue(tree.insert(n));
+            }
+
+            assertEquals(200000, tree.getSize());
+            assertEquals(reserved, tree.getReservedBytes());
+        }
+    }
+
+    /**
+     * Após close a memória é liberada e a árvore não pode mais ser usada.
+     */
+    @Test
+    public void closeTest() {
+
+        OffHeapTree tree = new OffHeapTree();
+        tree.insert(1);
+        tree.close();
+        // Fechar de novo não tem efeito.
+        tree.close();
+
+        assertEquals(0, tree.getSize());
+        assertThrows(IllegalStateException.class, () -> tree.contains(1));
+        assertThrows(IllegalStateException.class, () -> tree.insert(2));
+        assertThrows(IllegalStateException.class, () -> tree.remove(1));
+    }
+}
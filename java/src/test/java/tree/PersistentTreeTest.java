@@ -0,0 +1,91 @@
+package tree;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes para a classe PersistentTree utilizando Integer.
+ */
+class PersistentTreeTest {
+
+    /**
+     * Cada versão deve continuar igual ao TreeSet do momento em que foi criada, mesmo depois de muitas outras modificações.
+     */
+    @Test
+    public void snapshotsTest() {
+
+        PersistentTree<Integer> tree = PersistentTree.empty();
+        TreeSet<Integer> expected = new TreeSet<>();
+        Random random = new Random(13);
+
+        List<PersistentTree<Integer>> snapshots = new ArrayList<>();
+        List<List<Integer>> snapshotContents = new ArrayList<>();
+
+        for (int i = 0; i < 20000; i++) {
+            int n = random.nextInt(2000);
+            PersistentTree<Integer> previous = tree;
+
+            if (random.nextBoolean()) {
+                tree = tree.insert(n);
+                assertEquals(expected.add(n), tree != previous);
+            } else {
+                tree = tree.remove(n);
+                assertEquals(expected.remove(n), tree != previous);
+            }
+            assertEquals(expected.size(), tree.getSize());
+
+            if (i % 1000 == 0) {
+                snapshots.add(tree);
+                snapshotContents.add(new ArrayList<>(expected));
+            }
+        }
+
+        for (int n = 0; n < 2000; n++) {
+            assertEquals(expected.contains(n), tree.contains(n));
+        }
+        assertEquals(expected.size(), tree.checkStructure());
+
+        for (int s = 0; s < snapshots.size(); s++) {
+            PersistentTree<Integer> snapshot = snapshots.get(s);
+            List<Integer> elements = new ArrayList<>();
+            snapshot.forEach(elements::add);
+
+            assertEquals(snapshotContents.get(s), elements);
+            assertEquals(elements.size(), snapshot.checkStructure());
+        }
+    }
+
+    /**
+     * Uma modificação copia apenas o caminho até o elemento e os nós das rotações, nunca a árvore inteira.
+     */
+    @Test
+    public void copiedNodesTest() {
+
+        PersistentTree<Integer> tree = PersistentTree.empty();
+
+        for (int n = 0; n < 100000; n++) {
+            tree = tree.insert(n);
+            // O caminho tem no máximo getHeight() nós, e uma rotação dupla cria no máximo 2 a mais.
+            assertTrue(tree.getCopiedNodes() <= tree.getHeight() + 2);
+        }
+
+        PersistentTree<Integer> unchanged = tree.insert(500);
+        assertSame(tree, unchanged);
+
+        PersistentTree<Integer> removed = tree.remove(50000);
+        assertTrue(removed.getCopiedNodes() > 0);
+        // Na remoção cada nível pode precisar de uma rotação dupla, que cria 3 nós em vez de 1.
+        assertTrue(removed.getCopiedNodes() <= 3 * tree.getHeight());
+        assertEquals(removed.getCopiedNodes() * (long) PersistentTree.NODE_BYTES, removed.getCopiedBytes());
+
+        assertTrue(tree.contains(50000));
+        assertFalse(removed.contains(50000));
+    }
+
+}
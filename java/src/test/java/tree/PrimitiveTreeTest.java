@@ -0,0 +1,95 @@
+package tree;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes para as árvores de chaves primitivas IntAVLTree e LongAVLTree.
+ */
+class PrimitiveTreeTest {
+
+    /**
+     * Altura máxima de uma árvore AVL com size elementos: 1,44 * log2(size + 2).
+     */
+    private static int maxHeight(int size) {
+        return (int) (1.4405 * (Math.log(size + 2) / Math.log(2)));
+    }
+
+    /**
+     * Compara IntAVLTree com um TreeSet após inserções e remoções aleatórias.
+     */
+    @Test
+    public void intTreeRandomOperationsTest() {
+
+        IntAVLTree tree = new IntAVLTree();
+        TreeSet<Integer> expected = new TreeSet<>();
+        Random random = new Random(7);
+
+        for (int i = 0; i < 50000; i++) {
+            int n = random.nextInt(5000) - 2500;
+            if (random.nextBoolean()) {
+                assertEquals(expected.add(n), tree.insert(n));
+            } else {
+                assertEquals(expected.remove(n), tree.remove(n));
+            }
+            assertEquals(expected.size(), tree.getSize());
+        }
+
+        for (int n = -2500; n < 2500; n++) {
+            assertEquals(expected.contains(n), tree.contains(n));
+        }
+        assertTrue(tree.getHeight() <= maxHeight(tree.getSize()));
+    }
+
+    /**
+     * Compara LongAVLTree com um TreeSet, usando chaves que não cabem num int.
+     */
+    @Test
+    public void longTreeRandomOperationsTest() {
+
+        LongAVLTree tree = new LongAVLTree();
+        TreeSet<Long> expected = new TreeSet<>();
+        Random random = new Random(7);
+
+        for (int i = 0; i < 50000; i++) {
+            long n = (random.nextInt(5000) - 2500) * (1L << 40);
+            if (random.nextBoolean()) {
+                assertEquals(expected.add(n), tree.insert(n));
+            } else {
+                assertEquals(expected.remove(n), tree.remove(n));
+            }
+            assertEquals(expected.size(), tree.getSize());
+        }
+
+        for (long n = -2500; n < 2500; n++) {
+            long key = n * (1L << 40);
+            assertEquals(expected.contains(key), tree.contains(key));
+        }
+        assertTrue(tree.getHeight() <= maxHeight(tree.getSize()));
+    }
+
+    /**
+     * Inserção em ordem crescente é o pior caso para as rotações; a árvore precisa continuar balanceada.
+     */
+    @Test
+    public void sequentialInsertionHeightTest() {
+
+        IntAVLTree tree = new IntAVLTree();
+
+        for (int n = 0; n < 100000; n++) {
+            assertTrue(tree.insert(n));
+        }
+        assertEquals(100000, tree.getSize());
+        assertTrue(tree.getHeight() <= maxHeight(tree.getSize()));
+
+        for (int n = 0; n < 100000; n += 2) {
+            assertTrue(tree.remove(n));
+        }
+        assertEquals(50000, tree.getSize());
+        assertTrue(tree.getHeight() <= maxHeight(tree.getSize()));
+    }
+}
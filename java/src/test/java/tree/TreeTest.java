@@ -2,8 +2,28 @@ package tree;
 
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -23,7 +43,7 @@ class TreeTest {
      * @param action O que deve ser executado em cada nó.
      * @param node Nó raiz da subárvore.
      */
-    private void executeBottomTop(Consumer<Node<Integer>> action, Node<Integer> node) {
+    private <T> void executeBottomTop(Consumer<Node<T>> action, Node<T> node) {
 
         // Primeiro nos filhos.
         if (!node.isEmpty()) {
@@ -49,7 +69,7 @@ class TreeTest {
      * Verifica o balanceamento de um nó.
      * @param node Nó que vai ser analisado.
      */
-    private void balanceTest(Node<Integer> node) {
+    private <T> void balanceTest(Node<T> node) {
 
         if (!node.isEmpty()) {
             node.getLeft().updadeHeight();
@@ -96,7 +116,7 @@ class TreeTest {
      * @param node Nó cuja altura deve ser calculada.
      * @return Máximo entre as alturas dos nós filhos + 1.
      */
-    private int calculateNodeHeight(Node<Integer> node) {
+    private <T> int calculateNodeHeight(Node<T> node) {
         if (node.isEmpty()) { return 0; }
         return Math.max(
                 calculateNodeHeight(node.getLeft()),
@@ -108,7 +128,7 @@ class TreeTest {
      * Compara a altura calculada no momento do teste com a
      * altura calculada quando a àrvore foi modificada.
      */
-    private void nodeHeigthTest(Node<Integer> node) {
+    private <T> void nodeHeigthTest(Node<T> node) {
         assertEquals(node.getHeight(), calculateNodeHeight(node));
     }
 
@@ -234,4 +254,1046 @@ class TreeTest {
         }
 
     }
-}
\ No newline at end of file
+
+    // Operações aleatórias
+
+    /**
+     * Executa muitas inserções e remoções aleatórias comparando com um TreeSet.
+     * O balanceamento termina a subida assim que a altura para de mudar,
+     * então no final todas as alturas e fatores de balanço precisam continuar corretos.
+     */
+    @Test
+    public void randomOperationsTest() {
+
+        Tree<Integer> tree = new Tree<>();
+        TreeSet<Integer> expected = new TreeSet<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 200000; i++) {
+            int n = random.nextInt(20000);
+            if (random.nextBoolean()) {
+                assertEquals(expected.add(n), tree.insert(n));
+            } else {
+                assertEquals(expected.remove(n), tree.remove(n));
+            }
+        }
+
+        assertEquals(expected.size(), tree.getSize());
+        for (int n = 0; n < 20000; n++) {
+            assertEquals(expected.contains(n), tree.contains(n));
+        }
+
+        tree.verify();
+    }
+
+    // Construção em lote
+
+    /**
+     * Uma árvore criada a partir de elementos ordenados contém todos eles e tem alturas e balanço corretos.
+     */
+    @Test
+    public void fromSortedTest() {
+
+        ArrayList<Integer> sorted = new ArrayList<>(numbers);
+        Collections.sort(sorted);
+
+        Tree<Integer> tree = Tree.fromSorted(sorted.toArray(new Integer[0]));
+
+        assertEquals(size, tree.getSize());
+        numbers.forEach(n -> assertTrue(tree.contains(n)));
+        tree.verify();
+
+        // A árvore continua funcionando normalmente depois da construção.
+        numbers.forEach(n -> assertTrue(tree.remove(n)));
+        assertEquals(0, tree.getSize());
+
+        // Elementos fora de ordem ou repetidos são recusados.
+        assertThrows(IllegalArgumentException.class, () -> Tree.fromSorted(1, 3, 2));
+        assertThrows(IllegalArgumentException.class, () -> Tree.fromSorted(1, 1));
+        assertThrows(IllegalArgumentException.class, () -> Tree.fromSorted(List.of(1, 2).iterator(), 3));
+    }
+
+    /**
+     * Inserção em lote numa árvore que já tem elementos, com elementos repetidos no lote e na árvore.
+     */
+    @Test
+    public void bulkInsertTest() {
+
+        Tree<Integer> tree = new Tree<>();
+        int middleIndex = size / 2;
+
+        for (int i = 0; i < middleIndex; i++) {
+            tree.insert(numbers.get(i));
+        }
+
+        // O lote tem todos os números, então metade já está na árvore, e alguns aparecem duas vezes.
+        ArrayList<Integer> batch = new ArrayList<>(numbers);
+        batch.addAll(numbers.subList(0, 10));
+        Collections.shuffle(batch);
+
+        assertEquals(size - middleIndex, tree.bulkInsert(batch));
+        assertEquals(size, tree.getSize());
+        numbers.forEach(n -> assertTrue(tree.contains(n)));
+        tree.verify();
+
+        // Um lote pequeno numa árvore grande é inserido elemento a elemento.
+        Tree<Integer> large = new Tree<>();
+        for (int n = 0; n < 10000; n++) {
+            large.insert(n * 2);
+        }
+        assertEquals(2, large.bulkInsert(List.of(1, 3, 4)));
+        assertEquals(10002, large.getSize());
+        large.verify();
+    }
+
+    // Percurso em ordem
+
+    /**
+     * O iterador, forEach e stream percorrem todos os elementos em ordem crescente.
+     */
+    @Test
+    public void inOrderIterationTest() {
+
+        Tree<Integer> tree = new Tree<>();
+        numbers.forEach(tree::insert);
+
+        ArrayList<Integer> sorted = new ArrayList<>(numbers);
+        Collections.sort(sorted);
+
+        ArrayList<Integer> iterated = new ArrayList<>();
+        for (int n : tree) {
+            iterated.add(n);
+        }
+        assertEquals(sorted, iterated);
+
+        ArrayList<Integer> visited = new ArrayList<>();
+        tree.forEach(visited::add);
+        assertEquals(sorted, visited);
+
+        assertEquals(sorted, tree.stream().collect(Collectors.toList()));
+
+        Iterator<Integer> empty = new Tree<Integer>().iterator();
+        assertFalse(empty.hasNext());
+        assertThrows(NoSuchElementException.class, empty::next);
+    }
+
+    /**
+     * subRange inclui o início, exclui o fim e funciona com limites que não estão na árvore.
+     */
+    @Test
+    public void subRangeTest() {
+
+        Tree<Integer> tree = new Tree<>();
+        for (int n = 0; n < 100; n += 2) {
+            tree.insert(n);
+        }
+
+        ArrayList<Integer> range = new ArrayList<>();
+        tree.subRange(10, 20).forEach(range::add);
+        assertEquals(List.of(10, 12, 14, 16, 18), range);
+
+        range.clear();
+        tree.subRange(11, 17).forEach(range::add);
+        assertEquals(List.of(12, 14, 16), range);
+
+        range.clear();
+        tree.subRange(95, 1000).forEach(range::add);
+        assertEquals(List.of(96, 98), range);
+
+        assertFalse(tree.subRange(200, 300).iterator().hasNext());
+        assertFalse(tree.subRange(10, 10).iterator().hasNext());
+        assertThrows(IllegalArgumentException.class, () -> tree.subRange(20, 10));
+    }
+
+    /**
+     * Divide o spliterator recursivamente até o fim: cada elemento precisa aparecer exatamente uma vez,
+     * e a stream paralela precisa produzir o mesmo resultado que a sequencial.
+     */
+    @Test
+    public void spliteratorTest() {
+
+        Tree<Integer> tree = new Tree<>();
+        for (int n = 0; n < 10000; n++) {
+            tree.insert(n);
+        }
+
+        ArrayList<Integer> collected = new ArrayList<>();
+        splitAndCollect(tree.spliterator(), collected);
+        Collections.sort(collected);
+        assertEquals(10000, collected.size());
+        for (int n = 0; n < 10000; n++) {
+            assertEquals(n, collected.get(n));
+        }
+
+        assertEquals(
+                tree.stream().mapToLong(n -> n).sum(),
+                tree.stream().parallel().mapToLong(n -> n).sum()
+        );
+        assertEquals(
+                tree.stream().collect(Collectors.toList()),
+                tree.stream().parallel().collect(Collectors.toList())
+        );
+    }
+
+    /**
+     * Divide enquanto for possível e depois consome cada parte.
+     */
+    private void splitAndCollect(Spliterator<Integer> spliterator, List<Integer> collected) {
+        Spliterator<Integer> prefix = spliterator.trySplit();
+        if (prefix != null) {
+            splitAndCollect(prefix, collected);
+            splitAndCollect(spliterator, collected);
+        } else {
+            spliterator.forEachRemaining(collected::add);
+        }
+    }
+
+    // Estatísticas de ordem
+
+    /**
+     * select, rank e countInRange comparados com uma lista ordenada, após inserções, remoções e inserção em lote.
+     * As contagens dos nós precisam estar corretas depois de todas as rotações.
+     */
+    @Test
+    public void orderStatisticsTest() {
+
+        Tree<Integer> tree = Tree.withOrderStatistics();
+        TreeSet<Integer> expected = new TreeSet<>();
+        Random random = new Random(23);
+
+        for (int i = 0; i < 5000; i++) {
+            int n = random.nextInt(1000);
+            if (random.nextInt(3) > 0) {
+                assertEquals(expected.add(n), tree.insert(n));
+            } else {
+                assertEquals(expected.remove(n), tree.remove(n));
+            }
+        }
+
+        ArrayList<Integer> batch = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            batch.add(random.nextInt(3000));
+        }
+        tree.bulkInsert(batch);
+        expected.addAll(batch);
+
+        ArrayList<Integer> sorted = new ArrayList<>(expected);
+        assertEquals(sorted.size(), tree.getSize());
+
+        for (int k = 0; k < sorted.size(); k++) {
+            assertEquals(sorted.get(k), tree.select(k));
+        }
+        for (int n = -1; n <= 3001; n++) {
+            assertEquals(expected.headSet(n).size(), tree.rank(n));
+        }
+        assertEquals(expected.subSet(100, 2000).size(), tree.countInRange(100, 2000));
+        assertEquals(0, tree.countInRange(500, 500));
+
+        assertThrows(IndexOutOfBoundsException.class, () -> tree.select(-1));
+        assertThrows(IndexOutOfBoundsException.class, () -> tree.select(sorted.size()));
+        tree.verify();
+
+        // Árvores comuns não guardam as contagens.
+        Tree<Integer> plain = new Tree<>();
+        plain.insert(1);
+        assertThrows(UnsupportedOperationException.class, () -> plain.select(0));
+        assertThrows(UnsupportedOperationException.class, () -> plain.rank(1));
+    }
+
+    /**
+     * Aplica lotes ordenados de tamanhos variados com insertAll e removeAll e compara com um TreeSet.
+     * Depois de cada lote a árvore precisa continuar balanceada, com alturas, pais e contagens corretos.
+     */
+    @Test
+    public void insertAllRemoveAllTest() {
+
+        // A árvore com estatísticas de ordem não interrompe a subida do balanceamento, então as duas são testadas.
+        Tree<Integer> tree = Tree.withOrderStatistics();
+        Tree<Integer> plain = new Tree<>();
+        TreeSet<Integer> expected = new TreeSet<>();
+        Random random = new Random(14);
+
+        for (int round = 0; round < 200; round++) {
+
+            int batchSize = random.nextBoolean() ? random.nextInt(5) : random.nextInt(20000);
+            TreeSet<Integer> batch = new TreeSet<>();
+            for (int i = 0; i < batchSize; i++) {
+                batch.add(random.nextInt(50000));
+            }
+
+            int changed;
+            if (random.nextInt(3) > 0) {
+                changed = tree.insertAll(batch);
+                assertEquals(changed, plain.insertAll(batch));
+                int before = expected.size();
+                expected.addAll(batch);
+                assertEquals(expected.size() - before, changed);
+            } else {
+                changed = tree.removeAll(batch);
+                assertEquals(changed, plain.removeAll(batch));
+                int before = expected.size();
+                expected.removeAll(batch);
+                assertEquals(before - expected.size(), changed);
+            }
+
+            assertEquals(expected.size(), tree.getSize());
+            assertEquals(expected.size(), plain.getSize());
+        }
+
+        ArrayList<Integer> elements = new ArrayList<>();
+        tree.forEach(elements::add);
+        assertEquals(new ArrayList<>(expected), elements);
+
+        for (Tree<Integer> t : List.of(tree, plain)) {
+            t.verify();
+        }
+        elements.clear();
+        plain.forEach(elements::add);
+        assertEquals(new ArrayList<>(expected), elements);
+
+        for (int k = 0; k < elements.size(); k += 7) {
+            assertEquals(elements.get(k), tree.select(k));
+        }
+
+        // Lotes fora de ordem são recusados sem modificar a árvore.
+        assertThrows(IllegalArgumentException.class, () -> tree.insertAll(List.of(3, 2)));
+        assertThrows(IllegalArgumentException.class, () -> tree.removeAll(List.of(1, 1)));
+        assertEquals(expected.size(), tree.getSize());
+    }
+
+    /**
+     * Cria uma árvore com os números em ordem aleatória, para que a forma não seja a de fromSorted.
+     */
+    private Tree<Integer> randomTree(TreeSet<Integer> numbers, boolean orderStatistics, Random random) {
+        Tree<Integer> tree = orderStatistics ? Tree.withOrderStatistics() : new Tree<>();
+        ArrayList<Integer> shuffled = new ArrayList<>(numbers);
+        Collections.shuffle(shuffled, random);
+        shuffled.forEach(tree::insert);
+        return tree;
+    }
+
+    private <T> void structureTest(Tree<T> tree, TreeSet<T> expected) {
+        ArrayList<T> elements = new ArrayList<>();
+        tree.forEach(elements::add);
+        assertEquals(new ArrayList<>(expected), elements);
+        assertEquals(expected.size(), tree.getSize());
+        tree.verify();
+    }
+
+    /**
+     * join e split com árvores de alturas bem diferentes, com e sem estatísticas de ordem.
+     */
+    @Test
+    public void joinSplitTest() {
+
+        Random random = new Random(15);
+
+        for (boolean orderStatistics : new boolean[] {false, true}) {
+            TreeSet<Integer> small = new TreeSet<>();
+            TreeSet<Integer> large = new TreeSet<>();
+            for (int n = 0; n < 20; n++) { small.add(n); }
+            for (int n = 21; n < 5000; n++) { large.add(n); }
+
+            Tree<Integer> joined = Tree.join(randomTree(small, orderStatistics, random), 20,
+                    randomTree(large, orderStatistics, random));
+            TreeSet<Integer> expected = new TreeSet<>(small);
+            expected.add(20);
+            expected.addAll(large);
+            structureTest(joined, expected);
+
+            // Divide num elemento presente e num ausente.
+            for (int at : new int[] {3000, -1, 20, 4999, 10000}) {
+                Tree<Integer> tree = randomTree(expected, orderStatistics, random);
+                Tree<Integer> greater = tree.split(at);
+                structureTest(tree, new TreeSet<>(expected.headSet(at)));
+                structureTest(greater, new TreeSet<>(expected.tailSet(at)));
+            }
+
+            // Sem estatísticas de ordem os tamanhos das partes só são contados quando lidos:
+            // modificações, join e operações de conjuntos antes disso mantêm os tamanhos corretos.
+            Tree<Integer> tree = randomTree(expected, orderStatistics, random);
+            Tree<Integer> greater = tree.split(2500);
+            TreeSet<Integer> lower = new TreeSet<>(expected.headSet(2500));
+            TreeSet<Integer> upper = new TreeSet<>(expected.tailSet(2500));
+            assertTrue(tree.insert(-5));
+            assertTrue(tree.remove(7));
+            assertFalse(tree.remove(7));
+            assertTrue(greater.remove(4000));
+            lower.add(-5);
+            lower.remove(7);
+            upper.remove(4000);
+            Tree<Integer> rest = greater.split(4500);
+            Tree<Integer> rejoined = Tree.union(tree, greater);
+            TreeSet<Integer> joinedExpected = new TreeSet<>(lower);
+            joinedExpected.addAll(upper.headSet(4500));
+            structureTest(rejoined, joinedExpected);
+            Tree<Integer> pieces = rest.split(4800);
+            assertTrue(pieces.remove(4800));
+            structureTest(Tree.join(rest, 4800, pieces), new TreeSet<>(upper.tailSet(4500)));
+
+            assertThrows(IllegalArgumentException.class,
+                    () -> Tree.join(randomTree(large, orderStatistics, random), 20, new Tree<>()));
+        }
+    }
+
+    /**
+     * União, interseção e diferença, sequenciais e paralelas, comparadas com TreeSet.
+     * As árvores são grandes o suficiente para que as versões paralelas criem tarefas.
+     */
+    @Test
+    public void setOperationsTest() {
+
+        Random random = new Random(16);
+        TreeSet<Integer> a = new TreeSet<>();
+        TreeSet<Integer> b = new TreeSet<>();
+        for (int i = 0; i < 40000; i++) {
+            a.add(random.nextInt(100000));
+            b.add(random.nextInt(100000));
+        }
+        // Uma árvore pequena, para o caso de tamanhos bem diferentes.
+        TreeSet<Integer> c = new TreeSet<>(a.headSet(500));
+
+        TreeSet<Integer> union = new TreeSet<>(a);
+        union.addAll(b);
+        TreeSet<Integer> intersection = new TreeSet<>(a);
+        intersection.retainAll(b);
+        TreeSet<Integer> difference = new TreeSet<>(a);
+        difference.removeAll(b);
+        TreeSet<Integer> unionSmall = new TreeSet<>(b);
+        unionSmall.addAll(c);
+        TreeSet<Integer> differenceSmall = new TreeSet<>(b);
+        differenceSmall.removeAll(c);
+
+        for (boolean orderStatistics : new boolean[] {false, true}) {
+            structureTest(Tree.union(randomTree(a, orderStatistics, random), randomTree(b, orderStatistics, random)), union);
+            structureTest(Tree.intersection(randomTree(a, orderStatistics, random), randomTree(b, orderStatistics, random)), intersection);
+            structureTest(Tree.difference(randomTree(a, orderStatistics, random), randomTree(b, orderStatistics, random)), difference);
+
+            structureTest(Tree.parallelUnion(randomTree(a, orderStatistics, random), randomTree(b, orderStatistics, random)), union);
+            structureTest(Tree.parallelIntersection(randomTree(a, orderStatistics, random), randomTree(b, orderStatistics, random)), intersection);
+            structureTest(Tree.parallelDifference(randomTree(a, orderStatistics, random), randomTree(b, orderStatistics, random)), difference);
+
+            structureTest(Tree.union(randomTree(b, orderStatistics, random), randomTree(c, orderStatistics, random)), unionSmall);
+            structureTest(Tree.difference(randomTree(b, orderStatistics, random), randomTree(c, orderStatistics, random)), differenceSmall);
+            structureTest(Tree.intersection(randomTree(c, orderStatistics, random), randomTree(b, orderStatistics, random)),
+                    new TreeSet<>(c.stream().filter(b::contains).toList()));
+        }
+
+        // As árvores usadas são consumidas.
+        Tree<Integer> x = randomTree(a, false, random);
+        Tree<Integer> y = randomTree(b, false, random);
+        Tree.union(x, y);
+        assertEquals(0, x.getSize());
+        assertEquals(0, y.getSize());
+        assertTrue(x.getRoot().isEmpty());
+
+        Tree<Integer> z = new Tree<>();
+        assertThrows(IllegalArgumentException.class, () -> Tree.union(z, z));
+        assertThrows(IllegalArgumentException.class, () -> Tree.union(z, Tree.withOrderStatistics()));
+    }
+
+    /**
+     * parallelForEach, parallelReduce e parallelCount numa árvore alta o suficiente para criar tarefas.
+     */
+    @Test
+    public void parallelOperationsTest() {
+
+        Random random = new Random(17);
+        TreeSet<Integer> numbers = new TreeSet<>();
+        for (int i = 0; i < 200000; i++) {
+            numbers.add(random.nextInt(1000000));
+        }
+        Tree<Integer> tree = randomTree(numbers, false, random);
+
+        LongAdder sum = new LongAdder();
+        LongAdder calls = new LongAdder();
+        tree.parallelForEach(n -> {
+            sum.add(n);
+            calls.increment();
+        });
+        long expectedSum = numbers.stream().mapToLong(Integer::longValue).sum();
+        assertEquals(expectedSum, sum.sum());
+        assertEquals(numbers.size(), calls.sum());
+
+        assertEquals(expectedSum, tree.parallelReduce(0L, Integer::longValue, Long::sum));
+        // Combinação que depende da ordem: o primeiro resultado não nulo é o menor elemento.
+        assertEquals(numbers.first(), tree.parallelReduce(null, n -> n, (a, b) -> a != null ? a : b));
+        assertEquals(numbers.last(), tree.parallelReduce(null, n -> n, (a, b) -> b != null ? b : a));
+
+        assertEquals(numbers.stream().filter(n -> n % 3 == 0).count(), tree.parallelCount(n -> n % 3 == 0));
+        assertEquals(0, new Tree<Integer>().parallelCount(n -> true));
+        assertEquals(42, new Tree<Integer>().parallelReduce(42, n -> n, Integer::sum));
+    }
+
+    /**
+     * Árvores ordenadas por Comparator: ordem inversa, com e sem estatísticas de ordem, e um tipo que não é Comparable.
+     */
+    @Test
+    public void comparatorTest() {
+
+        Random random = new Random(18);
+        Tree<Integer> tree = new Tree<>(Comparator.reverseOrder());
+        Tree<Integer> counted = Tree.withOrderStatistics(Comparator.reverseOrder());
+        TreeSet<Integer> expected = new TreeSet<>(Comparator.reverseOrder());
+
+        for (int i = 0; i < 5000; i++) {
+            int n = random.nextInt(2000);
+            if (random.nextInt(3) > 0) {
+                assertEquals(expected.add(n), tree.insert(n));
+                counted.insert(n);
+            } else {
+                assertEquals(expected.remove(n), tree.remove(n));
+                counted.remove(n);
+            }
+        }
+        structureTest(tree, expected);
+        structureTest(counted, expected);
+
+        assertEquals(expected.first(), counted.select(0));
+        assertEquals(expected.headSet(1000).size(), counted.rank(1000));
+        assertEquals(new ArrayList<>(expected.subSet(1500, 500)), toList(tree.subRange(1500, 500)));
+        assertSame(tree.spliterator().getComparator(), Comparator.reverseOrder());
+
+        // split, bulkInsert e as operações de conjuntos seguem a mesma ordem.
+        Tree<Integer> smaller = tree.split(1000);
+        structureTest(smaller, new TreeSet<>(expected.tailSet(1000)));
+        Tree<Integer> joined = Tree.union(tree, smaller);
+        joined.bulkInsert(List.of(5000, -1, 2500));
+        expected.addAll(List.of(5000, -1, 2500));
+        structureTest(joined, expected);
+
+        assertThrows(IllegalArgumentException.class, () -> Tree.union(joined, new Tree<>()));
+        assertThrows(IllegalArgumentException.class, () -> Tree.union(joined, new Tree<>(Comparator.naturalOrder())));
+
+        Tree<int[]> arrays = new Tree<>(Comparator.comparingInt((int[] a) -> a[0]));
+        assertTrue(arrays.insert(new int[] {2}));
+        assertTrue(arrays.insert(new int[] {1}));
+        assertFalse(arrays.insert(new int[] {2}));
+        assertTrue(arrays.contains(new int[] {1}));
+    }
+
+    /**
+     * Evento ordenado apenas pelo instante, para a árvore com chave extraída.
+     */
+    private record Event(long time, String name) { }
+
+    /**
+     * Árvore com chave long extraída e guardada nos nós: elementos com a mesma chave são o mesmo elemento,
+     * e a chave acompanha o elemento quando a remoção o move para outro nó.
+     */
+    @Test
+    public void comparingLongTest() {
+
+        Random random = new Random(19);
+        Tree<Event> tree = Tree.comparingLong(Event::time);
+        TreeSet<Event> expected = new TreeSet<>(Comparator.comparingLong(Event::time));
+
+        for (int i = 0; i < 20000; i++) {
+            Event event = new Event(random.nextInt(4000) - 2000L, "e" + i);
+            switch (random.nextInt(3)) {
+                case 0 -> assertEquals(expected.add(event), tree.insert(event));
+                case 1 -> assertEquals(expected.remove(event), tree.remove(event));
+                default -> assertEquals(expected.contains(event), tree.contains(event));
+            }
+        }
+        structureTest(tree, expected);
+
+        // O elemento guardado é o primeiro inserido com a chave.
+        Event first = expected.first();
+        assertFalse(tree.insert(new Event(first.time(), "outro")));
+        assertEquals(first.name(), tree.iterator().next().name());
+
+        Event from = new Event(-500, "");
+        Event to = new Event(500, "");
+        assertEquals(new ArrayList<>(expected.subSet(from, to)), toList(tree.subRange(from, to)));
+
+        Tree<Event> greater = tree.split(from);
+        TreeSet<Event> expectedGreater = new TreeSet<>(expected.tailSet(from));
+        expected.removeAll(expectedGreater);
+        structureTest(tree, expected);
+        structureTest(greater, expectedGreater);
+
+        // As duas árvores usam a mesma função de chave, então podem ser unidas.
+        Tree<Event> union = Tree.union(tree, greater);
+        expected.addAll(expectedGreater);
+        structureTest(union, expected);
+        assertThrows(IllegalArgumentException.class, () -> Tree.union(union, Tree.comparingLong(e -> e.time())));
+    }
+
+    /**
+     * Multiconjunto comparado com um TreeMap de contagens: ocorrências, tamanhos, select e rank com repetições,
+     * e a estrutura da árvore, que tem um nó por elemento distinto.
+     */
+    @Test
+    public void multisetTest() {
+
+        Random random = new Random(20);
+        Tree<Integer> multiset = Tree.multiset();
+        TreeMap<Integer, Integer> expected = new TreeMap<>();
+
+        for (int i = 0; i < 20000; i++) {
+            int n = random.nextInt(300);
+            if (random.nextInt(5) < 3) {
+                assertTrue(multiset.insert(n));
+                expected.merge(n, 1, Integer::sum);
+            } else {
+                assertEquals(expected.containsKey(n), multiset.remove(n));
+                expected.computeIfPresent(n, (key, count) -> count > 1 ? count - 1 : null);
+            }
+        }
+        multisetTest(multiset, expected);
+
+        // Um milhão de repetições custam um único nó.
+        Tree<Integer> repeated = Tree.multiset();
+        for (int i = 0; i < 1000000; i++) {
+            repeated.insert(7);
+        }
+        assertEquals(1, repeated.getSize());
+        assertEquals(1000000, repeated.totalSize());
+        assertEquals(1, repeated.getRoot().getHeight());
+        assertEquals(0, repeated.rank(7));
+        assertEquals(1000000, repeated.rank(8));
+        assertEquals(7, repeated.select(999999));
+
+        // Lotes: uma ocorrência por elemento.
+        TreeSet<Integer> batch = new TreeSet<>();
+        for (int i = 0; i < 500; i++) { batch.add(random.nextInt(600)); }
+        assertEquals(batch.size(), multiset.insertAll(batch));
+        batch.forEach(n -> expected.merge(n, 1, Integer::sum));
+        multisetTest(multiset, expected);
+
+        int present = (int) batch.stream().filter(expected::containsKey).count();
+        assertEquals(present, multiset.removeAll(batch));
+        batch.forEach(n -> expected.computeIfPresent(n, (key, count) -> count > 1 ? count - 1 : null));
+        multisetTest(multiset, expected);
+
+        // Operações de conjuntos: soma, mínimo e subtração das ocorrências.
+        for (int kind = 0; kind < 3; kind++) {
+            Tree<Integer> a = Tree.multiset();
+            Tree<Integer> b = Tree.multiset();
+            TreeMap<Integer, Integer> countsA = new TreeMap<>();
+            TreeMap<Integer, Integer> countsB = new TreeMap<>();
+            for (int i = 0; i < 3000; i++) {
+                int n = random.nextInt(400);
+                if (random.nextBoolean()) {
+                    a.insert(n);
+                    countsA.merge(n, 1, Integer::sum);
+                } else {
+                    b.insert(n);
+                    countsB.merge(n, 1, Integer::sum);
+                }
+            }
+
+            TreeMap<Integer, Integer> result = new TreeMap<>();
+            Tree<Integer> tree;
+            if (kind == 0) {
+                tree = Tree.union(a, b);
+                result.putAll(countsA);
+                countsB.forEach((n, count) -> result.merge(n, count, Integer::sum));
+            } else if (kind == 1) {
+                tree = Tree.intersection(a, b);
+                countsA.forEach((n, count) -> {
+                    if (countsB.containsKey(n)) { result.put(n, Math.min(count, countsB.get(n))); }
+                });
+            } else {
+                tree = Tree.parallelDifference(a, b);
+                countsA.forEach((n, count) -> {
+                    int remaining = count - countsB.getOrDefault(n, 0);
+                    if (remaining > 0) { result.put(n, remaining); }
+                });
+            }
+            multisetTest(tree, result);
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> Tree.union(Tree.multiset(), Tree.<Integer>withOrderStatistics()));
+        assertEquals(0, new Tree<Integer>().totalSize());
+    }
+
+    /**
+     * Snapshot de multiconjunto com os elementos 1 a occurrences.length, cada um com as ocorrências informadas.
+     */
+    private static byte[] multisetSnapshot(int... occurrences) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.writeBytes(Arrays.copyOf(writeSnapshot(Tree.<Integer>multiset(), ElementCodec.integers()), 13));
+        ElementCodec.Output out = new ElementCodec.Output(Channels.newChannel(bytes));
+        out.writeVarLong(occurrences.length);
+        for (int i = 0; i < occurrences.length; i++) {
+            ElementCodec.integers().write(i == 0 ? null : i, i + 1, out);
+            out.writeVarLong(occurrences[i]);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * As contagens das subárvores somam ocorrências de elementos diferentes e nunca transbordam:
+     * operações que passariam de Integer.MAX_VALUE falham antes de modificar as árvores.
+     */
+    @Test
+    public void multisetOverflowTest() throws IOException {
+
+        Tree<Integer> full = Tree.multiset();
+        readSnapshot(full, multisetSnapshot(Integer.MAX_VALUE - 1, 1), ElementCodec.integers());
+        assertEquals(Integer.MAX_VALUE, full.totalSize());
+        assertEquals(Integer.MAX_VALUE - 1, full.rank(2));
+        assertEquals(2, full.select(Integer.MAX_VALUE - 1));
+
+        assertThrows(ArithmeticException.class, () -> full.insert(3));
+        assertThrows(ArithmeticException.class, () -> full.insert(1));
+        assertEquals(Integer.MAX_VALUE, full.totalSize());
+        assertEquals(2, full.getSize());
+        full.verify();
+
+        Tree<Integer> other = Tree.multiset();
+        other.insert(5);
+        assertThrows(ArithmeticException.class, () -> Tree.union(full, other));
+        assertThrows(ArithmeticException.class, () -> Tree.join(full, 4, Tree.multiset()));
+        assertEquals(Integer.MAX_VALUE, full.totalSize());
+        assertEquals(1, other.totalSize());
+
+        // Remover libera espaço para novas ocorrências.
+        assertTrue(full.remove(2));
+        assertTrue(full.insert(3));
+        full.verify();
+
+        // Ocorrências que somam mais que Integer.MAX_VALUE num snapshot corrompido.
+        assertThrows(IOException.class, () -> readSnapshot(Tree.multiset(),
+                multisetSnapshot(Integer.MAX_VALUE, Integer.MAX_VALUE), ElementCodec.integers()));
+    }
+
+    @Test
+    public void metricsTest() {
+
+        Tree<Integer> tree = new Tree<>();
+        assertNull(tree.getMetrics());
+        TreeMetrics metrics = tree.enableMetrics();
+        assertSame(metrics, tree.enableMetrics());
+
+        // Inserções crescentes só causam rotações simples.
+        for (int i = 1; i <= 1023; i++) {
+            tree.insert(i);
+        }
+        TreeMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(1013, snapshot.singleRotations());
+        assertEquals(0, snapshot.doubleRotations());
+        assertEquals(1022, snapshot.rebalances());
+        assertEquals(10, snapshot.height());
+        assertEquals(1023, snapshot.latencies().get(TreeMetrics.Operation.INSERT).getCount());
+        // A descida de cada inserção também é uma busca.
+        assertEquals(1023, snapshot.finds());
+        assertTrue(snapshot.comparisons() >= 1022);
+
+        // 3, 1, 2 exige uma rotação dupla.
+        Tree<Integer> small = new Tree<>();
+        TreeMetrics smallMetrics = small.enableMetrics();
+        small.insert(3);
+        small.insert(1);
+        small.insert(2);
+        assertEquals(1, smallMetrics.getDoubleRotations());
+        assertEquals(0, smallMetrics.getSingleRotations());
+        smallMetrics.reset();
+        assertEquals(0, smallMetrics.getDoubleRotations());
+        assertEquals(0, smallMetrics.getLatency(TreeMetrics.Operation.INSERT).getCount());
+
+        // Árvore perfeita: encontrar a raiz custa 1 comparação e uma folha 10.
+        tree = Tree.fromSorted(IntStream.rangeClosed(1, 1023).iterator(), 1023);
+        metrics = tree.enableMetrics();
+        assertTrue(tree.contains(512));
+        assertTrue(tree.contains(1));
+        assertEquals(2, metrics.getFinds());
+        assertEquals(11, metrics.getComparisons());
+        assertFalse(tree.remove(0));
+        assertEquals(3, metrics.getFinds());
+        assertEquals(2, metrics.snapshot().latencies().get(TreeMetrics.Operation.CONTAINS).getCount());
+        assertEquals(1, metrics.getLatency(TreeMetrics.Operation.REMOVE).getCount());
+        assertTrue(metrics.latencyPercentileNanos("CONTAINS", 50) > 0);
+
+        // Inserir um elemento existente encontra a raiz com 1 comparação; um novo à esquerda de tudo passa por 10 nós.
+        metrics.reset();
+        assertFalse(tree.insert(512));
+        assertTrue(tree.insert(0));
+        assertEquals(2, metrics.getFinds());
+        assertEquals(11, metrics.getComparisons());
+
+        // O mesmo na descida com chaves long.
+        Tree<Integer> keyed = Tree.comparingLong(Integer::longValue);
+        for (int i = 1; i <= 7; i++) { keyed.insert(i); }
+        TreeMetrics keyedMetrics = keyed.enableMetrics();
+        assertFalse(keyed.insert(4));
+        assertTrue(keyed.insert(8));
+        assertEquals(2, keyedMetrics.getFinds());
+        assertEquals(4, keyedMetrics.getComparisons());
+
+        // Desativadas, as métricas param de mudar.
+        tree.disableMetrics();
+        tree.contains(3);
+        assertEquals(2, metrics.getFinds());
+
+        // Cada valor fica num bucket cujo fim não passa de 25% acima dele.
+        long previous = -1;
+        for (long nanos : new long[] {0, 1, 3, 4, 5, 7, 8, 100, 1000, 123456789, Long.MAX_VALUE}) {
+            int bucket = TreeMetrics.Histogram.bucket(nanos);
+            assertTrue(bucket < TreeMetrics.Histogram.BUCKETS);
+            assertTrue(TreeMetrics.Histogram.bucket(nanos) >= previous);
+            previous = bucket;
+            long max = TreeMetrics.Histogram.bucketMax(bucket);
+            assertTrue(max >= nanos);
+            assertTrue(max - nanos <= nanos / 4);
+        }
+        TreeMetrics.Histogram histogram = metrics.getLatency(TreeMetrics.Operation.INSERT);
+        assertThrows(IllegalArgumentException.class, () -> histogram.getPercentile(101));
+    }
+
+    @Test
+    public void snapshotTest() throws IOException {
+
+        Random random = new Random(21);
+        Tree<Integer> tree = new Tree<>();
+        TreeSet<Integer> expected = new TreeSet<>();
+        for (int i = 0; i < 100000; i++) {
+            int n = random.nextInt(1000000) - 500000;
+            tree.insert(n);
+            expected.add(n);
+        }
+
+        // Diferenças pequenas entre elementos vizinhos ocupam cerca de um byte cada, e não há rotações na leitura.
+        byte[] bytes = writeSnapshot(tree, ElementCodec.integers());
+        assertTrue(bytes.length < 2 * tree.getSize());
+        Tree<Integer> copy = new Tree<>();
+        readSnapshot(copy, bytes, ElementCodec.integers());
+        structureTest(copy, expected);
+        assertEquals(17, copy.getRoot().getHeight());
+
+        // Multiconjunto com ordem decrescente.
+        Tree<Integer> multiset = Tree.multiset(Comparator.reverseOrder());
+        for (int i = 0; i < 5000; i++) { multiset.insert(random.nextInt(100)); }
+        Tree<Integer> multisetCopy = Tree.multiset(Comparator.reverseOrder());
+        readSnapshot(multisetCopy, writeSnapshot(multiset, ElementCodec.integers()), ElementCodec.integers());
+        assertEquals(toList(multiset), toList(multisetCopy));
+        assertEquals(multiset.totalSize(), multisetCopy.totalSize());
+        for (int n = 0; n < 100; n++) {
+            assertEquals(multiset.count(n), multisetCopy.count(n));
+        }
+
+        // Strings com prefixos comuns, inclusive terminando no meio de um par de surrogates.
+        Tree<String> strings = new Tree<>();
+        for (String s : List.of("", "a", "abc", "abd", "b\uD83D\uDE00x", "b\uD83D\uDE01", "ção")) { strings.insert(s); }
+        Tree<String> stringsCopy = new Tree<>();
+        readSnapshot(stringsCopy, writeSnapshot(strings, ElementCodec.strings()), ElementCodec.strings());
+        assertEquals(toList(strings), toList(stringsCopy));
+
+        // Chaves long extraídas de records, com um codec próprio.
+        Tree<Event> events = Tree.comparingLong(Event::time);
+        for (int i = 0; i < 1000; i++) { events.insert(new Event(random.nextLong(), "e" + i)); }
+        ElementCodec<Event> eventCodec = ElementCodec.ofBytes(
+                event -> (event.time() + ":" + event.name()).getBytes(StandardCharsets.UTF_8),
+                data -> {
+                    String[] parts = new String(data, StandardCharsets.UTF_8).split(":");
+                    return new Event(Long.parseLong(parts[0]), parts[1]);
+                });
+        Tree<Event> eventsCopy = Tree.comparingLong(Event::time);
+        readSnapshot(eventsCopy, writeSnapshot(events, eventCodec), eventCodec);
+        assertEquals(toList(events), toList(eventsCopy));
+
+        // Snapshots incompletos, fora de ordem ou de outro tipo de árvore são recusados, e a árvore continua vazia.
+        Tree<Integer> target = new Tree<>();
+        assertThrows(EOFException.class,
+                () -> readSnapshot(target, Arrays.copyOf(bytes, bytes.length - 1), ElementCodec.integers()));
+        assertThrows(IOException.class, () -> readSnapshot(new Tree<>(Comparator.reverseOrder()), bytes, ElementCodec.integers()));
+        assertThrows(IOException.class, () -> readSnapshot(Tree.multiset(), bytes, ElementCodec.integers()));
+        assertThrows(IOException.class, () -> readSnapshot(target, new byte[20], ElementCodec.integers()));
+
+        // Número de elementos corrompido: negativo, ou um varint com mais de 10 bytes.
+        byte[] header = Arrays.copyOf(writeSnapshot(new Tree<Integer>(), ElementCodec.integers()), 13);
+        byte[] negative = Arrays.copyOf(header, 23);
+        Arrays.fill(negative, 13, 22, (byte) 0xFF);
+        negative[22] = 1;
+        assertThrows(IOException.class, () -> readSnapshot(target, negative, ElementCodec.integers()));
+        byte[] overlong = Arrays.copyOf(header, 25);
+        Arrays.fill(overlong, 13, 25, (byte) 0x80);
+        assertThrows(IOException.class, () -> readSnapshot(target, overlong, ElementCodec.integers()));
+        assertEquals(0, target.getSize());
+        assertThrows(IllegalStateException.class, () -> readSnapshot(tree, bytes, ElementCodec.integers()));
+
+        // Tamanhos e prefixos corrompidos nos elementos terminam em IOException, sem alocar o tamanho informado.
+        assertThrows(IOException.class, () -> corruptInput(-1).readBytes());
+        assertThrows(EOFException.class, () -> corruptInput(Integer.MAX_VALUE - 8, 1, 2, 3).readBytes());
+        assertThrows(IOException.class, () -> corruptInput(Integer.MAX_VALUE).readBytes());
+        assertThrows(IOException.class, () -> ElementCodec.strings().read("abc", corruptInput(-1, 0)));
+        assertThrows(IOException.class, () -> ElementCodec.strings().read("abc", corruptInput(4, 0)));
+        byte[] large = new byte[200000];
+        random.nextBytes(large);
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        ElementCodec.Output out = new ElementCodec.Output(Channels.newChannel(encoded));
+        out.writeBytes(large);
+        out.flush();
+        assertArrayEquals(large, new ElementCodec.Input(ByteBuffer.wrap(encoded.toByteArray())).readBytes());
+
+        Tree<Integer> empty = new Tree<>();
+        readSnapshot(empty, writeSnapshot(new Tree<Integer>(), ElementCodec.integers()), ElementCodec.integers());
+        assertTrue(empty.getRoot().isEmpty());
+    }
+
+    /**
+     * Entrada com um varint seguido dos bytes informados.
+     */
+    private static ElementCodec.Input corruptInput(long varint, int... bytes) throws IOException {
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        ElementCodec.Output out = new ElementCodec.Output(Channels.newChannel(data));
+        out.writeVarLong(varint);
+        for (int b : bytes) { out.writeByte(b); }
+        out.flush();
+        return new ElementCodec.Input(ByteBuffer.wrap(data.toByteArray()));
+    }
+
+    private static <T> byte[] writeSnapshot(Tree<T> tree, ElementCodec<? super T> codec) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        tree.writeTo(Channels.newChannel(bytes), codec);
+        return bytes.toByteArray();
+    }
+
+    private static <T> void readSnapshot(Tree<T> tree, byte[] bytes, ElementCodec<T> codec) throws IOException {
+        tree.readFrom(Channels.newChannel(new ByteArrayInputStream(bytes)), codec);
+    }
+
+    @Test
+    public void renderTest() throws IOException {
+
+        Tree<Integer> tree = Tree.fromSorted(1, 2, 3, 4, 5, 10, 20);
+        assertEquals("""
+                      4
+                   /     \\
+                  2       10
+                 / \\     /  \\
+                1   3   5    20
+                """, tree.toString());
+        assertEquals("""
+                * 4
+                 E 2
+                  E 1
+                  D 3
+                 D 10
+                  E 5
+                  D 20
+                """, tree.toStringVertical());
+
+        // Só níveis inteiros que cabem no limite de nós.
+        StringBuilder limited = new StringBuilder();
+        tree.render(limited, 10, 6);
+        assertEquals("""
+                  4
+                 / \\
+                2   10
+                ... mais 4 elementos
+                """, limited.toString());
+
+        StringBuilder vertical = new StringBuilder();
+        tree.renderVertical(vertical, 2, 2);
+        assertEquals("* 4\n E 2\n... mais 5 elementos\n", vertical.toString());
+
+        assertEquals("", new Tree<Integer>().toString());
+        assertThrows(IllegalArgumentException.class, () -> tree.render(new StringBuilder(), -1, 10));
+
+        // Uma árvore de um milhão de elementos desenha só o topo.
+        Tree<Integer> large = Tree.fromSorted(IntStream.range(0, 1000000).iterator(), 1000000);
+        String text = large.toString();
+        assertTrue(text.length() < 200000);
+        assertTrue(text.endsWith("... mais " + (1000000 - Tree.DEFAULT_RENDER_NODES) + " elementos\n"));
+        assertEquals(Tree.DEFAULT_RENDER_NODES + 1, large.toStringVertical().lines().count());
+    }
+
+    /**
+     * verify e parallelVerify aceitam árvores grandes corretas e encontram cada tipo de invariante violado.
+     */
+    @Test
+    public void verifyTest() {
+
+        // Um milhão de elementos, verificados depois de cada rodada de modificações.
+        Random random = new Random(24);
+        Tree<Integer> large = Tree.withOrderStatistics();
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 200000; i++) { large.insert(random.nextInt(2000000)); }
+            for (int i = 0; i < 20000; i++) { large.remove(random.nextInt(2000000)); }
+            large.verify();
+            large.parallelVerify();
+        }
+        new Tree<Integer>().verify();
+        Tree.multiset().parallelVerify();
+
+        // Uma folha que ganhou um filho sem atualizar a altura, no fundo de uma árvore grande.
+        Node<Integer> leaf = large.getRoot();
+        while (!leaf.getLeft().isEmpty()) { leaf = leaf.getLeft(); }
+        leaf.setLeft(new CountedNode<>(-1, leaf));
+        assertVerifyFails(large, "altura");
+
+        Tree<Integer> tree = Tree.fromSorted(10, 20, 30, 40, 50, 60, 70);
+        Node<Integer> root = tree.getRoot();
+
+        root.getLeft().parent = root.getRight();
+        assertVerifyFails(tree, "outro pai");
+        root.getLeft().parent = root;
+
+        root.getLeft().copyContents(root.getRight());
+        assertVerifyFails(tree, "fora de ordem");
+        root.getLeft().copyContents(new Node<>(20, null));
+        tree.verify();
+
+        // Uma corrente de dois nós sob o 10, com as alturas atualizadas: o 10 fica desbalanceado.
+        Node<Integer> ten = root.getLeft().getLeft();
+        Node<Integer> five = new Node<>(5, ten);
+        ten.setLeft(five);
+        five.setLeft(new Node<>(1, five));
+        five.updadeHeight();
+        ten.updadeHeight();
+        root.getLeft().updadeHeight();
+        root.updadeHeight();
+        assertVerifyFails(tree, "fator de balanço");
+
+        // Uma folha retirada com as alturas corretas: só o tamanho fica errado.
+        ten.setLeft(Node.empty());
+        ten.updadeHeight();
+        root.getLeft().updadeHeight();
+        root.updadeHeight();
+        root.getRight().setRight(Node.empty());
+        assertVerifyFails(tree, "size");
+
+        Tree<Integer> multiset = Tree.multiset();
+        for (int i = 0; i < 10; i++) { multiset.insert(i % 3); }
+        ((MultisetNode<Integer>) multiset.getRoot()).addOccurrences(1);
+        assertVerifyFails(multiset, "conta");
+    }
+
+    private static void assertVerifyFails(Tree<Integer> tree, String message) {
+        IllegalStateException sequential = assertThrows(IllegalStateException.class, tree::verify);
+        assertTrue(sequential.getMessage().contains(message), sequential.getMessage());
+        IllegalStateException parallel = assertThrows(IllegalStateException.class, tree::parallelVerify);
+        assertTrue(parallel.getMessage().contains(message), parallel.getMessage());
+    }
+
+    private void multisetTest(Tree<Integer> multiset, TreeMap<Integer, Integer> expected) {
+
+        structureTest(multiset, new TreeSet<>(expected.keySet()));
+
+        List<Integer> occurrences = new ArrayList<>();
+        expected.forEach((n, count) -> occurrences.addAll(Collections.nCopies(count, n)));
+        assertEquals(occurrences.size(), multiset.totalSize());
+
+        for (int k = 0; k < occurrences.size(); k++) {
+            assertEquals(occurrences.get(k), multiset.select(k));
+        }
+        for (int n = -1; n <= 601; n++) {
+            assertEquals(expected.getOrDefault(n, 0), multiset.count(n));
+            int smaller = expected.headMap(n).values().stream().mapToInt(Integer::intValue).sum();
+            assertEquals(smaller, multiset.rank(n));
+        }
+        for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), multiset.countInRange(entry.getKey(), entry.getKey() + 1));
+        }
+    }
+
+    private static <T> List<T> toList(Iterable<T> iterable) {
+        List<T> list = new ArrayList<>();
+        iterable.forEach(list::add);
+        return list;
+    }
+}